@@ -0,0 +1,122 @@
+package benchmarks;
+
+import dao.BookingDAO;
+import dao.RideDAO;
+import db.SchemaMigrator;
+import model.BookingWithRide;
+import model.Page;
+import model.PageRequest;
+import model.Ride;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One page of a user's booking history with ride details: the joined
+ * projection against fetching the bookings and then each ride by id. Runs
+ * on in-process H2, so it measures per-query overhead only; against MySQL
+ * every extra lookup also pays a network round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookingHistoryBenchmark {
+
+    private static final int RIDES = 2000;
+    private static final int BOOKINGS = 1000;
+    private static final int USER_ID = 2;
+
+    @Param({"20", "100"})
+    public int pageSize;
+
+    private final BookingDAO bookingDAO = new BookingDAO();
+    private final RideDAO rideDAO = new RideDAO();
+    private Connection connection;
+
+    @Setup(Level.Trial)
+    public void load() throws SQLException {
+        connection = DriverManager.getConnection(
+                "jdbc:h2:mem:history;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        SchemaMigrator.migrate(connection);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO users(name, email) VALUES ('owner', 'owner@example.com')");
+            statement.execute("INSERT INTO users(name, email) VALUES ('rider', 'rider@example.com')");
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO rides(owner_id, source, destination, seats, fare_per_seat) VALUES (1, ?, ?, 4, 200)")) {
+            for (int i = 0; i < RIDES; i++) {
+                ps.setString(1, "City " + (i % 50));
+                ps.setString(2, "Town " + (i % 70));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO bookings(ride_id, user_id, seats_booked, total_fare) VALUES (?, ?, 1, 200)")) {
+            for (int i = 0; i < BOOKINGS; i++) {
+                ps.setInt(1, 1 + (i * 7919) % RIDES);
+                ps.setInt(2, USER_ID);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public Page<BookingWithRide> joined() throws SQLException {
+        return bookingDAO.getBookingsWithRides(connection, USER_ID, new PageRequest(Integer.MAX_VALUE, pageSize));
+    }
+
+    @Benchmark
+    public List<Ride> perBookingLookup() throws SQLException {
+        List<Integer> rideIds = new ArrayList<>();
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT id, ride_id, user_id, seats_booked, total_fare, from_stop, to_stop FROM bookings "
+                        + "WHERE user_id=? AND id < ? ORDER BY id DESC LIMIT ?")) {
+            ps.setInt(1, USER_ID);
+            ps.setInt(2, Integer.MAX_VALUE);
+            ps.setInt(3, pageSize + 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rideIds.add(rs.getInt("ride_id"));
+                }
+            }
+        }
+        List<Ride> rides = new ArrayList<>(rideIds.size());
+        for (int rideId : rideIds) {
+            rides.add(rideDAO.getRideById(connection, rideId));
+        }
+        return rides;
+    }
+}
@@ -0,0 +1,96 @@
+package benchmarks;
+
+import geo.GeoIndex;
+import geo.GeoMatch;
+import model.GeoPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nearby-pickup query latency over open rides spread across a ~35 km square
+ * city, against a brute-force scan of the same points.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeoIndexBenchmark {
+
+    private static final double MIN_LAT = 12.80;
+    private static final double MIN_LON = 77.45;
+    private static final double SPAN = 0.32;
+
+    @Param({"100000"})
+    public int rides;
+
+    @Param({"1", "2", "5"})
+    public double radiusKm;
+
+    private GeoIndex index;
+    private double[] pickupLats;
+    private double[] pickupLons;
+    private GeoPoint[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void load() {
+        SplittableRandom random = new SplittableRandom(42);
+        index = new GeoIndex(1);
+        pickupLats = new double[rides];
+        pickupLons = new double[rides];
+        for (int i = 0; i < rides; i++) {
+            pickupLats[i] = MIN_LAT + random.nextDouble() * SPAN;
+            pickupLons[i] = MIN_LON + random.nextDouble() * SPAN;
+            GeoPoint drop = new GeoPoint(MIN_LAT + random.nextDouble() * SPAN, MIN_LON + random.nextDouble() * SPAN);
+            index.put(i + 1, new GeoPoint(pickupLats[i], pickupLons[i]), drop);
+        }
+
+        queries = new GeoPoint[1024];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = new GeoPoint(MIN_LAT + random.nextDouble() * SPAN, MIN_LON + random.nextDouble() * SPAN);
+        }
+    }
+
+    private GeoPoint nextQuery() {
+        return queries[next++ & (queries.length - 1)];
+    }
+
+    @Benchmark
+    public List<GeoMatch> pickupOnly() {
+        return index.nearby(nextQuery(), null, radiusKm, 20);
+    }
+
+    @Benchmark
+    public List<GeoMatch> pickupAndDrop() {
+        return index.nearby(nextQuery(), nextQuery(), radiusKm, 20);
+    }
+
+    @Benchmark
+    public int linearScan() {
+        GeoPoint query = nextQuery();
+        double cosLat = GeoIndex.cosLat(query.getLat());
+        int found = 0;
+        for (int i = 0; i < rides; i++) {
+            if (GeoIndex.distanceKm(query.getLat(), query.getLon(), pickupLats[i], pickupLons[i], cosLat) <= radiusKm) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,142 @@
+package benchmarks;
+
+import api.LambdaHandler;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import config.Env;
+import db.DBConnection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole requests through {@link LambdaHandler#handleRequest}: routing,
+ * admission, the schema check, the service and DAO calls over the real
+ * connection pool, and serialization. The database is in-process H2 in
+ * MySQL mode, configured through {@code -D} properties on the fork (admission
+ * limits are raised so the loop is not throttled), so each op shows the
+ * backend's own overhead without the network round trips MySQL adds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {
+        "-DDB_URL=jdbc:h2:mem:handler;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;IGNORECASE=TRUE",
+        "-DDB_USER=sa",
+        "-DADMISSION_CLIENT_RATE=100000000",
+        "-DADMISSION_CLIENT_BURST=100000000",
+        "-DADMISSION_ROUTE_RATE=100000000",
+        "-DADMISSION_ROUTE_BURST=100000000"})
+public class HandlerBenchmark {
+
+    private static final int RIDES = 2000;
+    private static final int BOOKINGS = 200;
+    private static final int USER_ID = 2;
+
+    private final LambdaHandler handler = new LambdaHandler();
+    private final APIGatewayProxyRequestEvent health = request("GET", "/health", null);
+    private final APIGatewayProxyRequestEvent login =
+            request("GET", "/users/login", Map.of("email", "rider@example.com"));
+    private final APIGatewayProxyRequestEvent search =
+            request("GET", "/rides", Map.of("source", "City 1", "destination", "Town 1"));
+    private final APIGatewayProxyRequestEvent bookings = request("GET", "/bookings/" + USER_ID, null);
+    private final APIGatewayProxyRequestEvent dashboard = request("GET", "/users/" + USER_ID + "/dashboard", null);
+
+    @Setup(Level.Trial)
+    public void load() throws SQLException {
+        // DBConnection reads the OS environment first; refuse to seed a real database.
+        if (!Env.get("DB_URL", "").startsWith("jdbc:h2:mem:")) {
+            throw new IllegalStateException("HandlerBenchmark only runs against in-memory H2; unset DB_URL");
+        }
+        DBConnection.ensureSchema();
+        try (Connection connection = DBConnection.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("INSERT INTO users(name, email) VALUES ('owner', 'owner@example.com')");
+                statement.execute("INSERT INTO users(name, email) VALUES ('rider', 'rider@example.com')");
+            }
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO rides(owner_id, source, destination, seats, fare_per_seat) VALUES (1, ?, ?, 4, 200)")) {
+                for (int i = 0; i < RIDES; i++) {
+                    ps.setString(1, "City " + (i % 50));
+                    ps.setString(2, "Town " + (i % 40));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO bookings(ride_id, user_id, seats_booked, total_fare) VALUES (?, ?, 1, 200)")) {
+                for (int i = 0; i < BOOKINGS; i++) {
+                    ps.setInt(1, 1 + (i * 7919) % RIDES);
+                    ps.setInt(2, USER_ID);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+
+        for (APIGatewayProxyRequestEvent request : List.of(health, login, search, bookings, dashboard)) {
+            APIGatewayProxyResponseEvent response = handler.handleRequest(request, null);
+            if (response.getStatusCode() != 200) {
+                throw new IllegalStateException(request.getPath() + " returned " + response.getStatusCode()
+                        + ": " + response.getBody());
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        try (Connection connection = DBConnection.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        DBConnection.shutdown();
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent health() {
+        return handler.handleRequest(health, null);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent login() {
+        return handler.handleRequest(login, null);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent searchRides() {
+        return handler.handleRequest(search, null);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent bookingHistory() {
+        return handler.handleRequest(bookings, null);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent dashboard() {
+        return handler.handleRequest(dashboard, null);
+    }
+
+    private static APIGatewayProxyRequestEvent request(String method, String path, Map<String, String> query) {
+        return new APIGatewayProxyRequestEvent().withHttpMethod(method).withPath(path).withQueryStringParameters(query);
+    }
+}
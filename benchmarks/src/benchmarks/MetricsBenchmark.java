@@ -0,0 +1,50 @@
+package benchmarks;
+
+import metrics.LatencyHistogram;
+import metrics.PrometheusFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the instrumentation on the request path: recording one latency,
+ * and timing a call from a start timestamp. Run with {@code -prof gc} to see
+ * that neither allocates. Rendering {@code /metrics} is measured for
+ * comparison; it runs once per scrape, not per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private long value = 1;
+
+    @Benchmark
+    public void record() {
+        // Walks values from nanoseconds to seconds so every bucket range is hit.
+        value = value * 31 % 4_000_000_007L;
+        histogram.record(value);
+    }
+
+    @Benchmark
+    public void recordSince() {
+        histogram.recordSince(System.nanoTime());
+    }
+
+    @Benchmark
+    public String renderPrometheus() {
+        return PrometheusFormat.render();
+    }
+}
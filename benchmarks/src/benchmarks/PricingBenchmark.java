@@ -0,0 +1,124 @@
+package benchmarks;
+
+import dao.RideDAO;
+import db.SchemaMigrator;
+import model.Ride;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pricing.DemandTracker;
+import pricing.QuoteSigner;
+import pricing.RouteDemand;
+import pricing.SurgePolicy;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What surge pricing adds to a search and a booking: counting a search,
+ * pricing a fare from the route's windows, and signing and checking a quote
+ * token, next to the cheapest database step either path takes, a primary-key
+ * read on in-process H2. Run with {@code -prof gc} to see the counting and
+ * pricing paths allocate nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PricingBenchmark {
+
+    private static final int ROUTES = 2000;
+
+    private final DemandTracker tracker = new DemandTracker(String::toLowerCase, 300_000, 30, 10_000);
+    private final SurgePolicy policy = new SurgePolicy(1, 0.5, 2, 0.1);
+    private final QuoteSigner signer = new QuoteSigner("benchmark-secret-0123456789".getBytes(StandardCharsets.UTF_8));
+    private final RideDAO rideDAO = new RideDAO();
+
+    private String[] sources;
+    private String[] destinations;
+    private String payload;
+    private String token;
+    private Connection connection;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void load() throws SQLException {
+        sources = new String[ROUTES];
+        destinations = new String[ROUTES];
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < ROUTES; i++) {
+            sources[i] = "City " + (i % 50);
+            destinations[i] = "Town " + (i / 50);
+            RouteDemand demand = tracker.route(sources[i], destinations[i]);
+            demand.setSeatsRemaining(40);
+            for (int j = 0; j < 20; j++) {
+                demand.recordSearch(now);
+                demand.recordAttempt(now);
+            }
+        }
+        payload = "RW8wZkZTTXJUWTFvZkU1enRDYXZTQX|1|2|1|||525|1792207994";
+        token = signer.sign(payload);
+
+        connection = DriverManager.getConnection(
+                "jdbc:h2:mem:pricing;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        SchemaMigrator.migrate(connection);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO users(name, email) VALUES ('owner', 'owner@example.com')");
+            statement.execute("INSERT INTO rides(owner_id, source, destination, seats, fare_per_seat) "
+                    + "VALUES (1, 'City 1', 'Town 1', 4, 200)");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public void recordSearch() {
+        int route = next++ % ROUTES;
+        tracker.route(sources[route], destinations[route]).recordSearch(System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public int price() {
+        int route = next++ % ROUTES;
+        RouteDemand demand = tracker.route(sources[route], destinations[route]);
+        long now = System.currentTimeMillis();
+        int multiplier = policy.multiplier(demand.searches(now), demand.attempts(now), demand.seatsRemaining());
+        return SurgePolicy.apply(600, multiplier);
+    }
+
+    @Benchmark
+    public String signQuote() {
+        return signer.sign(payload);
+    }
+
+    @Benchmark
+    public String verifyQuote() {
+        return signer.verify(token);
+    }
+
+    @Benchmark
+    public Ride rideByIdBaseline() throws SQLException {
+        return rideDAO.getRideById(connection, 1);
+    }
+}
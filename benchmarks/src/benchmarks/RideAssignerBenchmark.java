@@ -0,0 +1,137 @@
+package benchmarks;
+
+import matching.Assignment;
+import matching.RideAssigner;
+import model.Ride;
+import model.RideRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import service.Locations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Planning a matching round over 50k pending requests, sequentially and on
+ * a fork/join pool, against the pattern it replaces: every rider racing
+ * (CAS on shared seat counters) for the first listed ride on their route.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RideAssignerBenchmark {
+
+    @Param({"50000"})
+    public int requests;
+
+    @Param({"500"})
+    public int routes;
+
+    private List<RideRequest> pending;
+    private List<Ride> rides;
+    private RideAssigner assigner;
+    private ForkJoinPool pool;
+
+    // Listing order per route, as riders see it in search results.
+    private int[][] rideIndexesByRoute;
+    private int[] routeOfRequest;
+    private int[] seatsOfRide;
+
+    @Setup(Level.Trial)
+    public void load() {
+        SplittableRandom random = new SplittableRandom(42);
+        assigner = new RideAssigner(Locations::canonicalKey);
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+        rides = new ArrayList<>();
+        List<List<Integer>> byRoute = new ArrayList<>();
+        for (int route = 0; route < routes; route++) {
+            List<Integer> indexes = new ArrayList<>();
+            int count = 4 + random.nextInt(20);
+            for (int i = 0; i < count; i++) {
+                indexes.add(rides.size());
+                rides.add(new Ride(rides.size() + 1, 1, "City " + route, "Town " + route,
+                        1 + random.nextInt(6), 100 + random.nextInt(200), "OPEN",
+                        "2030-01-01T" + String.format("%02d", 6 + random.nextInt(12)) + ":00", null, null, null, List.of(), 2));
+            }
+            byRoute.add(indexes);
+        }
+        rideIndexesByRoute = new int[routes][];
+        for (int route = 0; route < routes; route++) {
+            rideIndexesByRoute[route] = byRoute.get(route).stream().mapToInt(Integer::intValue).toArray();
+        }
+        seatsOfRide = rides.stream().mapToInt(Ride::getSeats).toArray();
+
+        pending = new ArrayList<>(requests);
+        routeOfRequest = new int[requests];
+        for (int i = 0; i < requests; i++) {
+            // Skewed demand: a few hot routes get most of the requests.
+            int route = (int) (routes * Math.pow(random.nextDouble(), 3));
+            routeOfRequest[i] = route;
+            int earliest = 6 + random.nextInt(10);
+            pending.add(new RideRequest(i + 1, 1000 + i, "city " + route, "town " + route,
+                    1 + random.nextInt(3), 150 + random.nextInt(200),
+                    "2030-01-01T" + String.format("%02d", earliest) + ":00",
+                    "2030-01-01T" + String.format("%02d", earliest + 4) + ":00", "PENDING", null, null));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public List<Assignment> planSequential() {
+        return assigner.assign(pending, rides, null);
+    }
+
+    @Benchmark
+    public List<Assignment> planParallel() {
+        return assigner.assign(pending, rides, pool);
+    }
+
+    /**
+     * Every request tries the rides of its route in listing order and takes
+     * seats with a CAS, retrying on contention; no fare or window checks, so
+     * this is a lower bound on the per-request booking work it stands for.
+     */
+    @Benchmark
+    public int thunderingHerd() {
+        AtomicIntegerArray seats = new AtomicIntegerArray(seatsOfRide);
+        return pool.submit(() -> IntStream.range(0, requests).parallel().map(i -> {
+            int wanted = pending.get(i).getSeats();
+            for (int ride : rideIndexesByRoute[routeOfRequest[i]]) {
+                while (true) {
+                    int left = seats.get(ride);
+                    if (left < wanted) {
+                        break;
+                    }
+                    if (seats.compareAndSet(ride, left, left - wanted)) {
+                        return wanted;
+                    }
+                }
+            }
+            return 0;
+        }).sum()).join();
+    }
+}
@@ -0,0 +1,160 @@
+package benchmarks;
+
+import browse.RideSnapshot;
+import browse.RideSort;
+import db.SchemaMigrator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * "Cheapest rides with at least N seats" over a million open rides, across
+ * all routes and on one route: a scan of the columnar snapshot against the
+ * same filter and ORDER BY ... LIMIT in SQL on in-process H2 (result cache
+ * off). H2 has no network hop, so the gap against MySQL is wider still.
+ * {@code refresh} is the cost of folding a change log page into a new
+ * snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class RideBrowseBenchmark {
+
+    private static final int ROUTES = 2000;
+    private static final int MIN_SEATS = 3;
+    private static final int MAX_FARE = 500;
+    private static final int LIMIT = 20;
+    private static final int CHANGES = 100;
+
+    @Param({"1000000"})
+    public int rides;
+
+    @Param({"FARE", "SEATS"})
+    public RideSort sort;
+
+    private RideSnapshot snapshot;
+    private Connection connection;
+
+    @Setup(Level.Trial)
+    public void load() throws SQLException {
+        String[] sources = new String[ROUTES];
+        String[] destinations = new String[ROUTES];
+        for (int i = 0; i < ROUTES; i++) {
+            sources[i] = "City " + (i % 50);
+            destinations[i] = "Town " + (i / 50);
+        }
+
+        connection = DriverManager.getConnection(
+                "jdbc:h2:mem:browse;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;QUERY_CACHE_SIZE=0", "sa", "");
+        SchemaMigrator.migrate(connection);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO users(name, email) VALUES ('owner', 'owner@example.com')");
+        }
+
+        SplittableRandom random = new SplittableRandom(42);
+        RideSnapshot.Builder builder = RideSnapshot.builder(String::toLowerCase);
+        connection.setAutoCommit(false);
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO rides(id, owner_id, source, destination, seats, fare_per_seat) VALUES (?, 1, ?, ?, ?, ?)")) {
+            for (int id = 1; id <= rides; id++) {
+                int route = random.nextInt(ROUTES);
+                int seats = 1 + random.nextInt(6);
+                int fare = 50 + random.nextInt(2000);
+                builder.put(id, sources[route], destinations[route], seats, fare);
+                ps.setInt(1, id);
+                ps.setString(2, sources[route]);
+                ps.setString(3, destinations[route]);
+                ps.setInt(4, seats);
+                ps.setInt(5, fare);
+                ps.addBatch();
+                if (id % 10000 == 0) {
+                    ps.executeBatch();
+                    connection.commit();
+                }
+            }
+            ps.executeBatch();
+            connection.commit();
+        }
+        connection.setAutoCommit(true);
+        snapshot = builder.build(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public int[] snapshot() {
+        return snapshot.top(null, null, MIN_SEATS, MAX_FARE, sort, LIMIT);
+    }
+
+    @Benchmark
+    public int[] snapshotRoute() {
+        return snapshot.top("City 7", "Town 3", 1, Integer.MAX_VALUE, sort, LIMIT);
+    }
+
+    @Benchmark
+    public int[] sql() throws SQLException {
+        String order = sort == RideSort.FARE ? "fare_per_seat, id DESC" : "seats DESC, id DESC";
+        return query("SELECT id FROM rides WHERE status='OPEN' AND seats >= ? AND fare_per_seat <= ? "
+                + "ORDER BY " + order + " LIMIT ?", MIN_SEATS, MAX_FARE);
+    }
+
+    @Benchmark
+    public int[] sqlRoute() throws SQLException {
+        String order = sort == RideSort.FARE ? "fare_per_seat, id DESC" : "seats DESC, id DESC";
+        return query("SELECT id FROM rides WHERE source='City 7' AND destination='Town 3' AND status='OPEN' "
+                + "AND seats >= ? AND fare_per_seat <= ? ORDER BY " + order + " LIMIT ?", 1, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public RideSnapshot refresh() {
+        RideSnapshot.Builder builder = snapshot.toBuilder();
+        for (int i = 0; i < CHANGES; i++) {
+            builder.put(1 + i * 7919, "City 1", "Town 1", 2, 300);
+        }
+        return builder.build(1);
+    }
+
+    private int[] query(String sql, int minSeats, int maxFare) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setInt(1, minSeats);
+            ps.setInt(2, maxFare);
+            ps.setInt(3, LIMIT);
+            int[] ids = new int[LIMIT];
+            int count = 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids[count++] = rs.getInt(1);
+                }
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package benchmarks;
+
+import api.LambdaHandler;
+import api.Router;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What every request pays before its handler runs: stripping the API
+ * Gateway stage from the path and matching it against {@link LambdaHandler}'s
+ * route table, for a literal route, routes with a path parameter at the end
+ * and in the middle, and a path that matches nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutingBenchmark {
+
+    private static final MethodHandle NORMALIZE_PATH =
+            PrivateAccess.method(LambdaHandler.class, "normalizePath", String.class, APIGatewayProxyRequestEvent.class);
+    private static final MethodHandle ROUTER = PrivateAccess.getter(LambdaHandler.class, "router", Router.class);
+
+    private final LambdaHandler handler = new LambdaHandler();
+    private final Router router;
+    private final APIGatewayProxyRequestEvent staged = new APIGatewayProxyRequestEvent()
+            .withPath("/prod/bookings/42")
+            .withRequestContext(new APIGatewayProxyRequestEvent.ProxyRequestContext().withStage("prod"));
+
+    public RoutingBenchmark() {
+        try {
+            router = (Router) ROUTER.invokeExact(handler);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public String normalizePath() throws Throwable {
+        return (String) NORMALIZE_PATH.invokeExact(handler, staged);
+    }
+
+    @Benchmark
+    public Router.Match matchLiteral() {
+        return router.match("GET", "/rides");
+    }
+
+    @Benchmark
+    public Router.Match matchTrailingParam() {
+        return router.match("GET", "/bookings/42");
+    }
+
+    @Benchmark
+    public Router.Match matchInnerParam() {
+        return router.match("GET", "/users/42/dashboard");
+    }
+
+    @Benchmark
+    public Router.Match matchMiss() {
+        return router.match("GET", "/rides/42/seats");
+    }
+}
@@ -0,0 +1,124 @@
+package benchmarks;
+
+import dao.BookingDAO;
+import dao.RideDAO;
+import db.SchemaMigrator;
+import model.Booking;
+import model.Ride;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.invoke.MethodHandle;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code RideDAO.mapRide} and {@code BookingDAO.mapBooking} over a page of
+ * fully populated rows (departure, coordinates, stops), apart from the query
+ * that fetched them. The rows sit in a scrollable H2 result that is already
+ * in memory, so each op is column lookups and conversions only; MySQL's
+ * driver decodes from its own row buffers, but the per-column work is alike.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMappingBenchmark {
+
+    private static final MethodHandle MAP_RIDE =
+            PrivateAccess.method(RideDAO.class, "mapRide", Ride.class, ResultSet.class);
+    private static final MethodHandle MAP_BOOKING =
+            PrivateAccess.method(BookingDAO.class, "mapBooking", Booking.class, ResultSet.class);
+
+    @Param({"20", "100"})
+    public int rows;
+
+    private final RideDAO rideDAO = new RideDAO();
+    private final BookingDAO bookingDAO = new BookingDAO();
+    private Connection connection;
+    private ResultSet rides;
+    private ResultSet bookings;
+
+    @Setup(Level.Trial)
+    public void load() throws SQLException {
+        connection = DriverManager.getConnection(
+                "jdbc:h2:mem:mapping;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        SchemaMigrator.migrate(connection);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO users(name, email) VALUES ('owner', 'owner@example.com')");
+            statement.execute("INSERT INTO users(name, email) VALUES ('rider', 'rider@example.com')");
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO rides(owner_id, source, destination, seats, fare_per_seat, departure_at, "
+                        + "pickup_lat, pickup_lon, drop_lat, drop_lon, stop_count) "
+                        + "VALUES (1, ?, ?, 4, 450, ?, 12.9716, 77.5946, 12.2958, 76.6394, 4)")) {
+            for (int i = 0; i < rows; i++) {
+                ps.setString(1, "Bangalore " + i);
+                ps.setString(2, "Mysore " + i);
+                ps.setObject(3, LocalDateTime.of(2030, 1, 1, 8, 0).plusHours(i));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO bookings(ride_id, user_id, seats_booked, total_fare, from_stop, to_stop) "
+                        + "VALUES (?, 2, 2, 900, 0, 2)")) {
+            for (int i = 0; i < rows; i++) {
+                ps.setInt(1, i + 1);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+
+        rides = connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY)
+                .executeQuery("SELECT * FROM rides ORDER BY id");
+        bookings = connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY)
+                .executeQuery("SELECT * FROM bookings ORDER BY id");
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        rides.getStatement().close();
+        bookings.getStatement().close();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public void mapRide(Blackhole blackhole) throws Throwable {
+        rides.beforeFirst();
+        while (rides.next()) {
+            blackhole.consume((Ride) MAP_RIDE.invokeExact(rideDAO, rides));
+        }
+    }
+
+    @Benchmark
+    public void mapBooking(Blackhole blackhole) throws Throwable {
+        bookings.beforeFirst();
+        while (bookings.next()) {
+            blackhole.consume((Booking) MAP_BOOKING.invokeExact(bookingDAO, bookings));
+        }
+    }
+}
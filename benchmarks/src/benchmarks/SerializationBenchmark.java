@@ -0,0 +1,116 @@
+package benchmarks;
+
+import api.LambdaHandler;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import json.Json;
+import json.RideJson;
+import model.Booking;
+import model.GeoPoint;
+import model.Ride;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request bodies in and responses out through {@link LambdaHandler}'s own
+ * {@code parseBody} and {@code jsonResponse}, at page sizes the API serves:
+ * batch publish and batch booking bodies, and lists of rides and bookings
+ * rendered with Gson. {@code rideListStreaming} renders the same rides the
+ * way the listing endpoints do, straight to a {@code JsonWriter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final MethodHandle PARSE_BODY = PrivateAccess.method(LambdaHandler.class, "parseBody",
+            Object.class, APIGatewayProxyRequestEvent.class, Class.class);
+    private static final MethodHandle JSON_RESPONSE = PrivateAccess.method(LambdaHandler.class, "jsonResponse",
+            APIGatewayProxyResponseEvent.class, int.class, Object.class);
+    private static final Class<?> PUBLISH_RIDES = PrivateAccess.nested(LambdaHandler.class, "PublishRidesRequest");
+    private static final Class<?> BATCH_BOOKING = PrivateAccess.nested(LambdaHandler.class, "BatchBookingRequest");
+
+    @Param({"1", "20", "100"})
+    public int items;
+
+    private final LambdaHandler handler = new LambdaHandler();
+    private APIGatewayProxyRequestEvent publishRides;
+    private APIGatewayProxyRequestEvent bookBatch;
+    private List<Ride> rides;
+    private List<Booking> bookings;
+
+    @Setup(Level.Trial)
+    public void load() {
+        StringJoiner rideBodies = new StringJoiner(",", "{\"rides\":[", "]}");
+        StringJoiner bookingBodies = new StringJoiner(",", "{\"mode\":\"PARTIAL\",\"bookings\":[", "]}");
+        rides = new ArrayList<>();
+        bookings = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            rideBodies.add("{\"ownerId\":" + (i + 1) + ",\"source\":\"Bangalore\",\"destination\":\"Mysore\","
+                    + "\"seats\":4,\"farePerSeat\":450,\"departureAt\":\"2030-01-01T08:00\","
+                    + "\"pickupLat\":12.9716,\"pickupLon\":77.5946,\"dropLat\":12.2958,\"dropLon\":76.6394,"
+                    + "\"stops\":[\"Ramanagara\",\"Mandya\"]}");
+            bookingBodies.add("{\"rideId\":" + (i + 1) + ",\"userId\":2,\"seats\":2,\"fromStop\":0,\"toStop\":2,"
+                    + "\"quoteToken\":\"RW8wZkZTTXJUWTFvZkU1enRDYXZTQX.MTc5MjIwNzk5NA.c2lnbmF0dXJl\"}");
+            rides.add(new Ride(i + 1, i + 1, "Bangalore", "Mysore", 4, 450, "OPEN", "2030-01-01T08:00", null,
+                    new GeoPoint(12.9716, 77.5946), new GeoPoint(12.2958, 76.6394), List.of(), 4));
+            bookings.add(new Booking(i + 1, i + 1, 2, 2, 900, 0, 2));
+        }
+        publishRides = new APIGatewayProxyRequestEvent().withBody(rideBodies.toString());
+        bookBatch = new APIGatewayProxyRequestEvent().withBody(bookingBodies.toString());
+    }
+
+    @Benchmark
+    public Object parsePublishRides() throws Throwable {
+        return (Object) PARSE_BODY.invokeExact(handler, publishRides, (Class) PUBLISH_RIDES);
+    }
+
+    @Benchmark
+    public Object parseBookingBatch() throws Throwable {
+        return (Object) PARSE_BODY.invokeExact(handler, bookBatch, (Class) BATCH_BOOKING);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent rideListGson() throws Throwable {
+        return (APIGatewayProxyResponseEvent) JSON_RESPONSE.invokeExact(handler, 200, (Object) Map.of("items", rides));
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent bookingListGson() throws Throwable {
+        return (APIGatewayProxyResponseEvent) JSON_RESPONSE.invokeExact(handler, 200, (Object) Map.of("items", bookings));
+    }
+
+    @Benchmark
+    public String rideListStreaming() throws SQLException {
+        return Json.write(out -> {
+            out.beginObject();
+            out.name("items").beginArray();
+            for (Ride ride : rides) {
+                RideJson.write(out, ride);
+            }
+            out.endArray();
+            out.endObject();
+        });
+    }
+}
@@ -0,0 +1,131 @@
+package benchmarks;
+
+import api.LambdaHandler;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold starts, which JMH cannot measure since it warms up inside one JVM.
+ * Each sample is a fresh JVM that builds a {@link LambdaHandler} and serves
+ * one {@code GET /rides} against in-memory H2, timed from just before the
+ * process is launched: once to the end of init and once to the first
+ * response. On Lambda, init runs before the first request arrives, so the
+ * difference between the two is what that request waits for. Variants compare startup priming and an AppCDS archive trained
+ * here the way {@code scripts/build_lambda_zip.sh} trains the Lambda one.
+ * <p>
+ * Not a JMH benchmark; run with
+ * {@code java -cp target/benchmarks.jar benchmarks.StartupBenchmark [runs]}.
+ */
+public class StartupBenchmark {
+
+    private static final String DB_URL = "jdbc:h2:mem:startup;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+        Path archive = Files.createTempFile("startup", ".jsa");
+        Files.delete(archive);
+        try {
+            launch(true, List.of("-XX:ArchiveClassesAtExit=" + archive));
+            if (!Files.exists(archive)) {
+                throw new IllegalStateException("Training run did not write " + archive);
+            }
+            List<String> cds = List.of("-XX:SharedArchiveFile=" + archive, "-Xshare:auto");
+
+            Map<String, List<long[]>> samples = new LinkedHashMap<>();
+            for (int run = 0; run < runs; run++) {
+                samples.computeIfAbsent("baseline", ignored -> new ArrayList<>()).add(launch(false, List.of()));
+                samples.computeIfAbsent("priming", ignored -> new ArrayList<>()).add(launch(true, List.of()));
+                samples.computeIfAbsent("appcds", ignored -> new ArrayList<>()).add(launch(false, cds));
+                samples.computeIfAbsent("priming+appcds", ignored -> new ArrayList<>()).add(launch(true, cds));
+            }
+
+            System.out.printf("%-16s %10s %16s %16s   (medians of %d runs)%n",
+                    "variant", "init ms", "first resp ms", "1st request ms", runs);
+            for (Map.Entry<String, List<long[]>> variant : samples.entrySet()) {
+                System.out.printf("%-16s %10.1f %16.1f %16.1f%n", variant.getKey(), medianMillis(variant.getValue(), 0),
+                        medianMillis(variant.getValue(), 1), medianMillis(variant.getValue(), 2));
+            }
+        } finally {
+            Files.deleteIfExists(archive);
+        }
+    }
+
+    // Nanos from launch to the end of init and to the first response, and from one to the other.
+    private static long[] launch(boolean priming, List<String> jvmOptions) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(jvmOptions);
+        command.addAll(List.of("-cp", System.getProperty("java.class.path"), Probe.class.getName()));
+
+        ProcessBuilder builder = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD);
+        builder.environment().put("DB_URL", DB_URL);
+        builder.environment().put("DB_USER", "sa");
+        builder.environment().put("DB_PASS", "");
+        builder.environment().put("STARTUP_PRIMING", String.valueOf(priming));
+        builder.environment().put("PRIME_DATABASE", "false");
+        builder.environment().put("SLOW_QUERY_MS", "0");
+
+        long launched = System.nanoTime();
+        Process process = builder.start();
+        long[] result = null;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("probe ")) {
+                    String[] fields = line.split(" ");
+                    long initialized = Long.parseLong(fields[1]);
+                    long responded = Long.parseLong(fields[2]);
+                    result = new long[] {initialized - launched, responded - launched, responded - initialized};
+                }
+            }
+        }
+        if (!process.waitFor(60, TimeUnit.SECONDS) || process.exitValue() != 0 || result == null) {
+            throw new IllegalStateException("Probe failed: " + command);
+        }
+        return result;
+    }
+
+    private static double medianMillis(List<long[]> samples, int field) {
+        long[] values = samples.stream().mapToLong(sample -> sample[field]).toArray();
+        Arrays.sort(values);
+        return values[values.length / 2] / 1e6;
+    }
+
+    /**
+     * The child JVM. {@link System#nanoTime()} reads a clock shared by all
+     * processes on the machine, so its timestamps line up with the parent's.
+     */
+    public static final class Probe {
+
+        public static void main(String[] args) {
+            LambdaHandler handler = new LambdaHandler();
+            long initialized = System.nanoTime();
+            APIGatewayProxyResponseEvent response = handler.handleRequest(new APIGatewayProxyRequestEvent()
+                    .withHttpMethod("GET")
+                    .withPath("/rides")
+                    .withQueryStringParameters(Map.of("source", "Pune", "destination", "Mumbai")), null);
+            long responded = System.nanoTime();
+            if (response.getStatusCode() != 200) {
+                System.exit(1);
+            }
+            System.out.println("probe " + initialized + " " + responded);
+            // Normal exit is what writes the archive on the training run.
+            System.exit(0);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 const state = {
-    user: null
+    user: null,
+    ridesCursor: null,
+    bookingsCursor: null
 };
 
 const configuredApiBase = (window.CAB_CONFIG && window.CAB_CONFIG.apiBaseUrl) ? window.CAB_CONFIG.apiBaseUrl.trim() : "";
@@ -17,15 +19,19 @@ const el = {
     searchSource: document.getElementById("searchSource"),
     searchDestination: document.getElementById("searchDestination"),
     ridesTableBody: document.getElementById("ridesTableBody"),
-    bookingsTableBody: document.getElementById("bookingsTableBody")
+    bookingsTableBody: document.getElementById("bookingsTableBody"),
+    moreRidesBtn: document.getElementById("moreRidesBtn"),
+    moreBookingsBtn: document.getElementById("moreBookingsBtn")
 };
 
 document.getElementById("registerBtn").addEventListener("click", registerUser);
 document.getElementById("loginBtn").addEventListener("click", loginUser);
 document.getElementById("publishBtn").addEventListener("click", publishRide);
-document.getElementById("refreshRidesBtn").addEventListener("click", fetchRides);
-document.getElementById("searchBtn").addEventListener("click", fetchRides);
-document.getElementById("refreshBookingsBtn").addEventListener("click", fetchBookings);
+document.getElementById("refreshRidesBtn").addEventListener("click", () => fetchRides());
+document.getElementById("searchBtn").addEventListener("click", () => fetchRides());
+document.getElementById("refreshBookingsBtn").addEventListener("click", () => fetchBookings());
+el.moreRidesBtn.addEventListener("click", () => fetchRides(true));
+el.moreBookingsBtn.addEventListener("click", () => fetchBookings(true));
 
 fetchRides();
 
@@ -84,7 +90,7 @@ async function registerUser() {
         state.user = data;
         updateSessionUi();
         notify(`Logged in as ${data.name}`);
-        await fetchBookings();
+        await loadDashboard();
     } catch (error) {
         notify(error.message, "danger");
     }
@@ -101,7 +107,7 @@ async function loginUser() {
         state.user = user;
         updateSessionUi();
         notify(`Welcome back ${user.name}`);
-        await fetchBookings();
+        await loadDashboard();
     } catch (error) {
         notify(error.message, "danger");
     }
@@ -137,29 +143,45 @@ async function publishRide() {
     }
 }
 
-async function fetchRides() {
+function pagePath(path, params, cursor) {
+    const query = new URLSearchParams(params);
+    if (cursor) {
+        query.set("cursor", cursor);
+    }
+    const text = query.toString();
+    return text ? `${path}?${text}` : path;
+}
+
+function updateMoreButton(button, cursor) {
+    button.classList.toggle("d-none", !cursor);
+}
+
+async function fetchRides(append = false) {
     try {
-        let path = "/rides";
+        const params = {};
         const source = el.searchSource.value.trim();
         const destination = el.searchDestination.value.trim();
         if (source && destination) {
-            path += `?source=${encodeURIComponent(source)}&destination=${encodeURIComponent(destination)}`;
+            params.source = source;
+            params.destination = destination;
         }
 
-        const rides = await request(path);
-        renderRides(rides);
+        const page = await request(pagePath("/rides", params, append ? state.ridesCursor : null));
+        state.ridesCursor = page.nextCursor || null;
+        renderRides(page.items, append);
+        updateMoreButton(el.moreRidesBtn, state.ridesCursor);
     } catch (error) {
         notify(error.message, "warning");
     }
 }
 
-function renderRides(rides) {
-    if (!rides.length) {
+function renderRides(rides, append = false) {
+    if (!rides.length && !append) {
         el.ridesTableBody.innerHTML = "<tr><td colspan='5' class='text-secondary text-center py-3'>No rides found</td></tr>";
         return;
     }
 
-    el.ridesTableBody.innerHTML = rides.map((ride) => `
+    const rows = rides.map((ride) => `
         <tr>
             <td>${ride.id}</td>
             <td>${ride.source} → ${ride.destination}</td>
@@ -168,6 +190,7 @@ function renderRides(rides) {
             <td><button class="btn btn-sm btn-primary" onclick="bookRide(${ride.id})">Book</button></td>
         </tr>
     `).join("");
+    el.ridesTableBody.innerHTML = append ? el.ridesTableBody.innerHTML + rows : rows;
 }
 
 async function bookRide(rideId) {
@@ -197,35 +220,49 @@ async function bookRide(rideId) {
     }
 }
 
-async function fetchBookings() {
+// One round trip for everything user-specific; the API loads it in parallel.
+async function loadDashboard() {
+    const dashboard = await request(`/users/${state.user.id}/dashboard`);
+    state.user = dashboard.user;
+    updateSessionUi();
+    state.bookingsCursor = dashboard.bookings.nextCursor || null;
+    renderBookings(dashboard.bookings.items);
+    updateMoreButton(el.moreBookingsBtn, state.bookingsCursor);
+}
+
+async function fetchBookings(append = false) {
     if (!state.user) {
         el.bookingsTableBody.innerHTML = "<tr><td colspan='5' class='text-secondary text-center py-3'>Login to see bookings</td></tr>";
+        updateMoreButton(el.moreBookingsBtn, null);
         return;
     }
 
     try {
-        const bookings = await request(`/bookings/${state.user.id}`);
-        renderBookings(bookings);
+        const page = await request(pagePath(`/bookings/${state.user.id}`, {}, append ? state.bookingsCursor : null));
+        state.bookingsCursor = page.nextCursor || null;
+        renderBookings(page.items, append);
+        updateMoreButton(el.moreBookingsBtn, state.bookingsCursor);
     } catch (error) {
         notify(error.message, "warning");
     }
 }
 
-function renderBookings(bookings) {
-    if (!bookings.length) {
+function renderBookings(bookings, append = false) {
+    if (!bookings.length && !append) {
         el.bookingsTableBody.innerHTML = "<tr><td colspan='5' class='text-secondary text-center py-3'>No bookings found</td></tr>";
         return;
     }
 
-    el.bookingsTableBody.innerHTML = bookings.map((booking) => `
+    const rows = bookings.map((booking) => `
         <tr>
             <td>${booking.id}</td>
-            <td>${booking.rideId}</td>
+            <td>#${booking.rideId} ${booking.ride.source} → ${booking.ride.destination}</td>
             <td>${booking.seatsBooked}</td>
             <td>₹${booking.totalFare}</td>
             <td><button class="btn btn-sm btn-outline-danger" onclick="cancelBooking(${booking.id})">Cancel</button></td>
         </tr>
     `).join("");
+    el.bookingsTableBody.innerHTML = append ? el.bookingsTableBody.innerHTML + rows : rows;
 }
 
 async function cancelBooking(bookingId) {
@@ -5,10 +5,12 @@ PROJECT_ROOT="$(cd "$(dirname "$0")/.." && pwd)"
 PACKAGE_DIR="$PROJECT_ROOT/lambda_pkg"
 ZIP_FILE="$PROJECT_ROOT/lambda_pkg.zip"
 JAR_FILE="$PROJECT_ROOT/target/cab-booking-lambda.jar"
+CDS_ARCHIVE="app-cds.jsa"
+LAMBDA_IMAGE="public.ecr.aws/lambda/java:17"
 
 cd "$PROJECT_ROOT"
 
-echo "[1/4] Building shaded Lambda jar..."
+echo "[1/5] Building shaded Lambda jar..."
 if ! command -v mvn >/dev/null 2>&1; then
   echo "Error: Maven is not installed. Install it first: sudo apt update && sudo apt install -y maven"
   exit 1
@@ -21,22 +23,65 @@ if [[ ! -f "$JAR_FILE" ]]; then
   exit 1
 fi
 
-echo "[2/4] Preparing lambda_pkg directory..."
+# The jar is shipped as-is under lib/ rather than unpacked: the JVM only
+# archives classes loaded from jar files, and Lambda puts lib/*.jar on the
+# classpath in the same order every time, which the archive depends on.
+echo "[2/5] Preparing lambda_pkg directory..."
 rm -rf "$PACKAGE_DIR"
-mkdir -p "$PACKAGE_DIR"
-(
-  cd "$PACKAGE_DIR"
-  jar xf "$JAR_FILE"
-)
+mkdir -p "$PACKAGE_DIR/lib"
+cp "$JAR_FILE" "$PACKAGE_DIR/lib/"
+
+# Training has to run on the exact JVM Lambda uses, so it runs the function in
+# the Lambda base image with its runtime interface emulator, sends a few
+# requests (startup priming is on in there, as on Lambda) and lets the JVM
+# write the archive when the container stops.
+echo "[3/5] Training AppCDS archive..."
+if [[ "${SKIP_APPCDS:-}" == "true" ]]; then
+  echo "SKIP_APPCDS=true, packaging without $CDS_ARCHIVE"
+elif ! command -v docker >/dev/null 2>&1; then
+  echo "Warning: docker not found, packaging without $CDS_ARCHIVE (cold starts load every class from the jar)"
+else
+  CDS_DIR="$(mktemp -d)"
+  chmod 777 "$CDS_DIR"
+  CONTAINER="$(docker run -d --rm -p 127.0.0.1:9000:8080 \
+    -v "$PACKAGE_DIR":/var/task:ro \
+    -v "$CDS_DIR":/tmp/cds \
+    -e JAVA_TOOL_OPTIONS="-XX:ArchiveClassesAtExit=/tmp/cds/$CDS_ARCHIVE" \
+    -e AWS_LAMBDA_FUNCTION_NAME=cab-booking-api \
+    -e QUOTE_SECRET=appcds-training-only \
+    -e STARTUP_PRIMING=true \
+    "$LAMBDA_IMAGE" api.LambdaHandler::handleRequest)"
+  INVOKE_URL="http://127.0.0.1:9000/2015-03-31/functions/function/invocations"
+  for event in \
+    '{"httpMethod":"GET","path":"/health"}' \
+    '{"httpMethod":"OPTIONS","path":"/rides"}' \
+    '{"httpMethod":"GET","path":"/no-such-route"}'; do
+    for attempt in $(seq 1 30); do
+      if curl -sf -o /dev/null -d "$event" "$INVOKE_URL"; then
+        break
+      fi
+      sleep 1
+    done
+  done
+  docker stop --time 30 "$CONTAINER" >/dev/null
+  if [[ -s "$CDS_DIR/$CDS_ARCHIVE" ]]; then
+    cp "$CDS_DIR/$CDS_ARCHIVE" "$PACKAGE_DIR/"
+    echo "Archived $(du -h "$PACKAGE_DIR/$CDS_ARCHIVE" | cut -f1) of classes into $CDS_ARCHIVE"
+  else
+    echo "Warning: training produced no archive, packaging without $CDS_ARCHIVE"
+  fi
+  rm -rf "$CDS_DIR"
+fi
 
-echo "[3/4] Creating deployment manifest..."
+echo "[4/5] Creating deployment manifest..."
 cat > "$PACKAGE_DIR/DEPLOYMENT_INFO.txt" << 'EOF'
 Handler: api.LambdaHandler::handleRequest
 Runtime: java17
-Package: lambda_pkg.zip (classes and dependencies at zip root)
+Package: lambda_pkg.zip (shaded jar in lib/, optional app-cds.jsa at the root)
+JVM options: JAVA_TOOL_OPTIONS=-XX:SharedArchiveFile=/var/task/app-cds.jsa -Xshare:auto
 EOF
 
-echo "[4/4] Creating lambda_pkg.zip..."
+echo "[5/5] Creating lambda_pkg.zip..."
 rm -f "$ZIP_FILE"
 (
   cd "$PACKAGE_DIR"
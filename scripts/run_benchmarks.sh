@@ -0,0 +1,27 @@
+#!/usr/bin/env bash
+set -euo pipefail
+
+# Builds the backend and the JMH module, then runs the benchmarks matching
+# the given pattern (default: the request hot path) and keeps the results as
+# JSON named after the commit, so two versions can be compared side by side.
+
+PROJECT_ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+PATTERN="${1:-Routing|Serialization|RowMapping|Handler}"
+RESULTS_DIR="$PROJECT_ROOT/benchmarks/results"
+VERSION="$(git -C "$PROJECT_ROOT" rev-parse --short HEAD 2>/dev/null || echo local)"
+if [[ -n "$(git -C "$PROJECT_ROOT" status --porcelain --untracked-files=no 2>/dev/null)" ]]; then
+  VERSION="$VERSION-dirty"
+fi
+RESULT_FILE="$RESULTS_DIR/$VERSION.json"
+
+cd "$PROJECT_ROOT"
+
+echo "[1/2] Building backend and benchmarks..."
+mvn -B -q install -DskipTests
+mvn -B -q -f benchmarks/pom.xml package
+
+echo "[2/2] Running '$PATTERN'..."
+mkdir -p "$RESULTS_DIR"
+java -jar benchmarks/target/benchmarks.jar "$PATTERN" -prof gc -rf json -rff "$RESULT_FILE" "${@:2}"
+
+echo "Done. Results: $RESULT_FILE"
@@ -1,9 +1,63 @@
+import api.StandaloneServer;
+import config.Env;
 import db.DBConnection;
+import service.RideRequestService;
+import service.RideService;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
     public static void main(String[] args) throws Exception {
         DBConnection.ensureSchema();
         System.out.println("Cab Booking backend initialized successfully.");
-        System.out.println("Deploy Lambda handler: api.LambdaHandler");
+
+        StandaloneServer server = new StandaloneServer(
+                Env.getInt("SERVER_PORT", 8080),
+                Env.getInt("SERVER_MAX_IN_FLIGHT", 256),
+                Env.getInt("SERVER_SHUTDOWN_GRACE_SECONDS", 10));
+        // On Lambda the same jobs are triggered by the scheduled events in template.yaml.
+        RideRequestService requests = new RideRequestService();
+        RideService rides = new RideService();
+        ScheduledExecutorService matching = startEvery("ride-matching",
+                Env.getInt("RIDE_MATCH_INTERVAL_MS", 10000), requests::runMatching);
+        ScheduledExecutorService expansion = startEvery("schedule-expansion",
+                Env.getInt("RIDE_SCHEDULE_CHECK_INTERVAL_MS", 60000), rides::materializeSchedules);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("Shutting down...");
+            if (matching != null) {
+                matching.shutdownNow();
+            }
+            if (expansion != null) {
+                expansion.shutdownNow();
+            }
+            server.stop();
+            DBConnection.shutdown();
+        }, "shutdown"));
+
+        server.start();
+        System.out.println("Listening on http://localhost:" + server.getPort());
+        System.out.println("For AWS, deploy Lambda handler: api.LambdaHandler");
+    }
+
+    private static ScheduledExecutorService startEvery(String name, int intervalMs, Callable<?> job) {
+        if (intervalMs <= 0) {
+            return null;
+        }
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                job.call();
+            } catch (Exception e) {
+                System.err.println("Background job " + name + " failed: " + e.getMessage());
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        return scheduler;
     }
 }
@@ -0,0 +1,87 @@
+package admission;
+
+import config.Env;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission in front of the request handlers: a token bucket per client and
+ * per API route, then a cap on requests working against the database.
+ * Requests over a rate are throttled (429) with the time until a token is
+ * free; requests that find the database saturated are shed (503). Both are
+ * cheap to refuse, so a flood from one client costs the others nothing but
+ * the refusals. Limits are per container.
+ */
+public final class AdmissionControl {
+
+    private static final int MAX_CLIENTS = 100000;
+    private static final int MAX_ROUTES = 1000;
+
+    private final RateLimiter clients;
+    private final RateLimiter routes;
+    private final ConcurrencyLimiter database;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder clientThrottled = new LongAdder();
+    private final LongAdder routeThrottled = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+
+    public AdmissionControl(RateLimiter clients, RateLimiter routes, ConcurrencyLimiter database) {
+        this.clients = clients;
+        this.routes = routes;
+        this.database = database;
+    }
+
+    public static AdmissionControl fromEnv() {
+        return new AdmissionControl(
+                new RateLimiter(Double.parseDouble(Env.get("ADMISSION_CLIENT_RATE", "20")),
+                        Env.getInt("ADMISSION_CLIENT_BURST", 40), MAX_CLIENTS),
+                new RateLimiter(Double.parseDouble(Env.get("ADMISSION_ROUTE_RATE", "1000")),
+                        Env.getInt("ADMISSION_ROUTE_BURST", 2000), MAX_ROUTES),
+                new ConcurrencyLimiter(
+                        Env.getInt("ADMISSION_MAX_CONCURRENCY", Env.getInt("DB_POOL_MAX_SIZE", 10)),
+                        Env.getInt("ADMISSION_QUEUE_MS", 100)));
+    }
+
+    /**
+     * Returns 0 if both the client (when known) and the route are within
+     * their rates, otherwise the nanoseconds until the request would be.
+     */
+    public long throttle(String clientKey, String routeKey) {
+        long now = System.nanoTime();
+        if (clientKey != null) {
+            long wait = clients.acquire(clientKey, now);
+            if (wait > 0) {
+                clientThrottled.increment();
+                return wait;
+            }
+        }
+        long wait = routes.acquire(routeKey, now);
+        if (wait > 0) {
+            routeThrottled.increment();
+        }
+        return wait;
+    }
+
+    /**
+     * True if the request may go on to the database, in which case the
+     * caller must {@link #exit()} when done; false if it should be shed.
+     */
+    public boolean enter() {
+        if (database.tryAcquire()) {
+            admitted.increment();
+            return true;
+        }
+        shed.increment();
+        return false;
+    }
+
+    public void exit() {
+        database.release();
+    }
+
+    public AdmissionStats stats() {
+        return new AdmissionStats(admitted.sum(), clientThrottled.sum(), routeThrottled.sum(), shed.sum(),
+                database.inFlight(), database.getLimit(), clients.size());
+    }
+}
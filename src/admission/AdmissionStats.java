@@ -0,0 +1,31 @@
+package admission;
+
+public class AdmissionStats {
+
+    private final long admitted;
+    private final long clientThrottled;
+    private final long routeThrottled;
+    private final long shed;
+    private final int inFlight;
+    private final int maxConcurrency;
+    private final int trackedClients;
+
+    public AdmissionStats(long admitted, long clientThrottled, long routeThrottled, long shed,
+                          int inFlight, int maxConcurrency, int trackedClients) {
+        this.admitted = admitted;
+        this.clientThrottled = clientThrottled;
+        this.routeThrottled = routeThrottled;
+        this.shed = shed;
+        this.inFlight = inFlight;
+        this.maxConcurrency = maxConcurrency;
+        this.trackedClients = trackedClients;
+    }
+
+    public long getAdmitted() { return admitted; }
+    public long getClientThrottled() { return clientThrottled; }
+    public long getRouteThrottled() { return routeThrottled; }
+    public long getShed() { return shed; }
+    public int getInFlight() { return inFlight; }
+    public int getMaxConcurrency() { return maxConcurrency; }
+    public int getTrackedClients() { return trackedClients; }
+}
@@ -0,0 +1,52 @@
+package admission;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps how many requests work against the database at once. A request that
+ * cannot get in within {@code maxWaitMs} is turned away instead of joining
+ * the connection pool's queue, where it would hold a thread until the
+ * acquire timeout and push every request behind it past its deadline too.
+ */
+public final class ConcurrencyLimiter {
+
+    private final int limit;
+    private final long maxWaitMs;
+    private final Semaphore permits;
+
+    public ConcurrencyLimiter(int limit, long maxWaitMs) {
+        if (limit <= 0 || maxWaitMs < 0) {
+            throw new IllegalArgumentException("Concurrency limit must be greater than zero");
+        }
+        this.limit = limit;
+        this.maxWaitMs = maxWaitMs;
+        this.permits = new Semaphore(limit);
+    }
+
+    /**
+     * True if the caller may proceed, in which case it must call
+     * {@link #release()} when done.
+     */
+    public boolean tryAcquire() {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        try {
+            return maxWaitMs > 0 && permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int getLimit() { return limit; }
+
+    public int inFlight() {
+        return limit - permits.availablePermits();
+    }
+}
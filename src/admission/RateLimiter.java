@@ -0,0 +1,91 @@
+package admission;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets per key, {@code ratePerSecond} refill and {@code burst}
+ * capacity. Each bucket is a single {@link AtomicLong} holding the time at
+ * which it would be full again (the GCRA form of a token bucket), so taking a
+ * token is one CAS and a refused caller learns exactly how long to wait.
+ * <p>
+ * Buckets live in a {@link ConcurrentHashMap}, whose striped bins keep
+ * lookups lock-free. A bucket that has refilled completely is
+ * indistinguishable from a missing one, so full buckets are swept out once
+ * more than {@code maxKeys} exist; if the map is still full after that, new
+ * keys share one overflow bucket rather than growing it further.
+ */
+public final class RateLimiter {
+
+    private static final String OVERFLOW_KEY = "";
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final int maxKeys;
+    private final long origin = System.nanoTime();
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    public RateLimiter(double ratePerSecond, int burst, int maxKeys) {
+        if (!(ratePerSecond > 0) || burst <= 0 || maxKeys <= 0) {
+            throw new IllegalArgumentException("Rate, burst and key limit must be greater than zero");
+        }
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond));
+        this.toleranceNanos = intervalNanos * (burst - 1);
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Takes a token from {@code key}'s bucket. Returns 0 when one was
+     * available, otherwise the nanoseconds until one will be; nothing is
+     * taken in that case.
+     */
+    public long acquire(String key, long nowNanos) {
+        long now = nowNanos - origin;
+        AtomicLong bucket = bucket(key, now);
+        while (true) {
+            long full = bucket.get();
+            long start = Math.max(full, now);
+            long wait = start - toleranceNanos - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(full, start + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    private AtomicLong bucket(String key, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxKeys) {
+            sweep(now);
+            if (buckets.size() >= maxKeys) {
+                return buckets.computeIfAbsent(OVERFLOW_KEY, ignored -> new AtomicLong());
+            }
+        }
+        return buckets.computeIfAbsent(key, ignored -> new AtomicLong());
+    }
+
+    // A concurrent acquire on a bucket being removed may go uncounted; that
+    // lets at most one extra request through.
+    private void sweep(long now) {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            buckets.values().removeIf(bucket -> bucket.get() <= now);
+        } finally {
+            sweeping.set(false);
+        }
+    }
+}
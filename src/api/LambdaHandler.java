@@ -4,32 +4,148 @@ import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import admission.AdmissionControl;
+import browse.RideSort;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
+import config.Env;
 import db.DBConnection;
+import db.SlowQueryLog;
+import db.TransactionRetry;
+import json.BookingJson;
+import json.Json;
+import json.UserJson;
+import metrics.EmfReporter;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+import metrics.PrometheusFormat;
+import model.BatchBookingResult;
 import model.Booking;
+import model.GeoPoint;
 import model.Ride;
+import model.RideRequest;
+import model.RideSchedule;
+import model.PageRequest;
+import model.Quote;
 import model.User;
 import service.BookingService;
+import service.DashboardService;
+import service.LocationIndex;
+import service.Locations;
+import service.PricingService;
+import service.RideRequestService;
+import service.RideScheduleService;
+import service.RideSearchCache;
 import service.RideService;
 import service.UserService;
+import util.Lazy;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class LambdaHandler implements RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> {
 
     private static final Gson GSON = new Gson();
-
-    private final UserService userService = new UserService();
-    private final RideService rideService = new RideService();
-    private final BookingService bookingService = new BookingService();
+    private static final int DEFAULT_SUGGESTIONS = 10;
+    private static final int MAX_SUGGESTIONS = 25;
+    private static final double DEFAULT_RADIUS_KM = 2;
+    private static final double MAX_RADIUS_KM = 50;
+    private static final int DEFAULT_NEARBY = 20;
+    private static final int MAX_NEARBY = 50;
+    private static final int DEFAULT_MATCHES = 20;
+    private static final int MAX_MATCHES = 50;
+    private static final int MAX_MATCH_SEATS = 50;
+    private static final int DEFAULT_BROWSE = 20;
+    private static final int MAX_BROWSE = 100;
+    private static final int DEFAULT_CHANGES = 100;
+    private static final int MAX_CHANGES = 500;
+    private static final int DEFAULT_SLOW_QUERIES = 20;
+    private static final int MAX_SLOW_QUERIES = 100;
+
+    private static final AdmissionControl ADMISSION = AdmissionControl.fromEnv();
+    private static final LatencyHistogram SCHEMA_CHECK = Metrics.phase("schema_check");
+    private static final LatencyHistogram SERIALIZE = Metrics.phase("serialize");
+
+    private static final boolean ON_LAMBDA = !Env.get("AWS_LAMBDA_FUNCTION_NAME", "").isBlank();
+
+    // On Lambda, metrics leave as EMF log lines; elsewhere they are scraped from /metrics.
+    private static final EmfReporter EMF = !ON_LAMBDA ? null
+            : new EmfReporter(Env.get("METRICS_NAMESPACE", "CabBooking"),
+                    Env.getInt("METRICS_EMF_INTERVAL_MS", 60000), System.out);
+
+    // Priming is on by default only on Lambda, where init runs at full CPU and is not billed to a request.
+    private static final boolean PRIMING = Boolean.parseBoolean(
+            Env.get("STARTUP_PRIMING", String.valueOf(ON_LAMBDA)));
+    private static final AtomicBoolean PRIMED = new AtomicBoolean();
+
+    // /admin/* exposes query parameters, plans and internals. With ADMIN_TOKEN set it needs a matching
+    // X-Admin-Token header; without one it is only served off Lambda, and only to loopback callers.
+    private static final byte[] ADMIN_TOKEN = Env.get("ADMIN_TOKEN", "").getBytes(StandardCharsets.UTF_8);
+
+    // Scheduled events name their job in "resource" and carry no request context. API Gateway
+    // and the standalone server always set a context, so no HTTP client can start a job.
+    private static final String SCHEDULED_JOB = "scheduled:";
+
+    // Built on first use, so a cold start only pays for the services its request needs.
+    private final Lazy<UserService> userService = new Lazy<>(UserService::new);
+    private final Lazy<RideService> rideService = new Lazy<>(RideService::new);
+    private final Lazy<BookingService> bookingService = new Lazy<>(BookingService::new);
+    private final Lazy<RideRequestService> requestService = new Lazy<>(RideRequestService::new);
+    private final Lazy<DashboardService> dashboardService = new Lazy<>(DashboardService::new);
+    private final Lazy<PricingService> pricingService = new Lazy<>(PricingService::new);
+
+    private final Router router = new Router()
+            .add("POST", "/users/register", (request, params) -> registerUser(request))
+            .add("GET", "/users/login", (request, params) -> loginUser(request))
+            .add("GET", "/users/{userId}/dashboard", (request, params) -> dashboard(request, params.getInt("userId")))
+            .add("POST", "/rides", (request, params) -> publishRide(request))
+            .add("POST", "/rides/batch", (request, params) -> publishRides(request))
+            .add("POST", "/rides/schedules", (request, params) -> createSchedule(request))
+            .add("GET", "/rides", (request, params) -> listRides(request))
+            .add("GET", "/rides/changes", (request, params) -> rideChanges(request))
+            .add("GET", "/rides/nearby", (request, params) -> nearbyRides(request))
+            .add("GET", "/rides/match", (request, params) -> matchRides(request))
+            .add("GET", "/locations", (request, params) -> suggestLocations(request))
+            .add("DELETE", "/rides/{rideId}", (request, params) -> cancelRide(request, params.getInt("rideId")))
+            .add("POST", "/ride-requests", (request, params) -> createRideRequest(request))
+            .add("GET", "/ride-requests/{requestId}", (request, params) -> getRideRequest(params.getInt("requestId")))
+            .add("DELETE", "/ride-requests/{requestId}",
+                    (request, params) -> cancelRideRequest(request, params.getInt("requestId")))
+            .add("POST", "/quotes", (request, params) -> createQuote(request))
+            .add("POST", "/bookings", (request, params) -> createBooking(request))
+            .add("POST", "/bookings/batch", (request, params) -> createBookings(request))
+            .add("GET", "/bookings/{userId}", (request, params) -> userBookings(request, params.getInt("userId")))
+            .add("DELETE", "/bookings/{bookingId}", (request, params) -> cancelBooking(request, params.getInt("bookingId")));
+
+    public LambdaHandler() {
+        // Each container would otherwise sign quotes with its own random key and reject everyone else's.
+        if (ON_LAMBDA && Env.get("QUOTE_SECRET", "").isBlank()) {
+            throw new IllegalStateException("QUOTE_SECRET must be set on Lambda");
+        }
+        if (PRIMING && PRIMED.compareAndSet(false, true)) {
+            prime();
+        }
+    }
 
     @Override
     public APIGatewayProxyResponseEvent handleRequest(APIGatewayProxyRequestEvent request, Context context) {
         try {
+            if (request.getRequestContext() == null && request.getResource() != null
+                    && request.getResource().startsWith(SCHEDULED_JOB)) {
+                return scheduledJob(request.getResource().substring(SCHEDULED_JOB.length()));
+            }
             String method = request.getHttpMethod() == null ? "" : request.getHttpMethod().toUpperCase();
             String path = normalizePath(request);
 
@@ -39,42 +155,149 @@ public class LambdaHandler implements RequestHandler<APIGatewayProxyRequestEvent
             if ("GET".equals(method) && "/health".equals(path)) {
                 return jsonResponse(200, Map.of("status", "UP"));
             }
-
-            DBConnection.ensureSchema();
-
-            if ("POST".equals(method) && "/users/register".equals(path)) {
-                return registerUser(request);
+            if ("GET".equals(method) && "/metrics".equals(path) && EMF == null) {
+                APIGatewayProxyResponseEvent response = rawJsonResponse(200, PrometheusFormat.render());
+                response.getHeaders().put("Content-Type", PrometheusFormat.CONTENT_TYPE);
+                return response;
+            }
+            if (path.startsWith("/admin/") && !adminAllowed(request)) {
+                return errorResponse(403, "Admin endpoints need a valid X-Admin-Token header");
             }
-            if ("GET".equals(method) && "/users/login".equals(path)) {
-                return loginUser(request);
+            if ("GET".equals(method) && "/admin/slow-queries".equals(path)) {
+                return slowQueries(request);
             }
-            if ("POST".equals(method) && "/rides".equals(path)) {
-                return publishRide(request);
+            if ("GET".equals(method) && "/admin/stats".equals(path)) {
+                return jsonResponse(200, Map.of(
+                        "pool", DBConnection.poolStats(),
+                        "rideSearchCache", RideSearchCache.getInstance().stats(),
+                        "pricing", Map.of("trackedRoutes", PricingService.trackedRoutes()),
+                        "admission", ADMISSION.stats(),
+                        "transactions", Map.of(
+                                "retries", TransactionRetry.retries(),
+                                "exhausted", TransactionRetry.exhausted()),
+                        "routes", router.stats()));
             }
-            if ("GET".equals(method) && "/rides".equals(path)) {
-                return listRides(request);
+
+            Router.Match match = router.match(method, path);
+            if (match == null) {
+                return errorResponse(404, "Route not found");
             }
-            if ("DELETE".equals(method) && path.startsWith("/rides/")) {
-                return cancelRide(request, path);
+
+            long start = System.nanoTime();
+            APIGatewayProxyResponseEvent response = dispatch(request, match);
+            match.record(System.nanoTime() - start, response.getStatusCode());
+            if (EMF != null) {
+                EMF.reportIfDue();
             }
-            if ("POST".equals(method) && "/bookings".equals(path)) {
-                return createBooking(request);
+            return response;
+        } catch (Exception e) {
+            return failure(e);
+        }
+    }
+
+    private APIGatewayProxyResponseEvent dispatch(APIGatewayProxyRequestEvent request, Router.Match match) {
+        try {
+            long wait = ADMISSION.throttle(clientKey(request, match), match.getRoute().getKey());
+            if (wait > 0) {
+                return retryResponse(429, "Too many requests, please slow down",
+                        TimeUnit.NANOSECONDS.toSeconds(wait - 1) + 1);
             }
-            if ("GET".equals(method) && path.startsWith("/bookings/")) {
-                return userBookings(path);
+            if (!ADMISSION.enter()) {
+                return retryResponse(503, "Server busy, please retry", 1);
             }
-            if ("DELETE".equals(method) && path.startsWith("/bookings/")) {
-                return cancelBooking(request, path);
+            try {
+                long start = System.nanoTime();
+                DBConnection.ensureSchema();
+                SCHEMA_CHECK.recordSince(start);
+                return match.invoke(request);
+            } finally {
+                ADMISSION.exit();
             }
+        } catch (Exception e) {
+            return failure(e);
+        }
+    }
 
-            return errorResponse(404, "Route not found");
-        } catch (IllegalArgumentException e) {
+    /**
+     * Loads and links what the first request would otherwise pay for: the
+     * services, routing, Gson's reflective adapters for every request body,
+     * the response writers and the JDBC driver. The database is only touched when
+     * {@code PRIME_DATABASE} is set, since a schema check and a connection
+     * from init would outlive the container's first idle timeout anyway.
+     */
+    private void prime() {
+        long start = System.nanoTime();
+        try {
+            userService.get();
+            rideService.get();
+            bookingService.get();
+            requestService.get();
+            dashboardService.get();
+            pricingService.get();
+
+            router.match("GET", "/rides");
+            router.match("GET", "/users/1/dashboard");
+            router.match("POST", "/bookings");
+            for (Class<?> type : List.of(RegisterRequest.class, PublishRideRequest.class, PublishRidesRequest.class,
+                    ScheduleRequest.class, RideRequestBody.class, CreateBookingRequest.class, BatchBookingRequest.class)) {
+                GSON.fromJson("{}", type);
+            }
+            GSON.toJson(Map.of("items", List.of(1), "ok", true));
+            rawJsonResponse(200, Json.write(out -> UserJson.write(out, new User(1, "", ""))));
+            normalizePath(new APIGatewayProxyRequestEvent().withPath("/health"));
+
+            DBConnection.loadDriver();
+            if (Boolean.parseBoolean(Env.get("PRIME_DATABASE", "false"))) {
+                DBConnection.prime();
+                LocationIndex.getInstance().load();
+            }
+            System.out.println("Startup priming took "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        } catch (Exception e) {
+            System.err.println("Startup priming failed: " + e.getMessage());
+        }
+    }
+
+    private APIGatewayProxyResponseEvent failure(Exception e) {
+        if (e instanceof IllegalArgumentException) {
             return errorResponse(400, e.getMessage());
-        } catch (SQLException e) {
+        }
+        if (e instanceof SQLTransientException) {
+            return retryResponse(503, "Database busy, please retry: " + e.getMessage(), 1);
+        }
+        if (e instanceof SQLException) {
             return errorResponse(500, "Database error: " + e.getMessage());
-        } catch (Exception e) {
-            return errorResponse(500, "Unexpected error: " + e.getMessage());
         }
+        return errorResponse(500, "Unexpected error: " + e.getMessage());
+    }
+
+    // Timer jobs run straight from the scheduled events in template.yaml, never through the router.
+    private APIGatewayProxyResponseEvent scheduledJob(String job) throws SQLException {
+        DBConnection.ensureSchema();
+        switch (job) {
+            case "ride-matching":
+                return jsonResponse(200, requestService.get().runMatching());
+            case "schedule-expansion":
+                return jsonResponse(200, Map.of("ridesInserted", rideService.get().materializeSchedules()));
+            default:
+                return errorResponse(404, "Unknown scheduled job: " + job);
+        }
+    }
+
+    private boolean adminAllowed(APIGatewayProxyRequestEvent request) {
+        if (ADMIN_TOKEN.length == 0) {
+            return !ON_LAMBDA && isLoopback(sourceIp(request));
+        }
+        String token = header(request, "X-Admin-Token");
+        return token != null && MessageDigest.isEqual(ADMIN_TOKEN, token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private APIGatewayProxyResponseEvent slowQueries(APIGatewayProxyRequestEvent request) {
+        int limit = parseBounded(safeQueryParams(request).get("limit"), "limit", DEFAULT_SLOW_QUERIES, MAX_SLOW_QUERIES);
+        return jsonResponse(200, Map.of(
+                "enabled", SlowQueryLog.isEnabled(),
+                "thresholdMs", SlowQueryLog.thresholdMs(),
+                "items", SlowQueryLog.slowest(limit)));
     }
 
     private APIGatewayProxyResponseEvent registerUser(APIGatewayProxyRequestEvent request) throws SQLException {
@@ -83,13 +306,13 @@ public class LambdaHandler implements RequestHandler<APIGatewayProxyRequestEvent
             throw new IllegalArgumentException("name and email are required");
         }
 
-        User existing = userService.getByEmail(body.email.trim());
+        User existing = userService.get().getByEmail(body.email.trim());
         if (existing != null) {
-            return jsonResponse(200, existing);
+            return rawJsonResponse(200, Json.write(out -> UserJson.write(out, existing)));
         }
 
-        int userId = userService.register(body.name.trim(), body.email.trim());
-        return jsonResponse(201, Map.of("id", userId, "name", body.name.trim(), "email", body.email.trim()));
+        User created = new User(userService.get().register(body.name.trim(), body.email.trim()), body.name.trim(), body.email.trim());
+        return rawJsonResponse(201, Json.write(out -> UserJson.write(out, created)));
     }
 
     private APIGatewayProxyResponseEvent loginUser(APIGatewayProxyRequestEvent request) throws SQLException {
@@ -99,56 +322,264 @@ public class LambdaHandler implements RequestHandler<APIGatewayProxyRequestEvent
             throw new IllegalArgumentException("email query parameter is required");
         }
 
-        User user = userService.getByEmail(email.trim());
+        User user = userService.get().getByEmail(email.trim());
         if (user == null) {
             return errorResponse(404, "User not found");
         }
-        return jsonResponse(200, user);
+        return rawJsonResponse(200, Json.write(out -> UserJson.write(out, user)));
+    }
+
+    private APIGatewayProxyResponseEvent dashboard(APIGatewayProxyRequestEvent request, int userId) throws SQLException {
+        Map<String, String> query = safeQueryParams(request);
+        String dashboard = dashboardService.get().dashboard(userId, PageRequest.of(null, query.get("limit")));
+        if (dashboard == null) {
+            return errorResponse(404, "User not found");
+        }
+        return rawJsonResponse(200, dashboard);
     }
 
     private APIGatewayProxyResponseEvent publishRide(APIGatewayProxyRequestEvent request) throws SQLException {
         PublishRideRequest body = parseBody(request, PublishRideRequest.class);
-        if (body.ownerId <= 0 || body.source == null || body.destination == null || body.seats <= 0 || body.farePerSeat <= 0) {
-            throw new IllegalArgumentException("ownerId, source, destination, seats, farePerSeat are required");
-        }
+        validateRide(body);
 
-        int rideId = rideService.publish(
+        int rideId = rideService.get().publish(
                 body.ownerId,
-                body.source.trim(),
-                body.destination.trim(),
+                Locations.clean(body.source),
+                Locations.clean(body.destination),
                 body.seats,
-                body.farePerSeat
+                body.farePerSeat,
+                blankToNull(body.departureAt),
+                GeoPoint.of(body.pickupLat, body.pickupLon, "pickupLat", "pickupLon"),
+                GeoPoint.of(body.dropLat, body.dropLon, "dropLat", "dropLon"),
+                waypoints(body.stops)
         );
 
         return jsonResponse(201, Map.of("id", rideId));
     }
 
+    private APIGatewayProxyResponseEvent publishRides(APIGatewayProxyRequestEvent request) throws SQLException {
+        PublishRidesRequest body = parseBody(request, PublishRidesRequest.class);
+        List<Ride> rides = new ArrayList<>();
+        if (body.rides != null) {
+            for (PublishRideRequest item : body.rides) {
+                validateRide(item);
+                rides.add(Ride.toPublish(item.ownerId, Locations.clean(item.source), Locations.clean(item.destination),
+                        item.seats, item.farePerSeat, blankToNull(item.departureAt),
+                        GeoPoint.of(item.pickupLat, item.pickupLon, "pickupLat", "pickupLon"),
+                        GeoPoint.of(item.dropLat, item.dropLon, "dropLat", "dropLon"),
+                        waypoints(item.stops)));
+            }
+        }
+
+        int[] rideIds = rideService.get().publishBatch(rides);
+        return jsonResponse(201, Map.of("ids", rideIds));
+    }
+
+    private APIGatewayProxyResponseEvent createSchedule(APIGatewayProxyRequestEvent request) throws SQLException {
+        ScheduleRequest body = parseBody(request, ScheduleRequest.class);
+        if (body.ownerId <= 0 || body.source == null || body.destination == null || body.seats <= 0 || body.farePerSeat <= 0
+                || body.daysOfWeek == null || body.departureTime == null || body.startDate == null) {
+            throw new IllegalArgumentException(
+                    "ownerId, source, destination, seats, farePerSeat, daysOfWeek, departureTime, startDate are required");
+        }
+
+        int days = 0;
+        for (String day : body.daysOfWeek) {
+            days |= RideScheduleService.dayMask(parseDayOfWeek(day));
+        }
+
+        try {
+            RideSchedule schedule = new RideSchedule(
+                    body.ownerId,
+                    Locations.clean(body.source),
+                    Locations.clean(body.destination),
+                    body.seats,
+                    body.farePerSeat,
+                    days,
+                    LocalTime.parse(body.departureTime.trim()),
+                    LocalDate.parse(body.startDate.trim()),
+                    blankToNull(body.endDate) == null ? null : LocalDate.parse(body.endDate.trim())
+            );
+            return jsonResponse(201, Map.of("id", rideService.get().createSchedule(schedule)));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("departureTime must look like 08:30 and dates like 2026-10-19");
+        }
+    }
+
+    private List<String> waypoints(List<String> stops) {
+        List<String> waypoints = new ArrayList<>();
+        if (stops != null) {
+            for (String stop : stops) {
+                waypoints.add(stop == null ? "" : Locations.clean(stop));
+            }
+        }
+        return waypoints;
+    }
+
+    private void validateRide(PublishRideRequest body) {
+        if (body == null || body.ownerId <= 0 || body.source == null || body.destination == null
+                || body.seats <= 0 || body.farePerSeat <= 0) {
+            throw new IllegalArgumentException("ownerId, source, destination, seats, farePerSeat are required");
+        }
+    }
+
+    private DayOfWeek parseDayOfWeek(String day) {
+        String token = day == null ? "" : day.trim().toUpperCase();
+        for (DayOfWeek candidate : DayOfWeek.values()) {
+            if (token.length() >= 3 && candidate.name().startsWith(token)) {
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException("Unknown day of week: " + day);
+    }
+
+    private String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
     private APIGatewayProxyResponseEvent listRides(APIGatewayProxyRequestEvent request) throws SQLException {
         Map<String, String> query = safeQueryParams(request);
         String source = query.get("source");
         String destination = query.get("destination");
 
-        List<Ride> rides;
-        if (source != null && !source.isBlank() && destination != null && !destination.isBlank()) {
-            rides = rideService.search(source.trim(), destination.trim());
+        boolean byRoute = source != null && !source.isBlank() && destination != null && !destination.isBlank();
+        if (query.containsKey("minSeats") || query.containsKey("maxFare") || query.containsKey("sort")) {
+            return browseRides(query, byRoute ? source.trim() : null, byRoute ? destination.trim() : null);
+        }
+
+        PageRequest page = PageRequest.of(query.get("cursor"), query.get("limit"));
+
+        String etag = byRoute
+                ? rideService.get().listingEtag(source.trim(), destination.trim(), page)
+                : rideService.get().listingEtag(null, null, page);
+        if (notModified(request, etag)) {
+            return taggedResponse(304, etag, null);
+        }
+
+        String rides;
+        if (byRoute) {
+            rides = rideService.get().search(source.trim(), destination.trim(), page);
         } else {
-            rides = rideService.viewAll();
+            rides = rideService.get().viewAll(page);
+        }
+
+        return taggedResponse(200, etag, rides);
+    }
+
+    // Filtered and sorted browsing is top-K only: there is no cursor to page on.
+    private APIGatewayProxyResponseEvent browseRides(Map<String, String> query, String source, String destination)
+            throws SQLException {
+        if (query.get("cursor") != null) {
+            throw new IllegalArgumentException("cursor cannot be combined with minSeats, maxFare or sort");
+        }
+        int minSeats = parseBounded(query.get("minSeats"), "minSeats", 1, MAX_MATCH_SEATS);
+        int maxFare = parseBounded(query.get("maxFare"), "maxFare", Integer.MAX_VALUE, Integer.MAX_VALUE);
+        RideSort sort = RideSort.parse(query.get("sort"));
+        int limit = parseBounded(query.get("limit"), "limit", DEFAULT_BROWSE, MAX_BROWSE);
+        return rawJsonResponse(200, rideService.get().browse(source, destination, minSeats, maxFare, sort, limit));
+    }
+
+    private APIGatewayProxyResponseEvent rideChanges(APIGatewayProxyRequestEvent request) throws SQLException {
+        Map<String, String> query = safeQueryParams(request);
+        Long since = null;
+        String token = query.get("since");
+        if (token != null && !token.isBlank()) {
+            try {
+                since = Long.parseLong(token.trim());
+            } catch (NumberFormatException e) {
+                since = -1L;
+            }
+            if (since < 0) {
+                throw new IllegalArgumentException("since must be a non-negative sequence number");
+            }
+        }
+
+        int limit = parseBounded(query.get("limit"), "limit", DEFAULT_CHANGES, MAX_CHANGES);
+        String changes = rideService.get().changes(since, limit);
+        if (changes == null) {
+            return errorResponse(410, "since is older than the retained change log; reload /rides");
+        }
+        return rawJsonResponse(200, changes);
+    }
+
+    private APIGatewayProxyResponseEvent suggestLocations(APIGatewayProxyRequestEvent request) throws SQLException {
+        Map<String, String> query = safeQueryParams(request);
+        String prefix = query.get("prefix");
+        if (prefix == null || prefix.isBlank()) {
+            throw new IllegalArgumentException("prefix query parameter is required");
+        }
+
+        int limit = parseBounded(query.get("limit"), "limit", DEFAULT_SUGGESTIONS, MAX_SUGGESTIONS);
+        return jsonResponse(200, Map.of("items", rideService.get().suggestLocations(prefix, limit)));
+    }
+
+    private APIGatewayProxyResponseEvent nearbyRides(APIGatewayProxyRequestEvent request) throws SQLException {
+        Map<String, String> query = safeQueryParams(request);
+        GeoPoint pickup = GeoPoint.of(parseDouble(query, "lat"), parseDouble(query, "lon"), "lat", "lon");
+        if (pickup == null) {
+            throw new IllegalArgumentException("lat and lon query parameters are required");
+        }
+        GeoPoint drop = GeoPoint.of(parseDouble(query, "destLat"), parseDouble(query, "destLon"), "destLat", "destLon");
+
+        Double radius = parseDouble(query, "radiusKm");
+        double radiusKm = radius == null ? DEFAULT_RADIUS_KM : radius;
+        if (!(radiusKm > 0 && radiusKm <= MAX_RADIUS_KM)) {
+            throw new IllegalArgumentException("radiusKm must be greater than 0 and at most " + (int) MAX_RADIUS_KM);
+        }
+
+        int limit = parseBounded(query.get("limit"), "limit", DEFAULT_NEARBY, MAX_NEARBY);
+        return rawJsonResponse(200, rideService.get().nearby(pickup, drop, radiusKm, limit));
+    }
+
+    private APIGatewayProxyResponseEvent matchRides(APIGatewayProxyRequestEvent request) throws SQLException {
+        Map<String, String> query = safeQueryParams(request);
+        String from = query.get("from");
+        String to = query.get("to");
+        if (from == null || from.isBlank() || to == null || to.isBlank()) {
+            throw new IllegalArgumentException("from and to query parameters are required");
         }
 
-        return jsonResponse(200, rides);
+        int seats = parseBounded(query.get("seats"), "seats", 1, MAX_MATCH_SEATS);
+        int limit = parseBounded(query.get("limit"), "limit", DEFAULT_MATCHES, MAX_MATCHES);
+        return rawJsonResponse(200, rideService.get().match(from, to, seats, limit));
+    }
+
+    private int parseBounded(String token, String name, int defaultValue, int maxValue) {
+        if (token == null || token.isBlank()) {
+            return defaultValue;
+        }
+        int value;
+        try {
+            value = Integer.parseInt(token.trim());
+        } catch (NumberFormatException e) {
+            value = 0;
+        }
+        if (value <= 0 || value > maxValue) {
+            throw new IllegalArgumentException(name + " must be between 1 and " + maxValue);
+        }
+        return value;
     }
 
-    private APIGatewayProxyResponseEvent cancelRide(APIGatewayProxyRequestEvent request, String path) throws SQLException {
-        String rideIdToken = path.substring("/rides/".length());
-        int rideId = Integer.parseInt(rideIdToken);
+    private Double parseDouble(Map<String, String> query, String name) {
+        String token = query.get(name);
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(token.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a number");
+        }
+    }
 
+    private APIGatewayProxyResponseEvent cancelRide(APIGatewayProxyRequestEvent request, int rideId) throws SQLException {
         String ownerIdToken = safeQueryParams(request).get("ownerId");
         if (ownerIdToken == null) {
             throw new IllegalArgumentException("ownerId query parameter is required");
         }
 
         int ownerId = Integer.parseInt(ownerIdToken);
-        boolean cancelled = rideService.cancel(rideId, ownerId);
+        boolean cancelled = rideService.get().cancel(rideId, ownerId);
         if (!cancelled) {
             return errorResponse(404, "Ride not found or not owned by user");
         }
@@ -156,34 +587,109 @@ public class LambdaHandler implements RequestHandler<APIGatewayProxyRequestEvent
         return jsonResponse(200, Map.of("cancelled", true));
     }
 
+    private APIGatewayProxyResponseEvent createRideRequest(APIGatewayProxyRequestEvent request) throws SQLException {
+        RideRequestBody body = parseBody(request, RideRequestBody.class);
+        if (body.userId <= 0 || body.source == null || body.destination == null
+                || body.seats <= 0 || body.maxFarePerSeat <= 0) {
+            throw new IllegalArgumentException("userId, source, destination, seats, maxFarePerSeat are required");
+        }
+
+        int requestId = requestService.get().create(new RideRequest(
+                body.userId,
+                Locations.clean(body.source),
+                Locations.clean(body.destination),
+                body.seats,
+                body.maxFarePerSeat,
+                blankToNull(body.earliestDeparture),
+                blankToNull(body.latestDeparture)
+        ));
+        return jsonResponse(201, Map.of("id", requestId));
+    }
+
+    private APIGatewayProxyResponseEvent getRideRequest(int requestId) throws SQLException {
+        RideRequest rideRequest = requestService.get().get(requestId);
+        if (rideRequest == null) {
+            return errorResponse(404, "Ride request not found");
+        }
+        return jsonResponse(200, rideRequest);
+    }
+
+    private APIGatewayProxyResponseEvent cancelRideRequest(APIGatewayProxyRequestEvent request, int requestId)
+            throws SQLException {
+        String userIdToken = safeQueryParams(request).get("userId");
+        if (userIdToken == null) {
+            throw new IllegalArgumentException("userId query parameter is required");
+        }
+
+        int userId = Integer.parseInt(userIdToken);
+        if (!requestService.get().cancel(requestId, userId)) {
+            return errorResponse(404, "Ride request not found, not owned by user or no longer pending");
+        }
+        return jsonResponse(200, Map.of("cancelled", true));
+    }
+
     private APIGatewayProxyResponseEvent createBooking(APIGatewayProxyRequestEvent request) throws SQLException {
         CreateBookingRequest body = parseBody(request, CreateBookingRequest.class);
         if (body.userId <= 0 || body.rideId <= 0 || body.seats <= 0) {
             throw new IllegalArgumentException("userId, rideId and seats are required");
         }
 
-        Booking booking = bookingService.bookRide(body.rideId, body.userId, body.seats);
-        return jsonResponse(201, booking);
+        Booking booking = bookingService.get().bookRide(body.rideId, body.userId, body.seats, body.fromStop, body.toStop,
+                blankToNull(body.quoteToken));
+        return rawJsonResponse(201, Json.write(out -> BookingJson.write(out, booking)));
     }
 
-    private APIGatewayProxyResponseEvent userBookings(String path) throws SQLException {
-        String token = path.substring("/bookings/".length());
-        int userId = Integer.parseInt(token);
-        List<Booking> bookings = bookingService.showMyBookings(userId);
-        return jsonResponse(200, bookings);
+    private APIGatewayProxyResponseEvent createQuote(APIGatewayProxyRequestEvent request) throws SQLException {
+        CreateBookingRequest body = parseBody(request, CreateBookingRequest.class);
+        if (body.userId <= 0 || body.rideId <= 0 || body.seats <= 0) {
+            throw new IllegalArgumentException("userId, rideId and seats are required");
+        }
+
+        Quote quote = pricingService.get().quote(body.rideId, body.userId, body.seats, body.fromStop, body.toStop);
+        return jsonResponse(201, quote);
+    }
+
+    private APIGatewayProxyResponseEvent createBookings(APIGatewayProxyRequestEvent request) throws SQLException {
+        BatchBookingRequest body = parseBody(request, BatchBookingRequest.class);
+        String mode = body.mode == null || body.mode.isBlank()
+                ? BookingService.MODE_ALL_OR_NOTHING : body.mode.trim().toUpperCase();
+        if (!BookingService.MODE_ALL_OR_NOTHING.equals(mode) && !BookingService.MODE_BEST_EFFORT.equals(mode)) {
+            throw new IllegalArgumentException("mode must be ALL_OR_NOTHING or BEST_EFFORT");
+        }
+
+        List<Booking> items = new ArrayList<>();
+        if (body.bookings != null) {
+            for (CreateBookingRequest item : body.bookings) {
+                if (item == null) {
+                    throw new IllegalArgumentException("Every booking needs rideId, userId and seats");
+                }
+                items.add(new Booking(item.rideId, item.userId, item.seats, 0));
+            }
+        }
+
+        BatchBookingResult result = bookingService.get().bookBatch(items, BookingService.MODE_ALL_OR_NOTHING.equals(mode));
+        int status = result.isCommitted() ? 201 : 409;
+        return jsonResponse(status, result);
     }
 
-    private APIGatewayProxyResponseEvent cancelBooking(APIGatewayProxyRequestEvent request, String path) throws SQLException {
-        String token = path.substring("/bookings/".length());
-        int bookingId = Integer.parseInt(token);
+    private APIGatewayProxyResponseEvent userBookings(APIGatewayProxyRequestEvent request, int userId) throws SQLException {
+        Map<String, String> query = safeQueryParams(request);
+        PageRequest page = PageRequest.of(query.get("cursor"), query.get("limit"));
+        String etag = bookingService.get().historyEtag(userId, page);
+        if (notModified(request, etag)) {
+            return taggedResponse(304, etag, null);
+        }
+        return taggedResponse(200, etag, bookingService.get().showMyBookings(userId, page));
+    }
 
+    private APIGatewayProxyResponseEvent cancelBooking(APIGatewayProxyRequestEvent request, int bookingId) throws SQLException {
         String userIdToken = safeQueryParams(request).get("userId");
         if (userIdToken == null) {
             throw new IllegalArgumentException("userId query parameter is required");
         }
 
         int userId = Integer.parseInt(userIdToken);
-        bookingService.cancelBooking(bookingId, userId);
+        bookingService.get().cancelBooking(bookingId, userId);
         return jsonResponse(200, Map.of("cancelled", true));
     }
 
@@ -214,16 +720,92 @@ public class LambdaHandler implements RequestHandler<APIGatewayProxyRequestEvent
     }
 
     private APIGatewayProxyResponseEvent jsonResponse(int status, Object body) {
+        long start = System.nanoTime();
+        String json = GSON.toJson(body);
+        SERIALIZE.recordSince(start);
+        return rawJsonResponse(status, json);
+    }
+
+    private APIGatewayProxyResponseEvent rawJsonResponse(int status, String json) {
         return new APIGatewayProxyResponseEvent()
                 .withStatusCode(status)
                 .withHeaders(defaultHeaders())
-                .withBody(GSON.toJson(body));
+                .withBody(json);
+    }
+
+    // no-cache makes browsers revalidate with If-None-Match instead of reusing the page blindly.
+    private APIGatewayProxyResponseEvent taggedResponse(int status, String etag, String json) {
+        APIGatewayProxyResponseEvent response = rawJsonResponse(status, json);
+        response.getHeaders().put("ETag", etag);
+        response.getHeaders().put("Cache-Control", "no-cache");
+        return response;
+    }
+
+    private boolean notModified(APIGatewayProxyRequestEvent request, String etag) {
+        String ifNoneMatch = header(request, "If-None-Match");
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag) || tag.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // API Gateway does not normalize header name case.
+    private String header(APIGatewayProxyRequestEvent request, String name) {
+        if (request.getHeaders() == null) {
+            return null;
+        }
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+        return null;
     }
 
     private APIGatewayProxyResponseEvent errorResponse(int status, String message) {
         return jsonResponse(status, Map.of("error", message));
     }
 
+    private APIGatewayProxyResponseEvent retryResponse(int status, String message, long retryAfterSeconds) {
+        APIGatewayProxyResponseEvent response = errorResponse(status, message);
+        response.getHeaders().put("Retry-After", String.valueOf(retryAfterSeconds));
+        return response;
+    }
+
+    private static String sourceIp(APIGatewayProxyRequestEvent request) {
+        if (request.getRequestContext() == null || request.getRequestContext().getIdentity() == null) {
+            return null;
+        }
+        return request.getRequestContext().getIdentity().getSourceIp();
+    }
+
+    // Matched on the literal address so a forged or odd value never triggers a DNS lookup.
+    private static boolean isLoopback(String ip) {
+        return ip != null && (ip.startsWith("127.") || "::1".equals(ip) || "0:0:0:0:0:0:0:1".equals(ip));
+    }
+
+    // Rate limits follow the source address API Gateway saw, which the caller
+    // cannot pick the way it can pick query parameters. Only without one (a
+    // direct invoke) does the owner named in the path stand in; scheduled
+    // events have neither and only count against the route.
+    private String clientKey(APIGatewayProxyRequestEvent request, Router.Match match) {
+        String ip = sourceIp(request);
+        if (ip != null) {
+            return "ip:" + ip;
+        }
+        String userId = match.getParams().find("userId");
+        return userId == null ? null : "user:" + userId.trim();
+    }
+
     private Map<String, String> safeQueryParams(APIGatewayProxyRequestEvent request) {
         Map<String, String> query = request.getQueryStringParameters();
         return query == null ? new HashMap<>() : query;
@@ -233,7 +815,8 @@ public class LambdaHandler implements RequestHandler<APIGatewayProxyRequestEvent
         Map<String, String> headers = new HashMap<>();
         headers.put("Content-Type", "application/json");
         headers.put("Access-Control-Allow-Origin", "*");
-        headers.put("Access-Control-Allow-Headers", "Content-Type,Authorization");
+        headers.put("Access-Control-Allow-Headers", "Content-Type,Authorization,If-None-Match");
+        headers.put("Access-Control-Expose-Headers", "ETag,Retry-After");
         headers.put("Access-Control-Allow-Methods", "GET,POST,DELETE,OPTIONS");
         return headers;
     }
@@ -249,11 +832,51 @@ public class LambdaHandler implements RequestHandler<APIGatewayProxyRequestEvent
         String destination;
         int seats;
         int farePerSeat;
+        String departureAt;
+        Double pickupLat;
+        Double pickupLon;
+        Double dropLat;
+        Double dropLon;
+        List<String> stops;
+    }
+
+    private static class PublishRidesRequest {
+        List<PublishRideRequest> rides;
+    }
+
+    private static class ScheduleRequest {
+        int ownerId;
+        String source;
+        String destination;
+        int seats;
+        int farePerSeat;
+        List<String> daysOfWeek;
+        String departureTime;
+        String startDate;
+        String endDate;
+    }
+
+    private static class RideRequestBody {
+        int userId;
+        String source;
+        String destination;
+        int seats;
+        int maxFarePerSeat;
+        String earliestDeparture;
+        String latestDeparture;
     }
 
     private static class CreateBookingRequest {
         int rideId;
         int userId;
         int seats;
+        Integer fromStop;
+        Integer toStop;
+        String quoteToken;
+    }
+
+    private static class BatchBookingRequest {
+        String mode;
+        List<CreateBookingRequest> bookings;
     }
 }
@@ -0,0 +1,50 @@
+package api;
+
+public class PathParams {
+
+    private final String[] names;
+    private final String[] values;
+
+    PathParams(String[] names, String[] values) {
+        this.names = names;
+        this.values = values;
+    }
+
+    public String get(String name) {
+        String value = find(name);
+        if (value == null) {
+            throw new IllegalStateException("Route has no path parameter " + name);
+        }
+        return value;
+    }
+
+    /**
+     * The raw value of a path parameter, or {@code null} if the route has none
+     * by that name.
+     */
+    public String find(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a positive integer path parameter; malformed input is a client
+     * error and surfaces as 400.
+     */
+    public int getInt(String name) {
+        String value = get(name);
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        throw new IllegalArgumentException(name + " must be a positive integer");
+    }
+}
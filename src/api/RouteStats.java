@@ -0,0 +1,71 @@
+package api;
+
+import metrics.HistogramSnapshot;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+import metrics.StatusCounts;
+
+import java.util.concurrent.TimeUnit;
+
+public class RouteStats {
+
+    private final String method;
+    private final String route;
+    private final long count;
+    private final long errors;
+    private final long avgMicros;
+    private final long p50Micros;
+    private final long p99Micros;
+    private final long maxMicros;
+
+    public RouteStats(String method, String route, long count, long errors, long avgMicros,
+                      long p50Micros, long p99Micros, long maxMicros) {
+        this.method = method;
+        this.route = route;
+        this.count = count;
+        this.errors = errors;
+        this.avgMicros = avgMicros;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    public String getMethod() { return method; }
+    public String getRoute() { return route; }
+    public long getCount() { return count; }
+    public long getErrors() { return errors; }
+    public long getAvgMicros() { return avgMicros; }
+    public long getP50Micros() { return p50Micros; }
+    public long getP99Micros() { return p99Micros; }
+    public long getMaxMicros() { return maxMicros; }
+
+    /**
+     * Latency and responses by status of one route, shared with the metrics
+     * exporters. Errors are responses with a status of 400 or above.
+     */
+    static final class Recorder {
+        private final LatencyHistogram latency;
+        private final StatusCounts statuses;
+
+        Recorder(String key) {
+            this.latency = Metrics.route(key);
+            this.statuses = Metrics.statuses(key);
+        }
+
+        void record(long nanos, int status) {
+            latency.record(nanos);
+            statuses.increment(status);
+        }
+
+        RouteStats snapshot(String method, String route) {
+            HistogramSnapshot snapshot = latency.snapshot();
+            long invocations = snapshot.getCount();
+            long avg = invocations == 0 ? 0 : snapshot.getSumNanos() / invocations;
+            return new RouteStats(method, route, invocations, statuses.errors(),
+                    TimeUnit.NANOSECONDS.toMicros(avg),
+                    TimeUnit.NANOSECONDS.toMicros(snapshot.quantile(0.5)),
+                    TimeUnit.NANOSECONDS.toMicros(snapshot.quantile(0.99)),
+                    TimeUnit.NANOSECONDS.toMicros(snapshot.getMaxNanos()));
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package api;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Method + path-template router. Templates such as {@code /rides/{rideId}} are
+ * compiled into a segment trie when registered, so dispatch costs one map
+ * lookup per path segment. Literal segments win over parameters.
+ */
+public class Router {
+
+    @FunctionalInterface
+    public interface Handler {
+        APIGatewayProxyResponseEvent handle(APIGatewayProxyRequestEvent request, PathParams params) throws Exception;
+    }
+
+    private final Node root = new Node();
+    private final List<Route> routes = new ArrayList<>();
+
+    public Router add(String method, String template, Handler handler) {
+        Node node = root;
+        List<String> paramNames = new ArrayList<>();
+        for (String segment : segments(template)) {
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                paramNames.add(segment.substring(1, segment.length() - 1));
+                if (node.param == null) {
+                    node.param = new Node();
+                }
+                node = node.param;
+            } else {
+                node = node.literals.computeIfAbsent(segment, key -> new Node());
+            }
+        }
+
+        if (node.routes.containsKey(method)) {
+            throw new IllegalStateException("Duplicate route " + method + " " + template);
+        }
+        Route route = new Route(method, template, paramNames.toArray(new String[0]), handler);
+        node.routes.put(method, route);
+        routes.add(route);
+        return this;
+    }
+
+    /**
+     * Finds the route for a request, or {@code null} when nothing matches.
+     */
+    public Match match(String method, String path) {
+        List<String> segments = segments(path);
+        String[] values = new String[segments.size()];
+        Route route = find(root, segments, 0, values, 0, method);
+        if (route == null) {
+            return null;
+        }
+        return new Match(route, new PathParams(route.paramNames, values));
+    }
+
+    public List<RouteStats> stats() {
+        List<RouteStats> stats = new ArrayList<>(routes.size());
+        for (Route route : routes) {
+            stats.add(route.stats());
+        }
+        return stats;
+    }
+
+    private Route find(Node node, List<String> segments, int index, String[] values, int paramCount, String method) {
+        if (index == segments.size()) {
+            return node.routes.get(method);
+        }
+
+        String segment = segments.get(index);
+        Node literal = node.literals.get(segment);
+        if (literal != null) {
+            Route route = find(literal, segments, index + 1, values, paramCount, method);
+            if (route != null) {
+                return route;
+            }
+        }
+        if (node.param != null) {
+            values[paramCount] = segment;
+            return find(node.param, segments, index + 1, values, paramCount + 1, method);
+        }
+        return null;
+    }
+
+    private static List<String> segments(String path) {
+        List<String> segments = new ArrayList<>(4);
+        int start = 0;
+        int length = path.length();
+        while (start < length) {
+            int slash = path.indexOf('/', start);
+            int end = slash < 0 ? length : slash;
+            if (end > start) {
+                segments.add(path.substring(start, end));
+            }
+            start = end + 1;
+        }
+        return segments;
+    }
+
+    private static final class Node {
+        private final Map<String, Node> literals = new HashMap<>();
+        private final Map<String, Route> routes = new HashMap<>(4);
+        private Node param;
+    }
+
+    public static final class Route {
+        private final String method;
+        private final String template;
+        private final String key;
+        private final String[] paramNames;
+        private final Handler handler;
+        private final RouteStats.Recorder recorder;
+
+        private Route(String method, String template, String[] paramNames, Handler handler) {
+            this.method = method;
+            this.template = template;
+            this.key = method + " " + template;
+            this.recorder = new RouteStats.Recorder(key);
+            this.paramNames = paramNames;
+            this.handler = handler;
+        }
+
+        public String getMethod() { return method; }
+        public String getTemplate() { return template; }
+        public String getKey() { return key; }
+
+        private RouteStats stats() {
+            return recorder.snapshot(method, template);
+        }
+    }
+
+    public static final class Match {
+        private final Route route;
+        private final PathParams params;
+
+        private Match(Route route, PathParams params) {
+            this.route = route;
+            this.params = params;
+        }
+
+        public Route getRoute() { return route; }
+        public PathParams getParams() { return params; }
+
+        /**
+         * Runs the route handler.
+         */
+        public APIGatewayProxyResponseEvent invoke(APIGatewayProxyRequestEvent request) throws Exception {
+            return route.handler.handle(request, params);
+        }
+
+        /**
+         * Records the outcome of a request to this route, including requests
+         * refused or failed before or after the handler ran.
+         */
+        public void record(long nanos, int status) {
+            route.recorder.record(nanos, status);
+        }
+    }
+}
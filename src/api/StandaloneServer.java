@@ -0,0 +1,150 @@
+package api;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import util.VirtualThreads;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-lived HTTP front end for running the API outside Lambda. Requests are
+ * adapted to API Gateway proxy events and routed through {@link LambdaHandler},
+ * one (virtual, when available) thread per request.
+ */
+public class StandaloneServer {
+
+    private static final String BUSY_BODY = "{\"error\":\"Server is busy, retry shortly\"}";
+
+    private final int port;
+    private final int shutdownGraceSeconds;
+    private final Semaphore inFlight;
+    private final LambdaHandler handler = new LambdaHandler();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public StandaloneServer(int port, int maxInFlight, int shutdownGraceSeconds) {
+        this.port = port;
+        this.shutdownGraceSeconds = shutdownGraceSeconds;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    public void start() throws IOException {
+        executor = VirtualThreads.newThreadPerTaskExecutor("http");
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Stops accepting connections, lets in-flight requests finish within the
+     * grace period, then stops the worker threads.
+     */
+    public void stop() {
+        if (server == null) {
+            return;
+        }
+        server.stop(shutdownGraceSeconds);
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(shutdownGraceSeconds, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return server == null ? port : server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!inFlight.tryAcquire()) {
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                writeBody(exchange, 503, BUSY_BODY);
+                return;
+            }
+            try {
+                APIGatewayProxyResponseEvent response = handler.handleRequest(toEvent(exchange), null);
+                if (response.getHeaders() != null) {
+                    response.getHeaders().forEach((name, value) -> exchange.getResponseHeaders().set(name, value));
+                }
+                writeBody(exchange, response.getStatusCode(), response.getBody());
+            } finally {
+                inFlight.release();
+            }
+        }
+    }
+
+    private APIGatewayProxyRequestEvent toEvent(HttpExchange exchange) throws IOException {
+        Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+            if (!header.getValue().isEmpty()) {
+                headers.put(header.getKey(), header.getValue().get(0));
+            }
+        }
+
+        String body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        APIGatewayProxyRequestEvent.ProxyRequestContext context = new APIGatewayProxyRequestEvent.ProxyRequestContext()
+                .withIdentity(new APIGatewayProxyRequestEvent.RequestIdentity()
+                        .withSourceIp(exchange.getRemoteAddress().getAddress().getHostAddress()));
+
+        return new APIGatewayProxyRequestEvent()
+                .withHttpMethod(exchange.getRequestMethod())
+                .withPath(exchange.getRequestURI().getRawPath())
+                .withQueryStringParameters(parseQuery(exchange.getRequestURI().getRawQuery()))
+                .withHeaders(headers)
+                .withBody(body.isEmpty() ? null : body)
+                .withRequestContext(context);
+    }
+
+    private Map<String, String> parseQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return null;
+        }
+        Map<String, String> query = new HashMap<>();
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private void writeBody(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+}
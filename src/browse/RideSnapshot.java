@@ -0,0 +1,260 @@
+package browse;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Immutable column-per-field copy of the bookable rides: parallel
+ * {@code int[]} arrays for id, seats and fare, with source and destination
+ * dictionary-encoded into a route id. Rows are grouped by route id, so the
+ * route is implied by the row's slice and a route query scans only that
+ * slice. A filtered, sorted browse is one pass over flat arrays with a
+ * bounded heap for the top K, with no per-ride objects to chase. Routes are
+ * keyed through {@code keyOf}, so aliases of a place share a route id.
+ */
+public final class RideSnapshot {
+
+    private final Function<String, String> keyOf;
+    private final Map<String, Integer> routeIds;
+    private final int[] ids;
+    private final int[] seats;
+    private final int[] fares;
+    private final int[] routeStart;
+    private final int size;
+    private final long position;
+
+    private RideSnapshot(Function<String, String> keyOf, Map<String, Integer> routeIds,
+                         int[] ids, int[] seats, int[] fares, int[] routeStart, int size, long position) {
+        this.keyOf = keyOf;
+        this.routeIds = routeIds;
+        this.ids = ids;
+        this.seats = seats;
+        this.fares = fares;
+        this.routeStart = routeStart;
+        this.size = size;
+        this.position = position;
+    }
+
+    public static RideSnapshot empty(Function<String, String> keyOf) {
+        return new RideSnapshot(keyOf, Map.of(), new int[0], new int[0], new int[0], new int[1], 0, 0);
+    }
+
+    /**
+     * Builder for a snapshot loaded from scratch.
+     */
+    public static Builder builder(Function<String, String> keyOf) {
+        return new Builder(keyOf, null);
+    }
+
+    /**
+     * Builder for a snapshot that applies changed rides on top of this one.
+     */
+    public Builder toBuilder() {
+        return new Builder(keyOf, this);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Ride change log sequence this snapshot is current to.
+     */
+    public long position() {
+        return position;
+    }
+
+    public int routeCount() {
+        return routeIds.size();
+    }
+
+    /**
+     * Ids of at most {@code limit} rides with at least {@code minSeats} seats
+     * and a fare of at most {@code maxFare}, best first by {@code sort}.
+     * {@code source} and {@code destination} narrow to one route; pass null
+     * for both to browse every route.
+     */
+    public int[] top(String source, String destination, int minSeats, int maxFare, RideSort sort, int limit) {
+        int from = 0;
+        int to = size;
+        if (source != null) {
+            Integer route = routeIds.get(routeKey(source, destination));
+            if (route == null) {
+                return new int[0];
+            }
+            from = routeStart[route];
+            to = routeStart[route + 1];
+        }
+
+        // Max-heap of packed (rank, newest-first id) scores: the root is the
+        // worst of the current top K, so most rows are rejected by one compare.
+        // The filter uses a non-short-circuit operator to leave one branch per row.
+        long fareWeight = sort.fareWeight();
+        long seatWeight = sort.seatWeight();
+        long[] heap = new long[limit];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if ((seats[i] >= minSeats) & (fares[i] <= maxFare)) {
+                long rank = fareWeight * fares[i] + seatWeight * (Integer.MAX_VALUE - seats[i]);
+                long score = rank << 32 | (Integer.MAX_VALUE - ids[i]);
+                if (count < limit) {
+                    heap[count] = score;
+                    siftUp(heap, count++);
+                } else if (score < heap[0]) {
+                    heap[0] = score;
+                    siftDown(heap, count);
+                }
+            }
+        }
+
+        Arrays.sort(heap, 0, count);
+        int[] top = new int[count];
+        for (int i = 0; i < count; i++) {
+            top[i] = Integer.MAX_VALUE - (int) heap[i];
+        }
+        return top;
+    }
+
+    private String routeKey(String source, String destination) {
+        return keyOf.apply(source) + '\u0000' + keyOf.apply(destination);
+    }
+
+    private static void siftUp(long[] heap, int index) {
+        long value = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] >= value) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = value;
+    }
+
+    private static void siftDown(long[] heap, int count) {
+        long value = heap[0];
+        int index = 0;
+        int half = count >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < count && heap[child + 1] > heap[child]) {
+                child++;
+            }
+            if (value >= heap[child]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+
+    /**
+     * Collects rides for a new snapshot. Starting from a base snapshot, every
+     * ride passed to {@link #put} or {@link #remove} replaces its old row;
+     * the rest of the base is carried over as is. Not thread-safe.
+     */
+    public static final class Builder {
+
+        private final Function<String, String> keyOf;
+        private final RideSnapshot base;
+        private final Map<String, Integer> routeIds;
+        private final Map<String, Integer> spellings = new HashMap<>();
+        private final BitSet touched = new BitSet();
+        private int[] ids = new int[1024];
+        private int[] seats = new int[1024];
+        private int[] fares = new int[1024];
+        private int[] routes = new int[1024];
+        private int size;
+
+        private Builder(Function<String, String> keyOf, RideSnapshot base) {
+            this.keyOf = keyOf;
+            this.base = base;
+            this.routeIds = base == null ? new HashMap<>() : new HashMap<>(base.routeIds);
+        }
+
+        /**
+         * Adds a bookable ride, replacing any earlier row for it.
+         */
+        public void put(int id, String source, String destination, int seats, int fare) {
+            if (base != null) {
+                touched.set(id);
+            }
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                this.seats = Arrays.copyOf(this.seats, capacity);
+                fares = Arrays.copyOf(fares, capacity);
+                routes = Arrays.copyOf(routes, capacity);
+            }
+            ids[size] = id;
+            this.seats[size] = seats;
+            fares[size] = fare;
+            // Most rides repeat a spelling already seen; skip re-normalizing it.
+            routes[size] = spellings.computeIfAbsent(source + '\u0000' + destination,
+                    spelling -> routeIds.computeIfAbsent(keyOf.apply(source) + '\u0000' + keyOf.apply(destination),
+                            key -> routeIds.size()));
+            size++;
+        }
+
+        /**
+         * Drops a ride that is no longer bookable.
+         */
+        public void remove(int id) {
+            if (base != null) {
+                touched.set(id);
+            }
+        }
+
+        public RideSnapshot build(long position) {
+            // Counting sort by route id: count each route's rows, turn the
+            // counts into slice offsets, then scatter the rows into place.
+            int routeCount = routeIds.size();
+            int[] start = new int[routeCount + 1];
+            if (base != null) {
+                for (int route = 0; route < base.routeStart.length - 1; route++) {
+                    for (int i = base.routeStart[route]; i < base.routeStart[route + 1]; i++) {
+                        if (!touched.get(base.ids[i])) {
+                            start[route + 1]++;
+                        }
+                    }
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                start[routes[i] + 1]++;
+            }
+            for (int route = 0; route < routeCount; route++) {
+                start[route + 1] += start[route];
+            }
+
+            int total = start[routeCount];
+            int[] newIds = new int[total];
+            int[] newSeats = new int[total];
+            int[] newFares = new int[total];
+            int[] next = Arrays.copyOf(start, routeCount);
+            if (base != null) {
+                for (int route = 0; route < base.routeStart.length - 1; route++) {
+                    for (int i = base.routeStart[route]; i < base.routeStart[route + 1]; i++) {
+                        if (!touched.get(base.ids[i])) {
+                            int at = next[route]++;
+                            newIds[at] = base.ids[i];
+                            newSeats[at] = base.seats[i];
+                            newFares[at] = base.fares[i];
+                        }
+                    }
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                int at = next[routes[i]]++;
+                newIds[at] = ids[i];
+                newSeats[at] = seats[i];
+                newFares[at] = fares[i];
+            }
+            return new RideSnapshot(keyOf, routeIds, newIds, newSeats, newFares, start, total, position);
+        }
+    }
+}
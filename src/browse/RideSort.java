@@ -0,0 +1,49 @@
+package browse;
+
+import model.Ride;
+
+import java.util.Comparator;
+
+/**
+ * Orderings offered when browsing rides. Ties go to the newer ride.
+ */
+public enum RideSort {
+    FARE,
+    SEATS,
+    NEWEST;
+
+    public static RideSort parse(String token) {
+        if (token == null || token.isBlank()) {
+            return NEWEST;
+        }
+        return switch (token.trim().toLowerCase()) {
+            case "fare" -> FARE;
+            case "seats" -> SEATS;
+            case "newest" -> NEWEST;
+            default -> throw new IllegalArgumentException("sort must be one of fare, seats, newest");
+        };
+    }
+
+    /**
+     * The same order over rides re-read from MySQL, whose seats may have
+     * moved since the snapshot was taken.
+     */
+    public Comparator<Ride> comparator() {
+        Comparator<Ride> newest = Comparator.comparingInt(Ride::getId).reversed();
+        return switch (this) {
+            case FARE -> Comparator.comparingInt(Ride::getFarePerSeat).thenComparing(newest);
+            case SEATS -> Comparator.comparingInt(Ride::getSeats).reversed().thenComparing(newest);
+            case NEWEST -> newest;
+        };
+    }
+
+    // A ride's rank is fareWeight * fare + seatWeight * (MAX_VALUE - seats);
+    // smaller is better. Plain weights keep the scan loop free of a switch.
+    long fareWeight() {
+        return this == FARE ? 1 : 0;
+    }
+
+    long seatWeight() {
+        return this == SEATS ? 1 : 0;
+    }
+}
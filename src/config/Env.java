@@ -0,0 +1,42 @@
+package config;
+
+import io.github.cdimascio.dotenv.Dotenv;
+
+/**
+ * Configuration lookup shared by all layers: OS environment first (Lambda),
+ * then {@code -D} system properties, then the local {@code .env} file, then
+ * the caller's default.
+ */
+public class Env {
+    // Only read once a key is missing from the environment and system properties, which on Lambda
+    // usually means never.
+    private static class DotenvHolder {
+        private static final Dotenv DOTENV = Dotenv.configure()
+                .ignoreIfMissing()
+                .ignoreIfMalformed()
+                .load();
+    }
+
+    public static String get(String key, String defaultValue) {
+        String value = System.getenv(key);
+        if (value == null || value.isBlank()) {
+            value = System.getProperty(key);
+        }
+        if (value == null || value.isBlank()) {
+            value = DotenvHolder.DOTENV.get(key);
+        }
+        return value == null || value.isBlank() ? defaultValue : value;
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = get(key, "");
+        if (value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException(key + " must be an integer", e);
+        }
+    }
+}
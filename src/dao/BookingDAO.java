@@ -1,29 +1,57 @@
 package dao;
 
+import com.google.gson.stream.JsonWriter;
 import db.DBConnection;
+import json.BookingJson;
+import json.Json;
 import model.Booking;
+import model.BookingWithRide;
+import model.Page;
+import model.PageRequest;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.List;
 
 public class BookingDAO {
 
     public int bookRide(Connection con, Booking booking) throws SQLException {
+        return bookRide(con, booking, null);
+    }
+
+    /**
+     * Inserts a booking that redeems price quote {@code quoteId}, if not null.
+     * A quote can back one booking only; redeeming it twice is rejected.
+     */
+    public int bookRide(Connection con, Booking booking, String quoteId) throws SQLException {
 
-        String sql = "INSERT INTO bookings(ride_id, user_id, seats_booked, total_fare) VALUES (?, ?, ?, ?)";
+        String sql = "INSERT INTO bookings(ride_id, user_id, seats_booked, total_fare, from_stop, to_stop, quote_id) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)";
 
         try (PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ps.setInt(1, booking.getRideId());
             ps.setInt(2, booking.getUserId());
             ps.setInt(3, booking.getSeatsBooked());
             ps.setInt(4, booking.getTotalFare());
+            setStop(ps, 5, booking.getFromStop());
+            setStop(ps, 6, booking.getToStop());
+            ps.setString(7, quoteId);
 
-            ps.executeUpdate();
+            try {
+                ps.executeUpdate();
+            } catch (SQLIntegrityConstraintViolationException e) {
+                if (quoteId != null && isDuplicateKey(e)) {
+                    throw new IllegalArgumentException("Quote already used");
+                }
+                throw e;
+            }
 
             try (ResultSet rs = ps.getGeneratedKeys()) {
                 if (rs.next()) {
@@ -34,6 +62,45 @@ public class BookingDAO {
         throw new SQLException("Failed to create booking");
     }
 
+    // MySQL ER_DUP_ENTRY, or the standard SQLSTATE other drivers use.
+    private static boolean isDuplicateKey(SQLException e) {
+        return e.getErrorCode() == 1062 || "23505".equals(e.getSQLState());
+    }
+
+    /**
+     * Inserts all bookings in one JDBC batch and returns their generated ids,
+     * in the same order as {@code bookings}.
+     */
+    public int[] bookRides(Connection con, List<Booking> bookings) throws SQLException {
+        String sql = "INSERT INTO bookings(ride_id, user_id, seats_booked, total_fare, from_stop, to_stop) "
+                + "VALUES (?, ?, ?, ?, ?, ?)";
+
+        try (PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (Booking booking : bookings) {
+                ps.setInt(1, booking.getRideId());
+                ps.setInt(2, booking.getUserId());
+                ps.setInt(3, booking.getSeatsBooked());
+                ps.setInt(4, booking.getTotalFare());
+                setStop(ps, 5, booking.getFromStop());
+                setStop(ps, 6, booking.getToStop());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+
+            int[] ids = new int[bookings.size()];
+            int count = 0;
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                while (rs.next() && count < ids.length) {
+                    ids[count++] = rs.getInt(1);
+                }
+            }
+            if (count != ids.length) {
+                throw new SQLException("Failed to create bookings");
+            }
+            return ids;
+        }
+    }
+
     public Booking getBookingById(Connection con, int bookingId) throws SQLException {
         String sql = "SELECT * FROM bookings WHERE id=?";
         try (PreparedStatement ps = con.prepareStatement(sql)) {
@@ -55,28 +122,93 @@ public class BookingDAO {
         }
     }
 
-    public List<Booking> getBookingsByUser(int userId) throws SQLException {
-        String sql = "SELECT id, ride_id, user_id, seats_booked, total_fare FROM bookings WHERE user_id=? ORDER BY id DESC";
+    /**
+     * Streams a user's bookings, newest first, each with its ride's route,
+     * status and owner from the same indexed join.
+     */
+    public void getBookingsByUser(int userId, PageRequest page, JsonWriter out) throws SQLException, IOException {
+        try (Connection con = DBConnection.getConnection();
+             PreparedStatement ps = prepareBookingsWithRides(con, userId, page);
+             ResultSet rs = ps.executeQuery()) {
+            Json.writePage(out, rs, page, BookingJson::writeRowWithRide);
+        }
+    }
+
+    public Page<BookingWithRide> getBookingsWithRides(int userId, PageRequest page) throws SQLException {
+        try (Connection con = DBConnection.getConnection()) {
+            return getBookingsWithRides(con, userId, page);
+        }
+    }
+
+    public Page<BookingWithRide> getBookingsWithRides(Connection con, int userId, PageRequest page)
+            throws SQLException {
+        try (PreparedStatement ps = prepareBookingsWithRides(con, userId, page);
+             ResultSet rs = ps.executeQuery()) {
+            List<BookingWithRide> rows = new ArrayList<>();
+            while (rs.next()) {
+                rows.add(new BookingWithRide(
+                        mapBooking(rs),
+                        rs.getInt("owner_id"),
+                        rs.getString("source"),
+                        rs.getString("destination"),
+                        rs.getString("ride_status"),
+                        RideRows.departureAt(rs)));
+            }
+            return Page.of(rows, page, row -> row.getBooking().getId());
+        }
+    }
+
+    public List<Integer> getUserIdsByRide(int rideId) throws SQLException {
+        String sql = "SELECT DISTINCT user_id FROM bookings WHERE ride_id=?";
         try (Connection con = DBConnection.getConnection();
              PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setInt(1, userId);
+            ps.setInt(1, rideId);
             try (ResultSet rs = ps.executeQuery()) {
-                List<Booking> bookings = new ArrayList<>();
+                List<Integer> userIds = new ArrayList<>();
                 while (rs.next()) {
-                    bookings.add(mapBooking(rs));
+                    userIds.add(rs.getInt(1));
                 }
-                return bookings;
+                return userIds;
             }
         }
     }
 
+    private PreparedStatement prepareBookingsWithRides(Connection con, int userId, PageRequest page)
+            throws SQLException {
+        String sql = "SELECT b.id, b.ride_id, b.user_id, b.seats_booked, b.total_fare, b.from_stop, b.to_stop, "
+                + "r.owner_id, r.source, r.destination, r.status AS ride_status, r.departure_at "
+                + "FROM bookings b JOIN rides r ON r.id = b.ride_id "
+                + "WHERE b.user_id=? AND b.id < ? "
+                + "ORDER BY b.id DESC LIMIT ?";
+        PreparedStatement ps = con.prepareStatement(sql);
+        ps.setInt(1, userId);
+        ps.setInt(2, page.getBeforeId());
+        ps.setInt(3, page.getFetchSize());
+        return ps;
+    }
+
     private Booking mapBooking(ResultSet rs) throws SQLException {
         return new Booking(
                 rs.getInt("id"),
                 rs.getInt("ride_id"),
                 rs.getInt("user_id"),
                 rs.getInt("seats_booked"),
-                rs.getInt("total_fare")
+                rs.getInt("total_fare"),
+                stop(rs, "from_stop"),
+                stop(rs, "to_stop")
         );
     }
+
+    private static void setStop(PreparedStatement ps, int index, Integer stop) throws SQLException {
+        if (stop == null) {
+            ps.setNull(index, Types.INTEGER);
+        } else {
+            ps.setInt(index, stop);
+        }
+    }
+
+    private static Integer stop(ResultSet rs, String column) throws SQLException {
+        int stop = rs.getInt(column);
+        return rs.wasNull() ? null : stop;
+    }
 }
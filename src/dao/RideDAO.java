@@ -1,29 +1,64 @@
 package dao;
 
+import browse.RideSnapshot;
+import com.google.gson.stream.JsonWriter;
 import db.DBConnection;
+import geo.GeoIndex;
+import geo.StopIndex;
+import json.Json;
+import json.RideJson;
+import model.Booking;
+import model.Page;
+import model.PageRequest;
 import model.Ride;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 public class RideDAO {
 
+    private static final int IN_CHUNK_SIZE = 500;
+
     public int publishRide(Ride ride) throws SQLException {
+        try (Connection con = DBConnection.getConnection()) {
+            return inTransaction(con, () -> {
+                int rideId = publishRide(con, ride);
+                recordChanges(con, List.of(rideId));
+                return rideId;
+            });
+        }
+    }
 
-        String sql = "INSERT INTO rides(owner_id, source, destination, seats, fare_per_seat, status) VALUES (?, ?, ?, ?, ?, 'OPEN')";
+    public int publishRide(Connection con, Ride ride) throws SQLException {
 
-        try (Connection con = DBConnection.getConnection();
-             PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        String sql = "INSERT INTO rides(owner_id, source, destination, seats, fare_per_seat, status, departure_at, "
+                + "pickup_lat, pickup_lon, drop_lat, drop_lon, stop_count) VALUES (?, ?, ?, ?, ?, 'OPEN', ?, ?, ?, ?, ?, ?)";
+
+        try (PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ps.setInt(1, ride.getOwnerId());
             ps.setString(2, ride.getSource());
             ps.setString(3, ride.getDestination());
             ps.setInt(4, ride.getSeats());
             ps.setInt(5, ride.getFarePerSeat());
+            RideRows.setDeparture(ps, 6, ride.getDepartureAt());
+            RideRows.setPoint(ps, 7, ride.getPickup());
+            RideRows.setPoint(ps, 9, ride.getDrop());
+            ps.setInt(11, ride.getStopCount());
 
             ps.executeUpdate();
 
@@ -37,33 +72,272 @@ public class RideDAO {
         throw new SQLException("Failed to publish ride");
     }
 
-    public List<Ride> viewAllRides() throws SQLException {
-        String sql = "SELECT * FROM rides WHERE status='OPEN' AND seats > 0 ORDER BY id DESC";
+    /**
+     * Stores a ride's ordered stops (source first) and opens every leg between
+     * consecutive stops with the ride's full seat count.
+     */
+    public void insertStops(Connection con, int rideId, List<String> stops, int seats) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(
+                "INSERT INTO ride_stops(ride_id, stop_index, name) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < stops.size(); i++) {
+                ps.setInt(1, rideId);
+                ps.setInt(2, i);
+                ps.setString(3, stops.get(i));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        try (PreparedStatement ps = con.prepareStatement(
+                "INSERT INTO ride_legs(ride_id, leg_index, seats_available) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < stops.size() - 1; i++) {
+                ps.setInt(1, rideId);
+                ps.setInt(2, i);
+                ps.setInt(3, seats);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Publishes several rides with one multi-row INSERT and returns their ids in
+     * input order. A single statement gets consecutive auto-increment values.
+     */
+    public int[] publishRides(List<Ride> rides) throws SQLException {
+        try (Connection con = DBConnection.getConnection()) {
+            return inTransaction(con, () -> {
+                int[] ids = new int[rides.size()];
+                int count = 0;
+                try (PreparedStatement ps = con.prepareStatement(multiRowInsert("INSERT", rides.size()),
+                        Statement.RETURN_GENERATED_KEYS)) {
+                    bindRides(ps, rides);
+                    ps.executeUpdate();
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        while (rs.next() && count < ids.length) {
+                            ids[count++] = rs.getInt(1);
+                        }
+                    }
+                }
+                if (count != ids.length) {
+                    throw new SQLException("Failed to publish rides");
+                }
+                recordChanges(con, Arrays.stream(ids).boxed().toList());
+                return ids;
+            });
+        }
+    }
+
+    /**
+     * Inserts rides expanded from a schedule. Departures that already exist for
+     * the schedule are skipped via the (schedule_id, departure_at) unique key, so
+     * expansion is idempotent across containers. Returns the number inserted.
+     */
+    public int insertScheduledRides(Connection con, List<Ride> rides) throws SQLException {
+        if (rides.isEmpty()) {
+            return 0;
+        }
+        try (PreparedStatement ps = con.prepareStatement(multiRowInsert("INSERT IGNORE", rides.size()))) {
+            bindRides(ps, rides);
+            return ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Returns the ids of the schedule's rides departing between the first and
+     * last of {@code rides}, as expanded by {@link #insertScheduledRides}.
+     */
+    public List<Integer> findScheduledRideIds(Connection con, List<Ride> rides) throws SQLException {
+        String sql = "SELECT id FROM rides WHERE schedule_id=? AND departure_at >= ? AND departure_at <= ? ORDER BY id";
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, rides.get(0).getScheduleId());
+            RideRows.setDeparture(ps, 2, rides.get(0).getDepartureAt());
+            RideRows.setDeparture(ps, 3, rides.get(rides.size() - 1).getDepartureAt());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Logs the departures {@link #insertScheduledRides} expanded to the change
+     * feed; like {@link #recordChanges}, the last statement before commit.
+     */
+    public void recordScheduledChanges(Connection con, List<Ride> rides) throws SQLException {
+        // Inserted ids are not returned for INSERT IGNORE; re-logging a
+        // departure that already existed is harmless for the feed.
+        String sql = "INSERT INTO ride_changes(ride_id) SELECT id FROM rides "
+                + "WHERE schedule_id=? AND departure_at >= ? AND departure_at <= ? ORDER BY id";
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, rides.get(0).getScheduleId());
+            RideRows.setDeparture(ps, 2, rides.get(0).getDepartureAt());
+            RideRows.setDeparture(ps, 3, rides.get(rides.size() - 1).getDepartureAt());
+            ps.executeUpdate();
+        }
+    }
+
+    private String multiRowInsert(String verb, int rows) {
+        StringBuilder sql = new StringBuilder(verb)
+                .append(" INTO rides(owner_id, source, destination, seats, fare_per_seat, status, departure_at, schedule_id, ")
+                .append("pickup_lat, pickup_lon, drop_lat, drop_lon) VALUES ");
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "" : ", ").append("(?, ?, ?, ?, ?, 'OPEN', ?, ?, ?, ?, ?, ?)");
+        }
+        return sql.toString();
+    }
+
+    private void bindRides(PreparedStatement ps, List<Ride> rides) throws SQLException {
+        int index = 1;
+        for (Ride ride : rides) {
+            ps.setInt(index++, ride.getOwnerId());
+            ps.setString(index++, ride.getSource());
+            ps.setString(index++, ride.getDestination());
+            ps.setInt(index++, ride.getSeats());
+            ps.setInt(index++, ride.getFarePerSeat());
+            RideRows.setDeparture(ps, index++, ride.getDepartureAt());
+            RideRows.setScheduleId(ps, index++, ride.getScheduleId());
+            RideRows.setPoint(ps, index, ride.getPickup());
+            RideRows.setPoint(ps, index + 2, ride.getDrop());
+            index += 4;
+        }
+    }
+
+    public void viewAllRides(PageRequest page, JsonWriter out) throws SQLException, IOException {
+        String sql = "SELECT * FROM rides WHERE status='OPEN' AND seats > 0 AND id < ? ORDER BY id DESC LIMIT ?";
+        try (Connection con = DBConnection.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, page.getBeforeId());
+            ps.setInt(2, page.getFetchSize());
+            try (ResultSet rs = ps.executeQuery()) {
+                Json.writePage(out, rs, page, RideJson::writeRow);
+            }
+        }
+    }
+
+    /**
+     * Open rides whose source and destination match any of the given spellings.
+     */
+    public void searchRides(List<String> sources, List<String> destinations, PageRequest page, JsonWriter out)
+            throws SQLException, IOException {
+        String sql = "SELECT * FROM rides WHERE source IN (" + String.join(",", Collections.nCopies(sources.size(), "?"))
+                + ") AND destination IN (" + String.join(",", Collections.nCopies(destinations.size(), "?"))
+                + ") AND status='OPEN' AND seats > 0 AND id < ? ORDER BY id DESC LIMIT ?";
+
+        try (Connection con = DBConnection.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            int index = 1;
+            for (String source : sources) {
+                ps.setString(index++, source);
+            }
+            for (String destination : destinations) {
+                ps.setString(index++, destination);
+            }
+            ps.setInt(index++, page.getBeforeId());
+            ps.setInt(index, page.getFetchSize());
+            try (ResultSet rs = ps.executeQuery()) {
+                Json.writePage(out, rs, page, RideJson::writeRow);
+            }
+        }
+    }
+
+    /**
+     * Seats still open across the rides of a route, under any of the given
+     * spellings. Answered from the route index alone.
+     */
+    public long countOpenSeats(List<String> sources, List<String> destinations) throws SQLException {
+        String sql = "SELECT COALESCE(SUM(seats), 0) FROM rides WHERE source IN ("
+                + String.join(",", Collections.nCopies(sources.size(), "?")) + ") AND destination IN ("
+                + String.join(",", Collections.nCopies(destinations.size(), "?")) + ") AND status='OPEN' AND seats > 0";
+        try (Connection con = DBConnection.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            int index = 1;
+            for (String source : sources) {
+                ps.setString(index++, source);
+            }
+            for (String destination : destinations) {
+                ps.setString(index++, destination);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    /**
+     * Number of rides using each distinct location as source or destination,
+     * most used first.
+     */
+    public Map<String, Integer> countLocations() throws SQLException {
+        String sql = "SELECT name, COUNT(*) AS rides FROM "
+                + "(SELECT source AS name FROM rides UNION ALL SELECT destination AS name FROM rides) locations "
+                + "GROUP BY name ORDER BY rides DESC";
+
+        Map<String, Integer> counts = new LinkedHashMap<>();
         try (Connection con = DBConnection.getConnection();
              PreparedStatement ps = con.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
-            List<Ride> rides = new ArrayList<>();
             while (rs.next()) {
-                rides.add(mapRide(rs));
+                counts.put(rs.getString("name"), rs.getInt("rides"));
             }
-            return rides;
         }
+        return counts;
     }
 
-    public List<Ride> searchRides(String source, String destination) throws SQLException {
-        String sql = "SELECT * FROM rides WHERE source=? AND destination=? AND status='OPEN' AND seats > 0 ORDER BY id DESC";
-
+    /**
+     * Loads the pickup/drop points of every bookable ride that has a pickup
+     * location into the index.
+     */
+    public void loadOpenRidePoints(GeoIndex index) throws SQLException {
+        String sql = "SELECT id, pickup_lat, pickup_lon, drop_lat, drop_lon FROM rides "
+                + "WHERE status='OPEN' AND seats > 0 AND pickup_lat IS NOT NULL";
         try (Connection con = DBConnection.getConnection();
              PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setString(1, source);
-            ps.setString(2, destination);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    index.put(rs.getInt("id"), RideRows.point(rs, "pickup"), RideRows.point(rs, "drop"));
+                }
+            }
+        }
+    }
 
+    /**
+     * Loads the ordered stops of every open ride into the index: source and
+     * destination for direct rides, the stored stop list for rides with waypoints.
+     */
+    public void loadOpenRideStops(StopIndex index) throws SQLException {
+        // Ascending ride ids keep every postings list append-only while loading.
+        String sql = "SELECT r.id, r.source, r.destination, s.name FROM rides r "
+                + "LEFT JOIN ride_stops s ON s.ride_id = r.id "
+                + "WHERE r.status='OPEN' ORDER BY r.id, s.stop_index";
+        try (Connection con = DBConnection.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql)) {
             try (ResultSet rs = ps.executeQuery()) {
-                List<Ride> rides = new ArrayList<>();
+                int rideId = -1;
+                List<String> stops = new ArrayList<>();
                 while (rs.next()) {
-                    rides.add(mapRide(rs));
+                    int id = rs.getInt("id");
+                    if (id != rideId) {
+                        if (rideId > 0) {
+                            index.put(rideId, stops);
+                        }
+                        rideId = id;
+                        stops = new ArrayList<>();
+                    }
+                    String stop = rs.getString("name");
+                    if (stop == null) {
+                        stops.add(rs.getString("source"));
+                        stops.add(rs.getString("destination"));
+                    } else {
+                        stops.add(stop);
+                    }
+                }
+                if (rideId > 0) {
+                    index.put(rideId, stops);
                 }
-                return rides;
             }
         }
     }
@@ -81,17 +355,246 @@ public class RideDAO {
         }
     }
 
-    public void reduceSeats(Connection con, int rideId, int seats) throws SQLException {
-        String sql = "UPDATE rides SET seats = seats - ? WHERE id=? AND seats >= ?";
+    public Ride getRideById(Connection con, int rideId) throws SQLException {
+        String sql = "SELECT * FROM rides WHERE id=?";
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, rideId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return mapRide(rs);
+                }
+                return null;
+            }
+        }
+    }
+
+    public Ride getRideById(int rideId) throws SQLException {
+        try (Connection con = DBConnection.getConnection()) {
+            return getRideById(con, rideId);
+        }
+    }
+
+    /**
+     * Conditionally takes seats from an open direct ride (no waypoints) in a
+     * single statement. Returns false, without changing anything, when the
+     * ride is not open or has fewer seats left; on success the row stays
+     * locked until the transaction ends. Rides with waypoints never match;
+     * their seats are taken per leg with {@link #reduceLegSeats}.
+     */
+    public boolean reduceSeats(Connection con, int rideId, int seats) throws SQLException {
+        String sql = "UPDATE rides SET seats = seats - ? WHERE id=? AND status='OPEN' AND stop_count = 2 AND seats >= ?";
         try (PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setInt(1, seats);
             ps.setInt(2, rideId);
             ps.setInt(3, seats);
-            int updated = ps.executeUpdate();
-            if (updated == 0) {
-                throw new SQLException("Not enough seats available for booking");
+            return ps.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Batched form of {@link #reduceSeats}. The open direct rides involved are
+     * locked first and the seats checked against those rows, then the
+     * decrements go out in a single JDBC batch. Update counts are not trusted:
+     * with rewriteBatchedStatements a batch may report
+     * {@link Statement#SUCCESS_NO_INFO} for every row. Element {@code i} of
+     * the result is true when booking {@code i} got its seats.
+     */
+    public boolean[] reduceSeats(Connection con, List<Booking> bookings) throws SQLException {
+        Set<Integer> rideIds = new TreeSet<>();
+        for (Booking booking : bookings) {
+            rideIds.add(booking.getRideId());
+        }
+        // Ascending ids, so concurrent batches lock rides in the same order.
+        Map<Integer, Integer> seatsLeft = new HashMap<>();
+        String placeholders = String.join(",", Collections.nCopies(rideIds.size(), "?"));
+        try (PreparedStatement ps = con.prepareStatement("SELECT id, seats FROM rides WHERE id IN (" + placeholders
+                + ") AND status='OPEN' AND stop_count = 2 ORDER BY id FOR UPDATE")) {
+            int index = 1;
+            for (int rideId : rideIds) {
+                ps.setInt(index++, rideId);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    seatsLeft.put(rs.getInt("id"), rs.getInt("seats"));
+                }
+            }
+        }
+
+        boolean[] reserved = new boolean[bookings.size()];
+        int batched = 0;
+        String sql = "UPDATE rides SET seats = seats - ? WHERE id=? AND status='OPEN' AND stop_count = 2 AND seats >= ?";
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            for (int i = 0; i < bookings.size(); i++) {
+                Booking booking = bookings.get(i);
+                Integer left = seatsLeft.get(booking.getRideId());
+                if (left == null || left < booking.getSeatsBooked()) {
+                    continue;
+                }
+                seatsLeft.put(booking.getRideId(), left - booking.getSeatsBooked());
+                reserved[i] = true;
+                batched++;
+                ps.setInt(1, booking.getSeatsBooked());
+                ps.setInt(2, booking.getRideId());
+                ps.setInt(3, booking.getSeatsBooked());
+                ps.addBatch();
+            }
+            if (batched == 0) {
+                return reserved;
+            }
+            for (int count : ps.executeBatch()) {
+                if (count == 0 || count == Statement.EXECUTE_FAILED) {
+                    throw new SQLException("Seat decrement missed a ride row held under lock");
+                }
+            }
+        }
+        return reserved;
+    }
+
+    public Map<Integer, Ride> getRidesByIds(Connection con, Collection<Integer> rideIds) throws SQLException {
+        Map<Integer, Ride> rides = new HashMap<>();
+        if (rideIds.isEmpty()) {
+            return rides;
+        }
+        String placeholders = String.join(",", Collections.nCopies(rideIds.size(), "?"));
+        try (PreparedStatement ps = con.prepareStatement("SELECT * FROM rides WHERE id IN (" + placeholders + ")")) {
+            int index = 1;
+            for (int rideId : rideIds) {
+                ps.setInt(index++, rideId);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Ride ride = mapRide(rs);
+                    rides.put(ride.getId(), ride);
+                }
             }
         }
+        return rides;
+    }
+
+    /**
+     * Open rides without waypoints that still have seats and have not departed,
+     * leaving from any of the given source spellings. Queried in chunks to keep
+     * the IN list bounded.
+     */
+    public List<Ride> findOpenDirectRides(Collection<String> sources, LocalDateTime now) throws SQLException {
+        List<Ride> rides = new ArrayList<>();
+        List<String> names = new ArrayList<>(sources);
+        try (Connection con = DBConnection.getConnection()) {
+            for (int start = 0; start < names.size(); start += IN_CHUNK_SIZE) {
+                List<String> chunk = names.subList(start, Math.min(names.size(), start + IN_CHUNK_SIZE));
+                String sql = "SELECT * FROM rides WHERE status='OPEN' AND stop_count = 2 AND seats > 0 "
+                        + "AND (departure_at IS NULL OR departure_at > ?) AND source IN ("
+                        + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+                try (PreparedStatement ps = con.prepareStatement(sql)) {
+                    ps.setObject(1, now);
+                    int index = 2;
+                    for (String name : chunk) {
+                        ps.setString(index++, name);
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            rides.add(mapRide(rs));
+                        }
+                    }
+                }
+            }
+        }
+        return rides;
+    }
+
+    /**
+     * Locks an open ride's row for the rest of the transaction, serializing leg
+     * reservations on it.
+     */
+    public Ride lockRideForBooking(Connection con, int rideId) throws SQLException {
+        String sql = "SELECT * FROM rides WHERE id=? AND status='OPEN' FOR UPDATE";
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, rideId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return mapRide(rs);
+                }
+                return null;
+            }
+        }
+    }
+
+    public void lockRide(Connection con, int rideId) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement("SELECT id FROM rides WHERE id=? FOR UPDATE")) {
+            ps.setInt(1, rideId);
+            ps.executeQuery().close();
+        }
+    }
+
+    /**
+     * Takes seats on legs {@code fromStop..toStop-1}. Either every leg has room
+     * and all are decremented, or false is returned and the caller must roll back.
+     */
+    public boolean reduceLegSeats(Connection con, int rideId, int fromStop, int toStop, int seats) throws SQLException {
+        String sql = "UPDATE ride_legs SET seats_available = seats_available - ? "
+                + "WHERE ride_id=? AND leg_index >= ? AND leg_index < ? AND seats_available >= ?";
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, seats);
+            ps.setInt(2, rideId);
+            ps.setInt(3, fromStop);
+            ps.setInt(4, toStop);
+            ps.setInt(5, seats);
+            return ps.executeUpdate() == toStop - fromStop;
+        }
+    }
+
+    public void rollbackLegSeats(Connection con, int rideId, int fromStop, int toStop, int seats) throws SQLException {
+        String sql = "UPDATE ride_legs SET seats_available = seats_available + ? "
+                + "WHERE ride_id=? AND leg_index >= ? AND leg_index < ?";
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, seats);
+            ps.setInt(2, rideId);
+            ps.setInt(3, fromStop);
+            ps.setInt(4, toStop);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Keeps {@code rides.seats} of a ride with waypoints equal to the seats
+     * free for the whole route (its tightest leg), so listings stay correct.
+     */
+    public void syncSeatsFromLegs(Connection con, int rideId) throws SQLException {
+        String sql = "UPDATE rides SET seats = (SELECT MIN(seats_available) FROM ride_legs WHERE ride_id=?) WHERE id=?";
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, rideId);
+            ps.setInt(2, rideId);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Free seats per leg for each ride that has waypoints, indexed by leg.
+     */
+    public Map<Integer, int[]> getLegSeats(Connection con, Collection<Integer> rideIds) throws SQLException {
+        Map<Integer, int[]> legs = new HashMap<>();
+        if (rideIds.isEmpty()) {
+            return legs;
+        }
+        String placeholders = String.join(",", Collections.nCopies(rideIds.size(), "?"));
+        String sql = "SELECT ride_id, leg_index, seats_available FROM ride_legs WHERE ride_id IN (" + placeholders
+                + ") ORDER BY ride_id, leg_index";
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            int index = 1;
+            for (int rideId : rideIds) {
+                ps.setInt(index++, rideId);
+            }
+            Map<Integer, List<Integer>> seats = new HashMap<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    seats.computeIfAbsent(rs.getInt("ride_id"), id -> new ArrayList<>()).add(rs.getInt("seats_available"));
+                }
+            }
+            for (Map.Entry<Integer, List<Integer>> ride : seats.entrySet()) {
+                legs.put(ride.getKey(), ride.getValue().stream().mapToInt(Integer::intValue).toArray());
+            }
+        }
+        return legs;
     }
 
     public void rollbackSeats(Connection con, int rideId, int seats) throws SQLException {
@@ -104,26 +607,233 @@ public class RideDAO {
 
     public boolean cancelRide(int rideId, int ownerId) throws SQLException {
         String sql = "UPDATE rides SET status='CANCELLED' WHERE id=? AND owner_id=?";
-        try (Connection con = DBConnection.getConnection();
-             PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setInt(1, rideId);
-            ps.setInt(2, ownerId);
-            return ps.executeUpdate() > 0;
+        try (Connection con = DBConnection.getConnection()) {
+            return inTransaction(con, () -> {
+                try (PreparedStatement ps = con.prepareStatement(sql)) {
+                    ps.setInt(1, rideId);
+                    ps.setInt(2, ownerId);
+                    if (ps.executeUpdate() == 0) {
+                        return false;
+                    }
+                }
+                recordChanges(con, List.of(rideId));
+                return true;
+            });
+        }
+    }
+
+    /**
+     * Streams the delta feed: the current state of every ride changed after
+     * {@code since}, oldest change first, with rides that left the open
+     * listing as tombstones. Returns false, writing nothing, when
+     * {@code since} is older than the retained log.
+     * <p>
+     * Sequence numbers are handed out at insert but become visible at commit,
+     * so a reader could see 12 before 11 commits and skip 11 for good. The
+     * feed therefore stops short of the oldest change younger than
+     * {@code settleMs}. Every writer inserts its change rows with
+     * {@link #recordChanges} as the statement right before commit, so an
+     * older sequence has committed or rolled back by then unless the commit
+     * itself stalled for longer than {@code settleMs}.
+     */
+    public boolean writeChanges(Long since, int limit, long settleMs, JsonWriter out) throws SQLException, IOException {
+        try (Connection con = DBConnection.getConnection()) {
+            long horizon = changeHorizon(con, since, settleMs);
+            if (horizon < 0) {
+                return false;
+            }
+
+            out.beginObject();
+            out.name("items").beginArray();
+            long last = since == null ? horizon : since;
+            int written = 0;
+            if (since != null && since < horizon) {
+                String sql = "SELECT r.*, c.seq FROM (SELECT ride_id, MAX(seq) AS seq FROM ride_changes "
+                        + "WHERE seq > ? AND seq <= ? GROUP BY ride_id) c "
+                        + "JOIN rides r ON r.id = c.ride_id ORDER BY c.seq LIMIT ?";
+                try (PreparedStatement ps = con.prepareStatement(sql)) {
+                    ps.setLong(1, since);
+                    ps.setLong(2, horizon);
+                    ps.setInt(3, limit);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            if ("OPEN".equals(rs.getString("status")) && rs.getInt("seats") > 0) {
+                                RideJson.writeRow(out, rs);
+                            } else {
+                                RideJson.writeTombstone(out, rs);
+                            }
+                            last = rs.getLong("seq");
+                            written++;
+                        }
+                    }
+                }
+            }
+            out.endArray();
+            boolean more = written == limit;
+            out.name("nextSince").value(more ? last : Math.max(last, horizon));
+            out.name("hasMore").value(more);
+            out.endObject();
+            return true;
+        }
+    }
+
+    /**
+     * Loads every bookable ride into a browse snapshot and returns the
+     * change log position the load is current to. The position is read
+     * first, so changes racing the load are replayed by the next refresh.
+     */
+    public long loadOpenRideColumns(long settleMs, RideSnapshot.Builder builder) throws SQLException {
+        String sql = "SELECT id, source, destination, seats, fare_per_seat FROM rides WHERE status='OPEN' AND seats > 0";
+        try (Connection con = DBConnection.getConnection()) {
+            long position = changeHorizon(con, null, settleMs);
+            try (PreparedStatement ps = con.prepareStatement(sql)) {
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        builder.put(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getInt(4), rs.getInt(5));
+                    }
+                }
+            }
+            return position;
+        }
+    }
+
+    /**
+     * Replays rides changed after {@code since} into a browse snapshot and
+     * returns the new position. Returns -1 when the change log no longer
+     * reaches back to {@code since} or {@code limit} or more rides changed;
+     * a full reload is the cheaper catch-up then.
+     */
+    public long loadRideChanges(long since, int limit, long settleMs, RideSnapshot.Builder builder) throws SQLException {
+        String sql = "SELECT r.id, r.source, r.destination, r.seats, r.fare_per_seat, r.status FROM "
+                + "(SELECT DISTINCT ride_id FROM ride_changes WHERE seq > ? AND seq <= ?) c "
+                + "JOIN rides r ON r.id = c.ride_id LIMIT ?";
+        try (Connection con = DBConnection.getConnection()) {
+            long horizon = changeHorizon(con, since, settleMs);
+            if (horizon <= since) {
+                return horizon < 0 ? -1 : since;
+            }
+            try (PreparedStatement ps = con.prepareStatement(sql)) {
+                ps.setLong(1, since);
+                ps.setLong(2, horizon);
+                ps.setInt(3, limit);
+                int count = 0;
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        if ("OPEN".equals(rs.getString(6)) && rs.getInt(4) > 0) {
+                            builder.put(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getInt(4), rs.getInt(5));
+                        } else {
+                            builder.remove(rs.getInt(1));
+                        }
+                        count++;
+                    }
+                }
+                return count == limit ? -1 : horizon;
+            }
+        }
+    }
+
+    /**
+     * Drops change log rows older than {@code retentionHours} by database
+     * time, always keeping the newest so the retained range stays known.
+     */
+    public int pruneChanges(int retentionHours, int limit) throws SQLException {
+        try (Connection con = DBConnection.getConnection()) {
+            long newest;
+            try (PreparedStatement ps = con.prepareStatement("SELECT MAX(seq) FROM ride_changes");
+                 ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                newest = rs.getLong(1);
+            }
+            try (PreparedStatement ps = con.prepareStatement(
+                    "DELETE FROM ride_changes WHERE changed_at < TIMESTAMPADD(HOUR, ?, CURRENT_TIMESTAMP(3)) "
+                            + "AND seq < ? LIMIT ?")) {
+                ps.setInt(1, -retentionHours);
+                ps.setLong(2, newest);
+                ps.setInt(3, limit);
+                return ps.executeUpdate();
+            }
+        }
+    }
+
+    // Newest sequence every earlier change has committed by (see writeChanges),
+    // or -1 when since is older than the retained log.
+    private long changeHorizon(Connection con, Long since, long settleMs) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(
+                "SELECT MIN(seq), MAX(seq), (SELECT MIN(seq) FROM ride_changes "
+                        + "WHERE changed_at > TIMESTAMPADD(MICROSECOND, ?, CURRENT_TIMESTAMP(3))) FROM ride_changes")) {
+            ps.setLong(1, -settleMs * 1000);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                long oldest = rs.getLong(1);
+                long newest = rs.getLong(2);
+                long unsettled = rs.getLong(3);
+                if (rs.wasNull()) {
+                    unsettled = newest + 1;
+                }
+                if (since != null && oldest > 0 && since < oldest - 1) {
+                    return -1;
+                }
+                return unsettled - 1;
+            }
+        }
+    }
+
+    /**
+     * Logs rides changed by the caller's transaction to the change feed. Call
+     * it as the last statement before {@code commit()}: the feed only waits
+     * {@code settleMs} between a sequence being handed out and its commit
+     * (see {@link #writeChanges}), so nothing slow may run in between.
+     */
+    public void recordChanges(Connection con, Collection<Integer> rideIds) throws SQLException {
+        if (rideIds.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = con.prepareStatement("INSERT INTO ride_changes(ride_id) VALUES (?)")) {
+            for (int rideId : rideIds) {
+                ps.setInt(1, rideId);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Work<T> {
+        T run() throws SQLException;
+    }
+
+    private static <T> T inTransaction(Connection con, Work<T> work) throws SQLException {
+        con.setAutoCommit(false);
+        try {
+            T result = work.run();
+            con.commit();
+            return result;
+        } catch (Exception e) {
+            con.rollback();
+            throw e;
+        } finally {
+            con.setAutoCommit(true);
         }
     }
 
-    public List<Ride> viewUserRides(int userId) throws SQLException {
-        String sql = "SELECT * FROM rides WHERE owner_id=? ORDER BY id DESC";
+    public Page<Ride> viewUserRides(int userId, PageRequest page) throws SQLException {
+        String sql = "SELECT * FROM rides WHERE owner_id=? AND id < ? ORDER BY id DESC LIMIT ?";
         try (Connection con = DBConnection.getConnection();
              PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setInt(1, userId);
-            try (ResultSet rs = ps.executeQuery()) {
-                List<Ride> rides = new ArrayList<>();
-                while (rs.next()) {
-                    rides.add(mapRide(rs));
-                }
-                return rides;
+            ps.setInt(2, page.getBeforeId());
+            ps.setInt(3, page.getFetchSize());
+            return Page.of(mapRides(ps), page, Ride::getId);
+        }
+    }
+
+    private List<Ride> mapRides(PreparedStatement ps) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            List<Ride> rides = new ArrayList<>();
+            while (rs.next()) {
+                rides.add(mapRide(rs));
             }
+            return rides;
         }
     }
 
@@ -135,7 +845,13 @@ public class RideDAO {
                 rs.getString("destination"),
                 rs.getInt("seats"),
                 rs.getInt("fare_per_seat"),
-                rs.getString("status")
+                rs.getString("status"),
+                RideRows.departureAt(rs),
+                RideRows.scheduleId(rs),
+                RideRows.point(rs, "pickup"),
+                RideRows.point(rs, "drop"),
+                List.of(),
+                rs.getInt("stop_count")
         );
     }
 }
@@ -0,0 +1,172 @@
+package dao;
+
+import db.DBConnection;
+import model.RideRequest;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class RideRequestDAO {
+
+    public int createRequest(RideRequest request) throws SQLException {
+
+        String sql = "INSERT INTO ride_requests(user_id, source, destination, seats, max_fare_per_seat, "
+                + "earliest_departure, latest_departure) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+        try (Connection con = DBConnection.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            ps.setInt(1, request.getUserId());
+            ps.setString(2, request.getSource());
+            ps.setString(3, request.getDestination());
+            ps.setInt(4, request.getSeats());
+            ps.setInt(5, request.getMaxFarePerSeat());
+            RideRows.setDeparture(ps, 6, request.getEarliestDeparture());
+            RideRows.setDeparture(ps, 7, request.getLatestDeparture());
+
+            ps.executeUpdate();
+
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+        }
+
+        throw new SQLException("Failed to create ride request");
+    }
+
+    public RideRequest getRequestById(int requestId) throws SQLException {
+        String sql = "SELECT * FROM ride_requests WHERE id=?";
+        try (Connection con = DBConnection.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, requestId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return mapRequest(rs);
+                }
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Cancels a request that has not been assigned yet; false when it is not
+     * the user's or is no longer pending.
+     */
+    public boolean cancelRequest(int requestId, int userId) throws SQLException {
+        String sql = "UPDATE ride_requests SET status='CANCELLED' WHERE id=? AND user_id=? AND status='PENDING'";
+        try (Connection con = DBConnection.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, requestId);
+            ps.setInt(2, userId);
+            return ps.executeUpdate() > 0;
+        }
+    }
+
+    public int expireRequests(LocalDateTime now) throws SQLException {
+        String sql = "UPDATE ride_requests SET status='EXPIRED' WHERE status='PENDING' AND latest_departure < ?";
+        try (Connection con = DBConnection.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setObject(1, now);
+            return ps.executeUpdate();
+        }
+    }
+
+    public List<RideRequest> findPending(int limit) throws SQLException {
+        String sql = "SELECT * FROM ride_requests WHERE status='PENDING' ORDER BY id LIMIT ?";
+        try (Connection con = DBConnection.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                List<RideRequest> requests = new ArrayList<>();
+                while (rs.next()) {
+                    requests.add(mapRequest(rs));
+                }
+                return requests;
+            }
+        }
+    }
+
+    /**
+     * Locks the requests, in id order, and returns the ids of those still
+     * pending; until the transaction ends no one else can cancel, expire or
+     * assign them.
+     */
+    public Set<Integer> lockPending(Connection con, Collection<Integer> requestIds) throws SQLException {
+        Set<Integer> pending = new HashSet<>();
+        if (requestIds.isEmpty()) {
+            return pending;
+        }
+        String placeholders = String.join(",", Collections.nCopies(requestIds.size(), "?"));
+        try (PreparedStatement ps = con.prepareStatement("SELECT id FROM ride_requests WHERE id IN (" + placeholders
+                + ") AND status='PENDING' ORDER BY id FOR UPDATE")) {
+            int index = 1;
+            for (int requestId : requestIds) {
+                ps.setInt(index++, requestId);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    pending.add(rs.getInt(1));
+                }
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Marks requests assigned in one batch, only while they are still pending.
+     * Returns false if any of them was cancelled or assigned concurrently, in
+     * which case the caller must roll back; requests locked with
+     * {@link #lockPending} cannot be.
+     */
+    public boolean markAssigned(Connection con, int[] requestIds, int[] rideIds, int[] bookingIds)
+            throws SQLException {
+        String sql = "UPDATE ride_requests SET status='ASSIGNED', ride_id=?, booking_id=? "
+                + "WHERE id=? AND status='PENDING'";
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            for (int i = 0; i < requestIds.length; i++) {
+                ps.setInt(1, rideIds[i]);
+                ps.setInt(2, bookingIds[i]);
+                ps.setInt(3, requestIds[i]);
+                ps.addBatch();
+            }
+            for (int count : ps.executeBatch()) {
+                if (count == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private RideRequest mapRequest(ResultSet rs) throws SQLException {
+        return new RideRequest(
+                rs.getInt("id"),
+                rs.getInt("user_id"),
+                rs.getString("source"),
+                rs.getString("destination"),
+                rs.getInt("seats"),
+                rs.getInt("max_fare_per_seat"),
+                RideRows.dateTime(rs, "earliest_departure"),
+                RideRows.dateTime(rs, "latest_departure"),
+                rs.getString("status"),
+                nullableInt(rs, "ride_id"),
+                nullableInt(rs, "booking_id")
+        );
+    }
+
+    private static Integer nullableInt(ResultSet rs, String column) throws SQLException {
+        int value = rs.getInt(column);
+        return rs.wasNull() ? null : value;
+    }
+}
@@ -0,0 +1,85 @@
+package dao;
+
+import model.GeoPoint;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Conversions for ride columns shared by DAOs and row writers. Departures are
+ * wall-clock DATETIME values exchanged as ISO-8601 strings ({@code 2026-10-19T08:30}).
+ */
+public class RideRows {
+
+    private static final DateTimeFormatter DEPARTURE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm");
+
+    public static String departureAt(ResultSet rs) throws SQLException {
+        return dateTime(rs, "departure_at");
+    }
+
+    static String dateTime(ResultSet rs, String column) throws SQLException {
+        LocalDateTime value = rs.getObject(column, LocalDateTime.class);
+        return value == null ? null : DEPARTURE_FORMAT.format(value);
+    }
+
+    public static String formatDeparture(LocalDateTime departure) {
+        return DEPARTURE_FORMAT.format(departure);
+    }
+
+    public static LocalDateTime parseDeparture(String departureAt) {
+        return parseDateTime(departureAt, "departureAt");
+    }
+
+    public static LocalDateTime parseDateTime(String value, String name) {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(name + " must look like 2026-10-19T08:30");
+        }
+    }
+
+    static void setDeparture(PreparedStatement ps, int index, String departureAt) throws SQLException {
+        if (departureAt == null) {
+            ps.setNull(index, Types.TIMESTAMP);
+        } else {
+            ps.setObject(index, parseDeparture(departureAt));
+        }
+    }
+
+    static void setScheduleId(PreparedStatement ps, int index, Integer scheduleId) throws SQLException {
+        if (scheduleId == null) {
+            ps.setNull(index, Types.INTEGER);
+        } else {
+            ps.setInt(index, scheduleId);
+        }
+    }
+
+    static Integer scheduleId(ResultSet rs) throws SQLException {
+        int scheduleId = rs.getInt("schedule_id");
+        return rs.wasNull() ? null : scheduleId;
+    }
+
+    public static GeoPoint point(ResultSet rs, String prefix) throws SQLException {
+        double lat = rs.getDouble(prefix + "_lat");
+        if (rs.wasNull()) {
+            return null;
+        }
+        return new GeoPoint(lat, rs.getDouble(prefix + "_lon"));
+    }
+
+    // Binds the point's latitude and longitude to two consecutive parameters.
+    static void setPoint(PreparedStatement ps, int index, GeoPoint point) throws SQLException {
+        if (point == null) {
+            ps.setNull(index, Types.DOUBLE);
+            ps.setNull(index + 1, Types.DOUBLE);
+        } else {
+            ps.setDouble(index, point.getLat());
+            ps.setDouble(index + 1, point.getLon());
+        }
+    }
+}
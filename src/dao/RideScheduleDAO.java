@@ -0,0 +1,120 @@
+package dao;
+
+import db.DBConnection;
+import model.RideSchedule;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class RideScheduleDAO {
+
+    public int createSchedule(RideSchedule schedule) throws SQLException {
+
+        String sql = "INSERT INTO ride_schedules(owner_id, source, destination, seats, fare_per_seat, days_of_week, "
+                + "departure_time, start_date, end_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        try (Connection con = DBConnection.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            ps.setInt(1, schedule.getOwnerId());
+            ps.setString(2, schedule.getSource());
+            ps.setString(3, schedule.getDestination());
+            ps.setInt(4, schedule.getSeats());
+            ps.setInt(5, schedule.getFarePerSeat());
+            ps.setInt(6, schedule.getDaysOfWeek());
+            ps.setObject(7, schedule.getDepartureTime());
+            ps.setObject(8, schedule.getStartDate());
+            if (schedule.getEndDate() == null) {
+                ps.setNull(9, Types.DATE);
+            } else {
+                ps.setObject(9, schedule.getEndDate());
+            }
+
+            ps.executeUpdate();
+
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+        }
+
+        throw new SQLException("Failed to create ride schedule");
+    }
+
+    public RideSchedule getScheduleById(int scheduleId) throws SQLException {
+        String sql = "SELECT * FROM ride_schedules WHERE id=?";
+        try (Connection con = DBConnection.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, scheduleId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return mapSchedule(rs);
+                }
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Active schedules whose expanded rides stop short of {@code horizon}.
+     */
+    public List<RideSchedule> findDueSchedules(LocalDate today, LocalDate horizon, int limit) throws SQLException {
+        String sql = "SELECT * FROM ride_schedules WHERE status='ACTIVE' "
+                + "AND (materialized_through IS NULL OR materialized_through < ?) "
+                + "AND (end_date IS NULL OR end_date >= ?) "
+                + "AND (end_date IS NULL OR materialized_through IS NULL OR materialized_through < end_date) "
+                + "ORDER BY id LIMIT ?";
+        try (Connection con = DBConnection.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setObject(1, horizon);
+            ps.setObject(2, today);
+            ps.setInt(3, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                List<RideSchedule> schedules = new ArrayList<>();
+                while (rs.next()) {
+                    schedules.add(mapSchedule(rs));
+                }
+                return schedules;
+            }
+        }
+    }
+
+    /**
+     * Advances the expansion watermark. Only moves forward, so containers
+     * expanding the same schedule concurrently cannot move it back.
+     */
+    public void markMaterialized(Connection con, int scheduleId, LocalDate through) throws SQLException {
+        String sql = "UPDATE ride_schedules SET materialized_through=? "
+                + "WHERE id=? AND (materialized_through IS NULL OR materialized_through < ?)";
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setObject(1, through);
+            ps.setInt(2, scheduleId);
+            ps.setObject(3, through);
+            ps.executeUpdate();
+        }
+    }
+
+    private RideSchedule mapSchedule(ResultSet rs) throws SQLException {
+        return new RideSchedule(
+                rs.getInt("id"),
+                rs.getInt("owner_id"),
+                rs.getString("source"),
+                rs.getString("destination"),
+                rs.getInt("seats"),
+                rs.getInt("fare_per_seat"),
+                rs.getInt("days_of_week"),
+                rs.getObject("departure_time", LocalTime.class),
+                rs.getObject("start_date", LocalDate.class),
+                rs.getObject("end_date", LocalDate.class),
+                rs.getObject("materialized_through", LocalDate.class)
+        );
+    }
+}
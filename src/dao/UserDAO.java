@@ -8,6 +8,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 public class UserDAO {
 
@@ -44,6 +48,26 @@ public class UserDAO {
         }
     }
 
+    public Set<Integer> findExistingUserIds(Connection con, Collection<Integer> userIds) throws SQLException {
+        Set<Integer> existing = new HashSet<>();
+        if (userIds.isEmpty()) {
+            return existing;
+        }
+        String placeholders = String.join(",", Collections.nCopies(userIds.size(), "?"));
+        try (PreparedStatement ps = con.prepareStatement("SELECT id FROM users WHERE id IN (" + placeholders + ")")) {
+            int index = 1;
+            for (int userId : userIds) {
+                ps.setInt(index++, userId);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    existing.add(rs.getInt(1));
+                }
+            }
+        }
+        return existing;
+    }
+
     public User getUserById(int userId) throws SQLException {
 
         String sql = "SELECT * FROM users WHERE id=?";
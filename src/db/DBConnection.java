@@ -1,19 +1,36 @@
 package db;
 
-import io.github.cdimascio.dotenv.Dotenv;
+import config.Env;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 
 public class DBConnection {
     private static final String DEFAULT_DB_NAME = "cab_booking";
-    private static final Dotenv DOTENV = Dotenv.configure()
-            .ignoreIfMissing()
-            .ignoreIfMalformed()
-            .load();
 
-    static {
+    private static String buildJdbcUrl() {
+        String url = Env.get("DB_URL", "");
+        if (!url.isBlank()) {
+            return url;
+        }
+
+        String host = Env.get("DB_HOST", "localhost");
+        String port = Env.get("DB_PORT", "3306");
+        String dbName = Env.get("DB_NAME", DEFAULT_DB_NAME);
+
+        // rewriteBatchedStatements lets Connector/J send a batch as one multi-row
+        // INSERT (or one multi-statement UPDATE) instead of a round trip per row.
+        return "jdbc:mysql://" + host + ":" + port + "/" + dbName
+                + "?serverTimezone=UTC&useSSL=false&allowPublicKeyRetrieval=true&rewriteBatchedStatements=true";
+    }
+
+    /**
+     * Loads and registers the MySQL driver. Done with the pool rather than
+     * with this class, so startup only pays for it when it is asked to.
+     */
+    public static void loadDriver() {
         try {
             Class.forName("com.mysql.cj.jdbc.Driver");
         } catch (ClassNotFoundException e) {
@@ -21,80 +38,54 @@ public class DBConnection {
         }
     }
 
-    private static String getEnvOrDefault(String key, String defaultValue) {
-        String value = System.getenv(key);
-        if (value == null || value.isBlank()) {
-            value = DOTENV.get(key);
-        }
-        return value == null || value.isBlank() ? defaultValue : value;
+    private static ConnectionPool createPool() {
+        loadDriver();
+        return new ConnectionPool(
+                buildJdbcUrl(),
+                Env.get("DB_USER", "root"),
+                Env.get("DB_PASS", "root"),
+                Env.getInt("DB_POOL_MAX_SIZE", 10),
+                Env.getInt("DB_POOL_ACQUIRE_TIMEOUT_MS", 5000),
+                Env.getInt("DB_POOL_IDLE_TIMEOUT_MS", 300000),
+                Env.getInt("DB_POOL_VALIDATION_INTERVAL_MS", 1000)
+        );
     }
 
-    private static String buildJdbcUrl() {
-        String url = getEnvOrDefault("DB_URL", "");
-        if (!url.isBlank()) {
-            return url;
-        }
-
-        String host = getEnvOrDefault("DB_HOST", "localhost");
-        String port = getEnvOrDefault("DB_PORT", "3306");
-        String dbName = getEnvOrDefault("DB_NAME", DEFAULT_DB_NAME);
-
-        return "jdbc:mysql://" + host + ":" + port + "/" + dbName
-                + "?serverTimezone=UTC&useSSL=false&allowPublicKeyRetrieval=true";
+    // Resolved on first use and kept for the lifetime of the container/process.
+    private static class PoolHolder {
+        private static final ConnectionPool POOL = createPool();
     }
 
     public static Connection getConnection() throws SQLException {
-        String username = getEnvOrDefault("DB_USER", "root");
-        String password = getEnvOrDefault("DB_PASS", "root");
-
-        return DriverManager.getConnection(buildJdbcUrl(), username, password);
+        return PoolHolder.POOL.getConnection();
     }
 
-    public static void ensureSchema() throws SQLException {
-        String usersTable = """
-                CREATE TABLE IF NOT EXISTS users (
-                    id INT PRIMARY KEY AUTO_INCREMENT,
-                    name VARCHAR(100) NOT NULL,
-                    email VARCHAR(150) NOT NULL UNIQUE,
-                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-                )
-                """;
+    public static PoolStats poolStats() {
+        return PoolHolder.POOL.stats();
+    }
 
-        String ridesTable = """
-                CREATE TABLE IF NOT EXISTS rides (
-                    id INT PRIMARY KEY AUTO_INCREMENT,
-                    owner_id INT NOT NULL,
-                    source VARCHAR(80) NOT NULL,
-                    destination VARCHAR(80) NOT NULL,
-                    seats INT NOT NULL,
-                    fare_per_seat INT NOT NULL,
-                    status VARCHAR(20) NOT NULL DEFAULT 'OPEN',
-                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                    FOREIGN KEY (owner_id) REFERENCES users(id)
-                )
-                """;
+    public static void shutdown() {
+        PoolHolder.POOL.close();
+    }
 
-        String bookingsTable = """
-                CREATE TABLE IF NOT EXISTS bookings (
-                    id INT PRIMARY KEY AUTO_INCREMENT,
-                    ride_id INT NOT NULL,
-                    user_id INT NOT NULL,
-                    seats_booked INT NOT NULL,
-                    total_fare INT NOT NULL,
-                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                    FOREIGN KEY (ride_id) REFERENCES rides(id),
-                    FOREIGN KEY (user_id) REFERENCES users(id)
-                )
-                """;
+    /**
+     * Brings the schema up to date. Migrations run once per container/process;
+     * after that this is a single volatile read.
+     */
+    public static void ensureSchema() throws SQLException {
+        SchemaMigrator.migrateOnce();
+    }
 
-        try {
-            try (Connection connection = getConnection()) {
-                connection.createStatement().execute(usersTable);
-                connection.createStatement().execute(ridesTable);
-                connection.createStatement().execute(bookingsTable);
-            }
-        } catch (SQLException e) {
-            throw new SQLException("Failed to initialize schema", e);
+    /**
+     * Checks the schema and runs one query, leaving a validated connection
+     * idle in the pool and the driver's statement classes loaded.
+     */
+    public static void prime() throws SQLException {
+        ensureSchema();
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT 1");
+             ResultSet rs = statement.executeQuery()) {
+            rs.next();
         }
     }
 }
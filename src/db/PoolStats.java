@@ -0,0 +1,40 @@
+package db;
+
+public class PoolStats {
+
+    private final int maxSize;
+    private final int active;
+    private final int idle;
+    private final int waiting;
+    private final long created;
+    private final long destroyed;
+    private final long acquired;
+    private final long timeouts;
+    private final long avgWaitMicros;
+    private final long maxWaitMicros;
+
+    public PoolStats(int maxSize, int active, int idle, int waiting, long created, long destroyed,
+                     long acquired, long timeouts, long avgWaitMicros, long maxWaitMicros) {
+        this.maxSize = maxSize;
+        this.active = active;
+        this.idle = idle;
+        this.waiting = waiting;
+        this.created = created;
+        this.destroyed = destroyed;
+        this.acquired = acquired;
+        this.timeouts = timeouts;
+        this.avgWaitMicros = avgWaitMicros;
+        this.maxWaitMicros = maxWaitMicros;
+    }
+
+    public int getMaxSize() { return maxSize; }
+    public int getActive() { return active; }
+    public int getIdle() { return idle; }
+    public int getWaiting() { return waiting; }
+    public long getCreated() { return created; }
+    public long getDestroyed() { return destroyed; }
+    public long getAcquired() { return acquired; }
+    public long getTimeouts() { return timeouts; }
+    public long getAvgWaitMicros() { return avgWaitMicros; }
+    public long getMaxWaitMicros() { return maxWaitMicros; }
+}
@@ -0,0 +1,349 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Applies ordered, versioned schema migrations and records them in
+ * {@code schema_version}. New schema changes are appended to {@link #MIGRATIONS}
+ * with the next version number; applied migrations must never be edited.
+ * MySQL commits every DDL statement on its own, so each statement of a
+ * migration is also recorded in {@code schema_migration_steps} as it
+ * completes, and a migration that failed halfway resumes after its last
+ * completed statement.
+ */
+public class SchemaMigrator {
+
+    private static final String LOCK_NAME = "cab_booking_schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 30;
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Create users, rides and bookings tables",
+                    """
+                    CREATE TABLE IF NOT EXISTS users (
+                        id INT PRIMARY KEY AUTO_INCREMENT,
+                        name VARCHAR(100) NOT NULL,
+                        email VARCHAR(150) NOT NULL UNIQUE,
+                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                    )
+                    """,
+                    """
+                    CREATE TABLE IF NOT EXISTS rides (
+                        id INT PRIMARY KEY AUTO_INCREMENT,
+                        owner_id INT NOT NULL,
+                        source VARCHAR(80) NOT NULL,
+                        destination VARCHAR(80) NOT NULL,
+                        seats INT NOT NULL,
+                        fare_per_seat INT NOT NULL,
+                        status VARCHAR(20) NOT NULL DEFAULT 'OPEN',
+                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                        FOREIGN KEY (owner_id) REFERENCES users(id)
+                    )
+                    """,
+                    """
+                    CREATE TABLE IF NOT EXISTS bookings (
+                        id INT PRIMARY KEY AUTO_INCREMENT,
+                        ride_id INT NOT NULL,
+                        user_id INT NOT NULL,
+                        seats_booked INT NOT NULL,
+                        total_fare INT NOT NULL,
+                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                        FOREIGN KEY (ride_id) REFERENCES rides(id),
+                        FOREIGN KEY (user_id) REFERENCES users(id)
+                    )
+                    """),
+            new Migration(2, "Index ride search, owner and booking lookups",
+                    "CREATE INDEX idx_rides_route ON rides(source, destination, status, seats)",
+                    "CREATE INDEX idx_rides_owner ON rides(owner_id)",
+                    "CREATE INDEX idx_bookings_user ON bookings(user_id)"),
+            new Migration(3, "Add ride departures and recurring ride schedules",
+                    "ALTER TABLE rides ADD COLUMN departure_at DATETIME NULL",
+                    "ALTER TABLE rides ADD COLUMN schedule_id INT NULL",
+                    """
+                    CREATE TABLE ride_schedules (
+                        id INT PRIMARY KEY AUTO_INCREMENT,
+                        owner_id INT NOT NULL,
+                        source VARCHAR(80) NOT NULL,
+                        destination VARCHAR(80) NOT NULL,
+                        seats INT NOT NULL,
+                        fare_per_seat INT NOT NULL,
+                        days_of_week INT NOT NULL,
+                        departure_time TIME NOT NULL,
+                        start_date DATE NOT NULL,
+                        end_date DATE NULL,
+                        materialized_through DATE NULL,
+                        status VARCHAR(20) NOT NULL DEFAULT 'ACTIVE',
+                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                        FOREIGN KEY (owner_id) REFERENCES users(id)
+                    )
+                    """,
+                    "CREATE UNIQUE INDEX uq_rides_schedule_departure ON rides(schedule_id, departure_at)",
+                    "CREATE INDEX idx_schedules_due ON ride_schedules(status, materialized_through)"),
+            new Migration(4, "Add optional pickup and drop coordinates to rides",
+                    "ALTER TABLE rides ADD COLUMN pickup_lat DOUBLE NULL",
+                    "ALTER TABLE rides ADD COLUMN pickup_lon DOUBLE NULL",
+                    "ALTER TABLE rides ADD COLUMN drop_lat DOUBLE NULL",
+                    "ALTER TABLE rides ADD COLUMN drop_lon DOUBLE NULL"),
+            new Migration(5, "Add ride waypoints with per-leg seat availability",
+                    "ALTER TABLE rides ADD COLUMN stop_count INT NOT NULL DEFAULT 2",
+                    """
+                    CREATE TABLE ride_stops (
+                        ride_id INT NOT NULL,
+                        stop_index INT NOT NULL,
+                        name VARCHAR(80) NOT NULL,
+                        PRIMARY KEY (ride_id, stop_index),
+                        FOREIGN KEY (ride_id) REFERENCES rides(id)
+                    )
+                    """,
+                    """
+                    CREATE TABLE ride_legs (
+                        ride_id INT NOT NULL,
+                        leg_index INT NOT NULL,
+                        seats_available INT NOT NULL,
+                        PRIMARY KEY (ride_id, leg_index),
+                        FOREIGN KEY (ride_id) REFERENCES rides(id)
+                    )
+                    """,
+                    "ALTER TABLE bookings ADD COLUMN from_stop INT NULL",
+                    "ALTER TABLE bookings ADD COLUMN to_stop INT NULL"),
+            new Migration(6, "Add rider ride requests for batched matching",
+                    """
+                    CREATE TABLE ride_requests (
+                        id INT PRIMARY KEY AUTO_INCREMENT,
+                        user_id INT NOT NULL,
+                        source VARCHAR(80) NOT NULL,
+                        destination VARCHAR(80) NOT NULL,
+                        seats INT NOT NULL,
+                        max_fare_per_seat INT NOT NULL,
+                        earliest_departure DATETIME NULL,
+                        latest_departure DATETIME NULL,
+                        status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+                        ride_id INT NULL,
+                        booking_id INT NULL,
+                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                        FOREIGN KEY (user_id) REFERENCES users(id)
+                    )
+                    """,
+                    "CREATE INDEX idx_ride_requests_status ON ride_requests(status, id)"),
+            new Migration(7, "Add the ride change log behind the delta sync feed",
+                    """
+                    CREATE TABLE ride_changes (
+                        seq BIGINT PRIMARY KEY AUTO_INCREMENT,
+                        ride_id INT NOT NULL,
+                        changed_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)
+                    )
+                    """,
+                    "CREATE INDEX idx_ride_changes_time ON ride_changes(changed_at)",
+                    "INSERT INTO ride_changes(ride_id) SELECT id FROM rides WHERE status='OPEN' ORDER BY id"),
+            new Migration(8, "Record the price quote each booking redeemed",
+                    "ALTER TABLE bookings ADD COLUMN quote_id VARCHAR(32) NULL",
+                    "CREATE UNIQUE INDEX uq_bookings_quote ON bookings(quote_id)"),
+            // The single-column indexes only duplicated the foreign key indexes. The
+            // composites serve the keyset pages (owner_id=? AND id<?) and take over
+            // the foreign keys, so they go in first; H2 will not move a foreign key
+            // off an index, so the drops run on MySQL only.
+            new Migration(9, "Replace owner and user indexes with keyset composites",
+                    "CREATE INDEX idx_rides_owner_id ON rides(owner_id, id)",
+                    "CREATE INDEX idx_bookings_user_id ON bookings(user_id, id)")
+                    .thenOnMySql(
+                            "DROP INDEX idx_rides_owner ON rides",
+                            "DROP INDEX idx_bookings_user ON bookings")
+    );
+
+    private static volatile boolean ready;
+
+    public static void migrateOnce() throws SQLException {
+        if (ready) {
+            return;
+        }
+        synchronized (SchemaMigrator.class) {
+            if (ready) {
+                return;
+            }
+            try (Connection connection = DBConnection.getConnection()) {
+                migrate(connection);
+            } catch (SQLTransientException e) {
+                throw e;
+            } catch (SQLException e) {
+                throw new SQLException("Failed to initialize schema", e);
+            }
+            ready = true;
+        }
+    }
+
+    public static boolean isReady() {
+        return ready;
+    }
+
+    public static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    /**
+     * Brings the schema on {@code connection} up to date. Normally reached via
+     * {@link #migrateOnce()}; benchmarks call it on an embedded database.
+     */
+    public static void migrate(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    CREATE TABLE IF NOT EXISTS schema_version (
+                        version INT PRIMARY KEY,
+                        description VARCHAR(200) NOT NULL,
+                        applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                    )
+                    """);
+            statement.execute("""
+                    CREATE TABLE IF NOT EXISTS schema_migration_steps (
+                        version INT NOT NULL,
+                        step INT NOT NULL,
+                        PRIMARY KEY (version, step)
+                    )
+                    """);
+        }
+
+        if (appliedVersions(connection).contains(latestVersion())) {
+            return;
+        }
+
+        boolean locked = acquireLock(connection);
+        try {
+            Set<Integer> applied = appliedVersions(connection);
+            for (Migration migration : MIGRATIONS) {
+                if (!applied.contains(migration.version)) {
+                    apply(connection, migration);
+                }
+            }
+        } finally {
+            if (locked) {
+                releaseLock(connection);
+            }
+        }
+    }
+
+    private static void apply(Connection connection, Migration migration) throws SQLException {
+        Set<Integer> done = completedSteps(connection, migration.version);
+        int steps = isMySql(connection) ? migration.statements.length : migration.portableSteps;
+        for (int step = 0; step < steps; step++) {
+            if (done.contains(step)) {
+                continue;
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(migration.statements[step]);
+            } catch (SQLException e) {
+                throw new SQLException("Migration " + migration.version + " failed at statement " + (step + 1)
+                        + " of " + migration.statements.length + ": " + migration.description, e);
+            }
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO schema_migration_steps(version, step) VALUES (?, ?)")) {
+                ps.setInt(1, migration.version);
+                ps.setInt(2, step);
+                ps.executeUpdate();
+            }
+        }
+
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO schema_version(version, description) VALUES (?, ?)")) {
+            ps.setInt(1, migration.version);
+            ps.setString(2, migration.description);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "DELETE FROM schema_migration_steps WHERE version=?")) {
+            ps.setInt(1, migration.version);
+            ps.executeUpdate();
+        }
+    }
+
+    private static Set<Integer> completedSteps(Connection connection, int version) throws SQLException {
+        Set<Integer> steps = new HashSet<>();
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT step FROM schema_migration_steps WHERE version=?")) {
+            ps.setInt(1, version);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    steps.add(rs.getInt(1));
+                }
+            }
+        }
+        return steps;
+    }
+
+    private static Set<Integer> appliedVersions(Connection connection) throws SQLException {
+        Set<Integer> versions = new HashSet<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT version FROM schema_version")) {
+            while (rs.next()) {
+                versions.add(rs.getInt(1));
+            }
+        }
+        return versions;
+    }
+
+    // Serializes migrations across containers starting at the same time. Databases
+    // without GET_LOCK (e.g. embedded test databases) simply run unlocked; on MySQL
+    // a lock that is not granted in time fails the attempt, and the next request
+    // that needs the schema tries again.
+    private static boolean acquireLock(Connection connection) throws SQLException {
+        if (!isMySql(connection)) {
+            return false;
+        }
+        try (PreparedStatement ps = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next() && rs.getInt(1) == 1) {
+                    return true;
+                }
+            }
+        }
+        throw new SQLTransientException("Timed out after " + LOCK_TIMEOUT_SECONDS
+                + " s waiting for another container's schema migration");
+    }
+
+    private static boolean isMySql(Connection connection) throws SQLException {
+        String product = connection.getMetaData().getDatabaseProductName();
+        return product.contains("MySQL") || product.contains("MariaDB");
+    }
+
+    private static void releaseLock(Connection connection) {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.executeQuery().close();
+        } catch (SQLException ignored) {
+            // the lock is released with the session anyway
+        }
+    }
+
+    private static class Migration {
+        private final int version;
+        private final String description;
+        private final String[] statements;
+        // Statements from this index on run on MySQL/MariaDB only.
+        private final int portableSteps;
+
+        private Migration(int version, String description, String... statements) {
+            this(version, description, statements, statements.length);
+        }
+
+        private Migration(int version, String description, String[] statements, int portableSteps) {
+            this.version = version;
+            this.description = description;
+            this.statements = statements;
+            this.portableSteps = portableSteps;
+        }
+
+        private Migration thenOnMySql(String... mySqlStatements) {
+            String[] all = Arrays.copyOf(statements, statements.length + mySqlStatements.length);
+            System.arraycopy(mySqlStatements, 0, all, statements.length, mySqlStatements.length);
+            return new Migration(version, description, all, statements.length);
+        }
+    }
+}
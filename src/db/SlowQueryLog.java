@@ -0,0 +1,325 @@
+package db;
+
+import config.Env;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+import util.VirtualThreads;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Times every execution of the prepared statements handed out by the
+ * connection pool, per statement shape: the SQL with IN lists and multi-row
+ * VALUES collapsed, so searches over different numbers of spellings count
+ * as one. Executions slower than {@code SLOW_QUERY_MS} are logged with their
+ * bound parameters, e-mail addresses redacted, and the first slow SELECT of
+ * each shape is run through {@code EXPLAIN} in the background so its plan
+ * can be read from {@code /admin/slow-queries}.
+ * <p>
+ * The same wrapper feeds the {@code dao_call} latency histograms: each
+ * execution is recorded under the DAO method that prepared the statement,
+ * looked up once from the call stack at prepare time.
+ * <p>
+ * {@code SLOW_QUERY_MS=0} turns the log and shape statistics off; only
+ * statements prepared outside the {@code dao} package are then handed out
+ * unwrapped.
+ */
+public class SlowQueryLog {
+
+    private static final long THRESHOLD_MS = Env.getInt("SLOW_QUERY_MS", 200);
+    private static final long THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(THRESHOLD_MS);
+    private static final int MAX_SHAPES = 500;
+    private static final int MAX_SPELLINGS = 2000;
+    private static final int MAX_LOGGED_VALUE = 100;
+    private static final int MAX_LOGGED_PARAMS = 50;
+
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\?(?:\\s*,\\s*\\?)+");
+    private static final Pattern REPEATED_ROWS = Pattern.compile("(\\([^()]*\\))(?:\\s*,\\s*\\1)+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final ConcurrentHashMap<String, Shape> SHAPES = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Shape> BY_SQL = new ConcurrentHashMap<>();
+    private static final ExecutorService EXPLAINER = VirtualThreads.newThreadPerTaskExecutor("explain");
+    private static final StackWalker STACK = StackWalker.getInstance();
+
+    public static boolean isEnabled() {
+        return THRESHOLD_MS > 0;
+    }
+
+    public static long thresholdMs() {
+        return THRESHOLD_MS;
+    }
+
+    /**
+     * Wraps a statement prepared from {@code sql} so its executions are
+     * timed, or returns it as is when the log is off.
+     */
+    static PreparedStatement intercept(PreparedStatement statement, String sql) {
+        if (sql.regionMatches(true, 0, "EXPLAIN", 0, 7)) {
+            return statement;
+        }
+        LatencyHistogram daoCall = daoCall();
+        if (!isEnabled() && daoCall == null) {
+            return statement;
+        }
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new TimedStatement(statement, sql, daoCall));
+    }
+
+    // Histogram of the innermost DAO method on the stack, e.g. RideDAO.searchRides
+    // (lambdas count as the method they are written in), or null outside the DAOs.
+    private static LatencyHistogram daoCall() {
+        return STACK.walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith("dao."))
+                .findFirst()
+                .map(frame -> {
+                    String method = frame.getMethodName();
+                    if (method.startsWith("lambda$")) {
+                        method = method.substring(7, method.lastIndexOf('$'));
+                    }
+                    return Metrics.dao(frame.getClassName().substring(4) + "." + method);
+                })
+                .orElse(null));
+    }
+
+    /**
+     * The {@code limit} statement shapes with the slowest single execution,
+     * slowest first.
+     */
+    public static List<SlowQueryStats> slowest(int limit) {
+        List<Shape> shapes = new ArrayList<>(SHAPES.values());
+        shapes.sort(Comparator.comparingLong((Shape shape) -> shape.maxNanos.get()).reversed());
+        List<SlowQueryStats> stats = new ArrayList<>(Math.min(limit, shapes.size()));
+        for (Shape shape : shapes.subList(0, Math.min(limit, shapes.size()))) {
+            stats.add(shape.stats());
+        }
+        return stats;
+    }
+
+    static String shapeOf(String sql) {
+        String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        shape = PLACEHOLDER_LIST.matcher(shape).replaceAll("?, ...");
+        return REPEATED_ROWS.matcher(shape).replaceAll("$1, ...");
+    }
+
+    private static void record(String sql, Object[] params, int paramCount, int batchSize, long nanos) {
+        Shape shape = shape(sql);
+        if (shape != null) {
+            shape.record(nanos);
+        }
+        if (nanos < THRESHOLD_NANOS) {
+            return;
+        }
+
+        List<String> logged = new ArrayList<>(Math.min(paramCount, MAX_LOGGED_PARAMS + 1));
+        for (int i = 0; i < Math.min(paramCount, MAX_LOGGED_PARAMS); i++) {
+            logged.add(describe(params[i]));
+        }
+        if (paramCount > MAX_LOGGED_PARAMS) {
+            logged.add("... " + (paramCount - MAX_LOGGED_PARAMS) + " more");
+        }
+        System.err.println("Slow query (" + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms"
+                + (batchSize > 0 ? ", batch of " + batchSize : "") + "): "
+                + (shape == null ? sql : shape.sql) + " params=" + logged);
+        if (shape == null) {
+            return;
+        }
+        shape.slow(logged);
+        if (sql.trim().regionMatches(true, 0, "SELECT", 0, 6) && shape.explained.compareAndSet(false, true)) {
+            Object[] bound = Arrays.copyOf(params, paramCount);
+            EXPLAINER.submit(() -> explain(shape, sql, bound));
+        }
+    }
+
+    private static Shape shape(String sql) {
+        Shape shape = BY_SQL.get(sql);
+        if (shape != null) {
+            return shape;
+        }
+        String key = shapeOf(sql);
+        shape = SHAPES.get(key);
+        if (shape == null) {
+            if (SHAPES.size() >= MAX_SHAPES) {
+                return null;
+            }
+            shape = SHAPES.computeIfAbsent(key, Shape::new);
+        }
+        if (BY_SQL.size() < MAX_SPELLINGS) {
+            BY_SQL.put(sql, shape);
+        }
+        return shape;
+    }
+
+    private static void explain(Shape shape, String sql, Object[] params) {
+        List<Map<String, String>> plan = new ArrayList<>();
+        try (Connection con = DBConnection.getConnection();
+             PreparedStatement ps = con.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                while (rs.next()) {
+                    Map<String, String> row = new LinkedHashMap<>();
+                    for (int column = 1; column <= meta.getColumnCount(); column++) {
+                        row.put(meta.getColumnLabel(column), rs.getString(column));
+                    }
+                    plan.add(row);
+                }
+            }
+        } catch (SQLException e) {
+            plan = List.of(Map.of("error", String.valueOf(e.getMessage())));
+        }
+        shape.plan = plan;
+    }
+
+    // Users are registered and looked up by e-mail; addresses must not reach the log.
+    private static String describe(Object value) {
+        if (value == null) {
+            return "NULL";
+        }
+        String text = value.toString();
+        if (value instanceof String) {
+            if (text.indexOf('@') > 0) {
+                return "'<redacted email>'";
+            }
+            if (text.length() > MAX_LOGGED_VALUE) {
+                text = text.substring(0, MAX_LOGGED_VALUE) + "...";
+            }
+            return "'" + text + "'";
+        }
+        return text;
+    }
+
+    private static final class Shape {
+        private final String sql;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LongAdder slowCount = new LongAdder();
+        private final AtomicBoolean explained = new AtomicBoolean();
+        private volatile List<String> lastSlowParams = List.of();
+        private volatile List<Map<String, String>> plan;
+
+        private Shape(String sql) {
+            this.sql = sql;
+        }
+
+        private void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+
+        private void slow(List<String> params) {
+            slowCount.increment();
+            lastSlowParams = params;
+        }
+
+        private SlowQueryStats stats() {
+            long executions = count.sum();
+            return new SlowQueryStats(sql, executions, slowCount.sum(),
+                    executions == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos.sum() / executions),
+                    TimeUnit.NANOSECONDS.toMicros(maxNanos.get()), lastSlowParams, plan);
+        }
+    }
+
+    /**
+     * Remembers the parameters bound to a statement and times its executions.
+     * Batches are logged with the parameters of their last row.
+     */
+    private static final class TimedStatement implements InvocationHandler {
+        private final PreparedStatement target;
+        private final String sql;
+        private final LatencyHistogram daoCall;
+        private Object[] params = new Object[8];
+        private int paramCount;
+        private int batchSize;
+
+        private TimedStatement(PreparedStatement target, String sql, LatencyHistogram daoCall) {
+            this.target = target;
+            this.sql = sql;
+            this.daoCall = daoCall;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                String executed = args != null && args.length > 0 && args[0] instanceof String text ? text : sql;
+                long start = System.nanoTime();
+                try {
+                    return call(method, args);
+                } finally {
+                    long nanos = System.nanoTime() - start;
+                    if (daoCall != null) {
+                        daoCall.record(nanos);
+                    }
+                    if (isEnabled()) {
+                        record(executed, params, paramCount, name.endsWith("Batch") ? batchSize : 0, nanos);
+                    }
+                    if (name.endsWith("Batch")) {
+                        batchSize = 0;
+                    }
+                }
+            }
+
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                bind(index, "setNull".equals(name) ? null : args[1]);
+            } else if ("clearParameters".equals(name)) {
+                Arrays.fill(params, 0, paramCount, null);
+                paramCount = 0;
+            } else if ("addBatch".equals(name) && args == null) {
+                batchSize++;
+            } else if ("unwrap".equals(name) && ((Class<?>) args[0]).isInstance(proxy)) {
+                return proxy;
+            }
+            return call(method, args);
+        }
+
+        private void bind(int index, Object value) {
+            if (index < 1) {
+                return;
+            }
+            if (index > params.length) {
+                params = Arrays.copyOf(params, Math.max(index, params.length * 2));
+            }
+            params[index - 1] = value;
+            paramCount = Math.max(paramCount, index);
+        }
+
+        private Object call(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
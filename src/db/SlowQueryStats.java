@@ -0,0 +1,39 @@
+package db;
+
+import java.util.List;
+import java.util.Map;
+
+public class SlowQueryStats {
+
+    private final String sql;
+    private final long count;
+    private final long slowCount;
+    private final long avgMicros;
+    private final long maxMicros;
+    private final List<String> lastSlowParams;
+    private final List<Map<String, String>> plan;
+
+    public SlowQueryStats(String sql, long count, long slowCount, long avgMicros, long maxMicros,
+                          List<String> lastSlowParams, List<Map<String, String>> plan) {
+        this.sql = sql;
+        this.count = count;
+        this.slowCount = slowCount;
+        this.avgMicros = avgMicros;
+        this.maxMicros = maxMicros;
+        this.lastSlowParams = lastSlowParams;
+        this.plan = plan;
+    }
+
+    public String getSql() { return sql; }
+    public long getCount() { return count; }
+    public long getSlowCount() { return slowCount; }
+    public long getAvgMicros() { return avgMicros; }
+    public long getMaxMicros() { return maxMicros; }
+    public List<String> getLastSlowParams() { return lastSlowParams; }
+
+    /**
+     * {@code EXPLAIN} output of the first slow SELECT of this shape, one map
+     * per plan row, or null if none has been captured.
+     */
+    public List<Map<String, String>> getPlan() { return plan; }
+}
@@ -0,0 +1,85 @@
+package db;
+
+import config.Env;
+
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Re-runs a unit of transactional work when MySQL aborts it with a deadlock
+ * (1213) or lock wait timeout (1205), sleeping a bounded, fully jittered
+ * exponential backoff between attempts. The work must roll back its own
+ * transaction before rethrowing.
+ */
+public class TransactionRetry {
+
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+    private static final int ER_LOCK_DEADLOCK = 1213;
+
+    private static final int MAX_ATTEMPTS = Env.getInt("DB_TX_MAX_ATTEMPTS", 4);
+    private static final long BASE_BACKOFF_MS = Env.getInt("DB_TX_BACKOFF_BASE_MS", 10);
+    private static final long MAX_BACKOFF_MS = Env.getInt("DB_TX_BACKOFF_MAX_MS", 200);
+
+    private static final AtomicLong retries = new AtomicLong();
+    private static final AtomicLong exhausted = new AtomicLong();
+
+    @FunctionalInterface
+    public interface Work<T> {
+        T run() throws SQLException;
+    }
+
+    public static <T> T run(Work<T> work) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return work.run();
+            } catch (SQLException e) {
+                if (!isRetryable(e)) {
+                    throw e;
+                }
+                if (attempt >= MAX_ATTEMPTS) {
+                    exhausted.incrementAndGet();
+                    throw new SQLTransactionRollbackException(
+                            "Gave up after " + attempt + " attempts due to lock contention", e.getSQLState(), e);
+                }
+                retries.incrementAndGet();
+                backoff(attempt);
+            }
+        }
+    }
+
+    public static long retries() {
+        return retries.get();
+    }
+
+    public static long exhausted() {
+        return exhausted.get();
+    }
+
+    static boolean isRetryable(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLTransactionRollbackException) {
+                return true;
+            }
+            if (t instanceof SQLException sql) {
+                int code = sql.getErrorCode();
+                if (code == ER_LOCK_DEADLOCK || code == ER_LOCK_WAIT_TIMEOUT || "40001".equals(sql.getSQLState())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void backoff(int attempt) throws SQLException {
+        long ceiling = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(attempt - 1, 16));
+        long sleepMs = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        try {
+            Thread.sleep(sleepMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while retrying transaction", e);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package geo;
+
+import model.GeoPoint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Uniform lat/lon grid over ride pickup points. Each cell holds a
+ * copy-on-write array, so queries scan only the cells overlapping the search
+ * radius without locking; writers (publish/book/cancel) are serialized.
+ * Longitude wrap-around at the antimeridian is not handled.
+ */
+public class GeoIndex {
+
+    private static final double KM_PER_DEGREE_LAT = 111.32;
+
+    private final double cellDegrees;
+    private final Map<Long, Point[]> cells = new ConcurrentHashMap<>();
+    private final Map<Integer, Point> byRide = new HashMap<>();
+
+    public GeoIndex(double cellKm) {
+        if (!(cellKm > 0)) {
+            throw new IllegalArgumentException("Cell size must be greater than zero");
+        }
+        this.cellDegrees = cellKm / KM_PER_DEGREE_LAT;
+    }
+
+    /**
+     * Adds or moves a ride. {@code drop} may be null.
+     */
+    public synchronized void put(int rideId, GeoPoint pickup, GeoPoint drop) {
+        Point point = new Point(rideId, pickup.getLat(), pickup.getLon(),
+                drop == null ? Double.NaN : drop.getLat(), drop == null ? Double.NaN : drop.getLon(),
+                cellKey(pickup.getLat(), pickup.getLon()));
+        Point previous = byRide.put(rideId, point);
+        if (previous != null) {
+            removeFromCell(previous);
+        }
+        cells.merge(point.cell, new Point[]{point}, (existing, added) -> {
+            Point[] grown = Arrays.copyOf(existing, existing.length + 1);
+            grown[existing.length] = point;
+            return grown;
+        });
+    }
+
+    public synchronized void remove(int rideId) {
+        Point previous = byRide.remove(rideId);
+        if (previous != null) {
+            removeFromCell(previous);
+        }
+    }
+
+    public synchronized int size() {
+        return byRide.size();
+    }
+
+    /**
+     * Rides whose pickup lies within {@code radiusKm} of {@code pickup} and, when
+     * {@code drop} is given, whose drop point also lies within {@code radiusKm} of
+     * it. Closest first by pickup plus drop distance, at most {@code limit}.
+     */
+    public List<GeoMatch> nearby(GeoPoint pickup, GeoPoint drop, double radiusKm, int limit) {
+        double lat = pickup.getLat();
+        double lon = pickup.getLon();
+        double latSpan = radiusKm / KM_PER_DEGREE_LAT;
+        double lonSpan = radiusKm / (KM_PER_DEGREE_LAT * Math.max(cosLat(lat), 0.01));
+
+        PriorityQueue<GeoMatch> best = new PriorityQueue<>(limit + 1,
+                Comparator.comparingDouble(GeoMatch::getScore).reversed());
+        Search search = new Search(pickup, drop, radiusKm, lat - latSpan, lat + latSpan,
+                lon - lonSpan, lon + lonSpan, limit, best);
+
+        long minLatCell = (long) Math.floor((lat - latSpan) / cellDegrees);
+        long maxLatCell = (long) Math.floor((lat + latSpan) / cellDegrees);
+        long minLonCell = (long) Math.floor((lon - lonSpan) / cellDegrees);
+        long maxLonCell = (long) Math.floor((lon + lonSpan) / cellDegrees);
+
+        // A huge radius over a sparse grid: walking the occupied cells is cheaper.
+        if ((maxLatCell - minLatCell + 1) * (maxLonCell - minLonCell + 1) > cells.size()) {
+            for (Point[] cell : cells.values()) {
+                search.scan(cell);
+            }
+        } else {
+            for (long latCell = minLatCell; latCell <= maxLatCell; latCell++) {
+                for (long lonCell = minLonCell; lonCell <= maxLonCell; lonCell++) {
+                    Point[] cell = cells.get(key(latCell, lonCell));
+                    if (cell != null) {
+                        search.scan(cell);
+                    }
+                }
+            }
+        }
+
+        List<GeoMatch> matches = new ArrayList<>(best);
+        matches.sort(Comparator.comparingDouble(GeoMatch::getScore));
+        return matches;
+    }
+
+    /**
+     * Equirectangular distance in kilometres, with {@code cosLat} the cosine of
+     * the reference latitude. Within the 50 km search radius this stays well
+     * under 1% of the great-circle distance and needs no trigonometry per point.
+     */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2, double cosLat) {
+        double dLat = lat2 - lat1;
+        double dLon = (lon2 - lon1) * cosLat;
+        return KM_PER_DEGREE_LAT * Math.sqrt(dLat * dLat + dLon * dLon);
+    }
+
+    public static double cosLat(double lat) {
+        return Math.cos(Math.toRadians(lat));
+    }
+
+    private void removeFromCell(Point point) {
+        cells.computeIfPresent(point.cell, (key, existing) -> {
+            if (existing.length == 1) {
+                return existing[0] == point ? null : existing;
+            }
+            Point[] shrunk = new Point[existing.length - 1];
+            int count = 0;
+            for (Point candidate : existing) {
+                if (candidate != point && count < shrunk.length) {
+                    shrunk[count++] = candidate;
+                }
+            }
+            return count == shrunk.length ? shrunk : existing;
+        });
+    }
+
+    private long cellKey(double lat, double lon) {
+        return key((long) Math.floor(lat / cellDegrees), (long) Math.floor(lon / cellDegrees));
+    }
+
+    private static long key(long latCell, long lonCell) {
+        return (latCell << 32) | (lonCell & 0xffffffffL);
+    }
+
+    private static final class Point {
+        private final int rideId;
+        private final double lat;
+        private final double lon;
+        private final double dropLat;
+        private final double dropLon;
+        private final long cell;
+
+        private Point(int rideId, double lat, double lon, double dropLat, double dropLon, long cell) {
+            this.rideId = rideId;
+            this.lat = lat;
+            this.lon = lon;
+            this.dropLat = dropLat;
+            this.dropLon = dropLon;
+            this.cell = cell;
+        }
+    }
+
+    private static final class Search {
+        private final GeoPoint pickup;
+        private final GeoPoint drop;
+        private final double radiusKm;
+        private final double minLat;
+        private final double maxLat;
+        private final double minLon;
+        private final double maxLon;
+        private final int limit;
+        private final PriorityQueue<GeoMatch> best;
+        private final double pickupCos;
+        private final double dropCos;
+
+        private Search(GeoPoint pickup, GeoPoint drop, double radiusKm, double minLat, double maxLat,
+                       double minLon, double maxLon, int limit, PriorityQueue<GeoMatch> best) {
+            this.pickup = pickup;
+            this.drop = drop;
+            this.radiusKm = radiusKm;
+            this.minLat = minLat;
+            this.maxLat = maxLat;
+            this.minLon = minLon;
+            this.maxLon = maxLon;
+            this.limit = limit;
+            this.best = best;
+            this.pickupCos = cosLat(pickup.getLat());
+            this.dropCos = drop == null ? 0 : cosLat(drop.getLat());
+        }
+
+        private void scan(Point[] cell) {
+            for (Point point : cell) {
+                // Bounding-box reject before computing the distance.
+                if (point.lat < minLat || point.lat > maxLat || point.lon < minLon || point.lon > maxLon) {
+                    continue;
+                }
+                double pickupKm = distanceKm(pickup.getLat(), pickup.getLon(), point.lat, point.lon, pickupCos);
+                if (pickupKm > radiusKm) {
+                    continue;
+                }
+                Double dropKm = null;
+                if (drop != null) {
+                    if (Double.isNaN(point.dropLat)) {
+                        continue;
+                    }
+                    dropKm = distanceKm(drop.getLat(), drop.getLon(), point.dropLat, point.dropLon, dropCos);
+                    if (dropKm > radiusKm) {
+                        continue;
+                    }
+                }
+                double score = dropKm == null ? pickupKm : pickupKm + dropKm;
+                if (best.size() < limit) {
+                    best.add(new GeoMatch(point.rideId, pickupKm, dropKm, score));
+                } else if (score < best.peek().getScore()) {
+                    best.poll();
+                    best.add(new GeoMatch(point.rideId, pickupKm, dropKm, score));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package geo;
+
+public class GeoMatch {
+
+    private final int rideId;
+    private final double pickupDistanceKm;
+    private final Double dropDistanceKm;
+    private final double score;
+
+    public GeoMatch(int rideId, double pickupDistanceKm, Double dropDistanceKm, double score) {
+        this.rideId = rideId;
+        this.pickupDistanceKm = pickupDistanceKm;
+        this.dropDistanceKm = dropDistanceKm;
+        this.score = score;
+    }
+
+    public int getRideId() { return rideId; }
+    public double getPickupDistanceKm() { return pickupDistanceKm; }
+    public Double getDropDistanceKm() { return dropDistanceKm; }
+    public double getScore() { return score; }
+}
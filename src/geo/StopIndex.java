@@ -0,0 +1,166 @@
+package geo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Inverted index from stop name to the rides that call there. Each stop has
+ * a postings list of ride ids (ascending) with the stop's position on that
+ * ride, so matching a trip intersects two postings lists instead of scanning
+ * every open ride. Postings are immutable views over arrays that only grow
+ * past their visible size, so queries never lock and appending a newer
+ * (higher) ride id is amortized O(1); writers are serialized.
+ */
+public class StopIndex {
+
+    private static final Postings EMPTY = new Postings(new int[0], new int[0], 0);
+
+    private final Function<String, String> keyOf;
+    private final Map<String, Postings> byStop = new ConcurrentHashMap<>();
+    private final Map<Integer, String[]> stopsByRide = new ConcurrentHashMap<>();
+
+    /**
+     * @param keyOf maps a stop name to the key it is indexed under, so that
+     *              spellings of the same place meet in one postings list
+     */
+    public StopIndex(Function<String, String> keyOf) {
+        this.keyOf = keyOf;
+    }
+
+    /**
+     * Indexes (or re-indexes) a ride's ordered stops, source first.
+     */
+    public synchronized void put(int rideId, List<String> stops) {
+        remove(rideId);
+        String[] names = stops.toArray(new String[0]);
+        stopsByRide.put(rideId, names);
+        for (int i = 0; i < names.length; i++) {
+            String key = keyOf.apply(names[i]);
+            byStop.put(key, byStop.getOrDefault(key, EMPTY).with(rideId, i));
+        }
+    }
+
+    public synchronized void remove(int rideId) {
+        String[] names = stopsByRide.remove(rideId);
+        if (names == null) {
+            return;
+        }
+        for (String name : names) {
+            String key = keyOf.apply(name);
+            Postings postings = byStop.get(key);
+            if (postings != null) {
+                Postings remaining = postings.without(rideId);
+                if (remaining.size() == 0) {
+                    byStop.remove(key);
+                } else {
+                    byStop.put(key, remaining);
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return stopsByRide.size();
+    }
+
+    /**
+     * The ride's stops as indexed, or null when the ride is not indexed.
+     */
+    public List<String> stops(int rideId) {
+        String[] names = stopsByRide.get(rideId);
+        return names == null ? null : Arrays.asList(names);
+    }
+
+    /**
+     * Rides that call at {@code from} and later at {@code to}, newest ride first,
+     * at most {@code limit}.
+     */
+    public List<StopMatch> match(String from, String to, int limit) {
+        Postings origins = byStop.getOrDefault(keyOf.apply(from), EMPTY);
+        Postings destinations = byStop.getOrDefault(keyOf.apply(to), EMPTY);
+        boolean walkOrigins = origins.size() <= destinations.size();
+        Postings walked = walkOrigins ? origins : destinations;
+        Postings probed = walkOrigins ? destinations : origins;
+
+        List<StopMatch> matches = new ArrayList<>(Math.min(limit, walked.size()));
+        for (int i = walked.size - 1; i >= 0 && matches.size() < limit; i--) {
+            int rideId = walked.rideIds[i];
+            int j = Arrays.binarySearch(probed.rideIds, 0, probed.size, rideId);
+            if (j < 0) {
+                continue;
+            }
+            int fromStop = walkOrigins ? walked.positions[i] : probed.positions[j];
+            int toStop = walkOrigins ? probed.positions[j] : walked.positions[i];
+            if (fromStop < toStop) {
+                matches.add(new StopMatch(rideId, fromStop, toStop));
+            }
+        }
+        return matches;
+    }
+
+    private static final class Postings {
+        private final int[] rideIds;
+        private final int[] positions;
+        private final int size;
+
+        private Postings(int[] rideIds, int[] positions, int size) {
+            this.rideIds = rideIds;
+            this.positions = positions;
+            this.size = size;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        // A ride calls at a place at most once; a repeated name keeps its first position.
+        private Postings with(int rideId, int position) {
+            if (size == 0 || rideId > rideIds[size - 1]) {
+                // Slots past size are invisible to readers of this version, so the
+                // newest version may fill them in place.
+                int[] ids = rideIds;
+                int[] pos = positions;
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(rideIds, Math.max(4, size * 2));
+                    pos = Arrays.copyOf(positions, ids.length);
+                }
+                ids[size] = rideId;
+                pos[size] = position;
+                return new Postings(ids, pos, size + 1);
+            }
+
+            int at = Arrays.binarySearch(rideIds, 0, size, rideId);
+            if (at >= 0) {
+                return this;
+            }
+            int insert = -at - 1;
+            int[] ids = new int[size + 1];
+            int[] pos = new int[size + 1];
+            System.arraycopy(rideIds, 0, ids, 0, insert);
+            System.arraycopy(positions, 0, pos, 0, insert);
+            ids[insert] = rideId;
+            pos[insert] = position;
+            System.arraycopy(rideIds, insert, ids, insert + 1, size - insert);
+            System.arraycopy(positions, insert, pos, insert + 1, size - insert);
+            return new Postings(ids, pos, size + 1);
+        }
+
+        private Postings without(int rideId) {
+            int at = Arrays.binarySearch(rideIds, 0, size, rideId);
+            if (at < 0) {
+                return this;
+            }
+            int[] ids = new int[size - 1];
+            int[] pos = new int[size - 1];
+            System.arraycopy(rideIds, 0, ids, 0, at);
+            System.arraycopy(positions, 0, pos, 0, at);
+            System.arraycopy(rideIds, at + 1, ids, at, size - at - 1);
+            System.arraycopy(positions, at + 1, pos, at, size - at - 1);
+            return new Postings(ids, pos, size - 1);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package geo;
+
+public class StopMatch {
+
+    private final int rideId;
+    private final int fromStop;
+    private final int toStop;
+
+    public StopMatch(int rideId, int fromStop, int toStop) {
+        this.rideId = rideId;
+        this.fromStop = fromStop;
+        this.toStop = toStop;
+    }
+
+    public int getRideId() { return rideId; }
+    public int getFromStop() { return fromStop; }
+    public int getToStop() { return toStop; }
+}
@@ -0,0 +1,73 @@
+package json;
+
+import com.google.gson.stream.JsonWriter;
+import dao.RideRows;
+import model.Booking;
+import model.BookingWithRide;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class BookingJson {
+
+    public static void write(JsonWriter out, Booking booking) throws IOException {
+        out.beginObject();
+        writeFields(out, booking);
+        out.endObject();
+    }
+
+    public static void write(JsonWriter out, BookingWithRide row) throws IOException {
+        Booking booking = row.getBooking();
+        out.beginObject();
+        writeFields(out, booking);
+        out.name("ride").beginObject();
+        out.name("id").value(booking.getRideId());
+        out.name("ownerId").value(row.getOwnerId());
+        out.name("source").value(row.getSource());
+        out.name("destination").value(row.getDestination());
+        out.name("status").value(row.getRideStatus());
+        Json.nameValue(out, "departureAt", row.getDepartureAt());
+        out.endObject();
+        out.endObject();
+    }
+
+    public static void writeRowWithRide(JsonWriter out, ResultSet rs) throws IOException, SQLException {
+        out.beginObject();
+        writeRowFields(out, rs);
+        out.name("ride").beginObject();
+        out.name("id").value(rs.getInt("ride_id"));
+        out.name("ownerId").value(rs.getInt("owner_id"));
+        out.name("source").value(rs.getString("source"));
+        out.name("destination").value(rs.getString("destination"));
+        out.name("status").value(rs.getString("ride_status"));
+        Json.nameValue(out, "departureAt", RideRows.departureAt(rs));
+        out.endObject();
+        out.endObject();
+    }
+
+    private static void writeFields(JsonWriter out, Booking booking) throws IOException {
+        out.name("id").value(booking.getId());
+        out.name("rideId").value(booking.getRideId());
+        out.name("userId").value(booking.getUserId());
+        out.name("seatsBooked").value(booking.getSeatsBooked());
+        out.name("totalFare").value(booking.getTotalFare());
+        if (booking.getFromStop() != null) {
+            out.name("fromStop").value(booking.getFromStop());
+            out.name("toStop").value(booking.getToStop());
+        }
+    }
+
+    private static void writeRowFields(JsonWriter out, ResultSet rs) throws IOException, SQLException {
+        out.name("id").value(rs.getInt("id"));
+        out.name("rideId").value(rs.getInt("ride_id"));
+        out.name("userId").value(rs.getInt("user_id"));
+        out.name("seatsBooked").value(rs.getInt("seats_booked"));
+        out.name("totalFare").value(rs.getInt("total_fare"));
+        int fromStop = rs.getInt("from_stop");
+        if (!rs.wasNull()) {
+            out.name("fromStop").value(fromStop);
+            out.name("toStop").value(rs.getInt("to_stop"));
+        }
+    }
+}
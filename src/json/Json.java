@@ -0,0 +1,87 @@
+package json;
+
+import com.google.gson.stream.JsonWriter;
+import model.Page;
+import model.PageRequest;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class Json {
+
+    @FunctionalInterface
+    public interface Body {
+        void write(JsonWriter out) throws IOException, SQLException;
+    }
+
+    @FunctionalInterface
+    public interface ItemWriter<T> {
+        void write(JsonWriter out, T item) throws IOException;
+    }
+
+    /**
+     * Renders a JSON document written directly against a {@link JsonWriter}.
+     */
+    public static String write(Body body) throws SQLException {
+        StringWriter buffer = new StringWriter(1024);
+        try (JsonWriter out = new JsonWriter(buffer)) {
+            body.write(out);
+        } catch (IOException e) {
+            // StringWriter does not perform I/O
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Streams a keyset page ({@code {"items":[...],"nextCursor":"..."}}) straight
+     * from a result set fetched with {@link PageRequest#getFetchSize()} rows.
+     * The look-ahead row is not written; it only decides the next cursor.
+     */
+    public static void writePage(JsonWriter out, ResultSet rs, PageRequest page, RowWriter rowWriter)
+            throws IOException, SQLException {
+        out.beginObject();
+        out.name("items").beginArray();
+        int written = 0;
+        int lastId = 0;
+        boolean more = false;
+        while (rs.next()) {
+            if (written == page.getLimit()) {
+                more = true;
+                break;
+            }
+            lastId = rs.getInt("id");
+            rowWriter.write(out, rs);
+            written++;
+        }
+        out.endArray();
+        if (more) {
+            out.name("nextCursor").value(PageRequest.encodeCursor(lastId));
+        }
+        out.endObject();
+    }
+
+    /**
+     * Writes an already loaded page in the same shape as the streamed one.
+     */
+    public static <T> void writePage(JsonWriter out, Page<T> page, ItemWriter<T> itemWriter) throws IOException {
+        out.beginObject();
+        out.name("items").beginArray();
+        for (T item : page.getItems()) {
+            itemWriter.write(out, item);
+        }
+        out.endArray();
+        nameValue(out, "nextCursor", page.getNextCursor());
+        out.endObject();
+    }
+
+    // Gson omits null fields; keep that behaviour for hand-written writers.
+    static void nameValue(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package json;
+
+import com.google.gson.stream.JsonWriter;
+import dao.RideRows;
+import model.GeoPoint;
+import model.Ride;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Reflection-free JSON for rides; field names and order match the Gson output
+ * clients already consume.
+ */
+public class RideJson {
+
+    public static void write(JsonWriter out, Ride ride) throws IOException {
+        out.beginObject();
+        writeFields(out, ride);
+        out.endObject();
+    }
+
+    /**
+     * A ride found by location, with its distances from the requested points.
+     */
+    public static void writeNearby(JsonWriter out, Ride ride, double pickupDistanceKm, Double dropDistanceKm)
+            throws IOException {
+        out.beginObject();
+        writeFields(out, ride);
+        out.name("pickupDistanceKm").value(roundKm(pickupDistanceKm));
+        if (dropDistanceKm != null) {
+            out.name("dropDistanceKm").value(roundKm(dropDistanceKm));
+        }
+        out.endObject();
+    }
+
+    /**
+     * A ride matched between two of its stops, with the seats free and the
+     * per-seat fare for that part of the route.
+     */
+    public static void writeMatch(JsonWriter out, Ride ride, List<String> stops, int fromStop, int toStop,
+                                  int seatsAvailable, int segmentFarePerSeat) throws IOException {
+        out.beginObject();
+        writeFields(out, ride);
+        if (stops != null) {
+            out.name("stops").beginArray();
+            for (String stop : stops) {
+                out.value(stop);
+            }
+            out.endArray();
+        }
+        out.name("fromStop").value(fromStop);
+        out.name("toStop").value(toStop);
+        out.name("seatsAvailable").value(seatsAvailable);
+        out.name("segmentFarePerSeat").value(segmentFarePerSeat);
+        out.endObject();
+    }
+
+    private static void writeFields(JsonWriter out, Ride ride) throws IOException {
+        out.name("id").value(ride.getId());
+        out.name("ownerId").value(ride.getOwnerId());
+        Json.nameValue(out, "source", ride.getSource());
+        Json.nameValue(out, "destination", ride.getDestination());
+        out.name("seats").value(ride.getSeats());
+        out.name("farePerSeat").value(ride.getFarePerSeat());
+        Json.nameValue(out, "status", ride.getStatus());
+        Json.nameValue(out, "departureAt", ride.getDepartureAt());
+        if (ride.getScheduleId() != null) {
+            out.name("scheduleId").value(ride.getScheduleId());
+        }
+        writePoint(out, "pickup", ride.getPickup());
+        writePoint(out, "drop", ride.getDrop());
+        if (ride.getStopCount() > 2) {
+            out.name("stopCount").value(ride.getStopCount());
+        }
+    }
+
+    public static void writeRow(JsonWriter out, ResultSet rs) throws IOException, SQLException {
+        out.beginObject();
+        out.name("id").value(rs.getInt("id"));
+        out.name("ownerId").value(rs.getInt("owner_id"));
+        Json.nameValue(out, "source", rs.getString("source"));
+        Json.nameValue(out, "destination", rs.getString("destination"));
+        out.name("seats").value(rs.getInt("seats"));
+        out.name("farePerSeat").value(rs.getInt("fare_per_seat"));
+        Json.nameValue(out, "status", rs.getString("status"));
+        Json.nameValue(out, "departureAt", RideRows.departureAt(rs));
+        int scheduleId = rs.getInt("schedule_id");
+        if (!rs.wasNull()) {
+            out.name("scheduleId").value(scheduleId);
+        }
+        writePoint(out, "pickup", RideRows.point(rs, "pickup"));
+        writePoint(out, "drop", RideRows.point(rs, "drop"));
+        int stopCount = rs.getInt("stop_count");
+        if (stopCount > 2) {
+            out.name("stopCount").value(stopCount);
+        }
+        out.endObject();
+    }
+
+    /**
+     * A ride that left the open listing (cancelled or full), for delta sync.
+     */
+    public static void writeTombstone(JsonWriter out, ResultSet rs) throws IOException, SQLException {
+        out.beginObject();
+        out.name("id").value(rs.getInt("id"));
+        Json.nameValue(out, "status", rs.getString("status"));
+        out.name("seats").value(rs.getInt("seats"));
+        out.name("removed").value(true);
+        out.endObject();
+    }
+
+    private static void writePoint(JsonWriter out, String prefix, GeoPoint point) throws IOException {
+        if (point != null) {
+            out.name(prefix + "Lat").value(point.getLat());
+            out.name(prefix + "Lon").value(point.getLon());
+        }
+    }
+
+    private static double roundKm(double km) {
+        return Math.round(km * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,12 @@
+package json;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface RowWriter {
+    void write(JsonWriter out, ResultSet rs) throws IOException, SQLException;
+}
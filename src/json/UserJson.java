@@ -0,0 +1,17 @@
+package json;
+
+import com.google.gson.stream.JsonWriter;
+import model.User;
+
+import java.io.IOException;
+
+public class UserJson {
+
+    public static void write(JsonWriter out, User user) throws IOException {
+        out.beginObject();
+        out.name("id").value(user.getId());
+        Json.nameValue(out, "name", user.getName());
+        Json.nameValue(out, "email", user.getEmail());
+        out.endObject();
+    }
+}
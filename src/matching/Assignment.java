@@ -0,0 +1,24 @@
+package matching;
+
+public class Assignment {
+
+    private final String route;
+    private final int requestId;
+    private final int userId;
+    private final int rideId;
+    private final int seats;
+
+    public Assignment(String route, int requestId, int userId, int rideId, int seats) {
+        this.route = route;
+        this.requestId = requestId;
+        this.userId = userId;
+        this.rideId = rideId;
+        this.seats = seats;
+    }
+
+    public String getRoute() { return route; }
+    public int getRequestId() { return requestId; }
+    public int getUserId() { return userId; }
+    public int getRideId() { return rideId; }
+    public int getSeats() { return seats; }
+}
@@ -0,0 +1,169 @@
+package matching;
+
+import model.Ride;
+import model.RideRequest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * Plans which pending ride requests go on which open rides. Requests and
+ * rides are partitioned by route, and no request can use a ride on another
+ * route, so partitions are planned independently (in parallel on a
+ * fork/join pool). Within a partition it is a bin-packing problem with
+ * per-ride capacity; best-fit decreasing (largest parties first, each onto
+ * the eligible ride it fills most tightly) keeps large parties from being
+ * stranded by singles spread over every ride. Planning touches no shared
+ * state; seats are only taken when the plan is booked.
+ */
+public class RideAssigner {
+
+    private final Function<String, String> keyOf;
+
+    /**
+     * @param keyOf maps a place name to its route key, so that spellings of
+     *              the same place land in one partition
+     */
+    public RideAssigner(Function<String, String> keyOf) {
+        this.keyOf = keyOf;
+    }
+
+    /**
+     * Plans the assignments, on {@code pool} when given or on the calling
+     * thread otherwise. Results are grouped by route.
+     */
+    public List<Assignment> assign(List<RideRequest> requests, List<Ride> rides, ForkJoinPool pool) {
+        List<Partition> partitions = partition(requests, rides);
+        if (partitions.isEmpty()) {
+            return List.of();
+        }
+        if (pool == null) {
+            List<Assignment> assignments = new ArrayList<>();
+            for (Partition partition : partitions) {
+                assignments.addAll(partition.assign());
+            }
+            return assignments;
+        }
+        return pool.invoke(new PlanTask(partitions, 0, partitions.size()));
+    }
+
+    // Only routes that have both demand and supply become partitions. Names
+    // repeat heavily across a round, so each distinct spelling is keyed once.
+    private List<Partition> partition(List<RideRequest> requests, List<Ride> rides) {
+        Map<String, String> keys = new HashMap<>();
+
+        Map<String, List<Ride>> ridesByRoute = new HashMap<>();
+        for (Ride ride : rides) {
+            if (ride.getSeats() > 0) {
+                String route = routeKey(keys, ride.getSource(), ride.getDestination());
+                ridesByRoute.computeIfAbsent(route, key -> new ArrayList<>()).add(ride);
+            }
+        }
+        Map<String, Partition> partitions = new HashMap<>();
+        for (RideRequest request : requests) {
+            String route = routeKey(keys, request.getSource(), request.getDestination());
+            List<Ride> routeRides = ridesByRoute.get(route);
+            if (routeRides != null) {
+                partitions.computeIfAbsent(route, key -> new Partition(key, routeRides)).requests.add(request);
+            }
+        }
+        return new ArrayList<>(partitions.values());
+    }
+
+    private String routeKey(Map<String, String> keys, String source, String destination) {
+        return keys.computeIfAbsent(source, keyOf) + '\u0000' + keys.computeIfAbsent(destination, keyOf);
+    }
+
+    private static final class Partition {
+        private final String route;
+        private final List<Ride> rides;
+        private final List<RideRequest> requests = new ArrayList<>();
+        private final Map<String, LocalDateTime> parsed = new HashMap<>();
+
+        private Partition(String route, List<Ride> rides) {
+            this.route = route;
+            this.rides = rides;
+        }
+
+        private List<Assignment> assign() {
+            int count = rides.size();
+            int[] remaining = new int[count];
+            LocalDateTime[] departures = new LocalDateTime[count];
+            for (int i = 0; i < count; i++) {
+                remaining[i] = rides.get(i).getSeats();
+                departures[i] = parse(rides.get(i).getDepartureAt());
+            }
+
+            requests.sort(Comparator.comparingInt(RideRequest::getSeats).reversed()
+                    .thenComparingInt(RideRequest::getId));
+
+            List<Assignment> assignments = new ArrayList<>();
+            for (RideRequest request : requests) {
+                LocalDateTime earliest = parse(request.getEarliestDeparture());
+                LocalDateTime latest = parse(request.getLatestDeparture());
+                int seats = request.getSeats();
+                int best = -1;
+                for (int i = 0; i < count; i++) {
+                    if (remaining[i] < seats || rides.get(i).getFarePerSeat() > request.getMaxFarePerSeat()) {
+                        continue;
+                    }
+                    // A ride without a departure time is flexible and fits any window.
+                    LocalDateTime departure = departures[i];
+                    if (departure != null && ((earliest != null && departure.isBefore(earliest))
+                            || (latest != null && departure.isAfter(latest)))) {
+                        continue;
+                    }
+                    if (best < 0 || remaining[i] < remaining[best]) {
+                        best = i;
+                        if (remaining[i] == seats) {
+                            break;
+                        }
+                    }
+                }
+                if (best >= 0) {
+                    remaining[best] -= seats;
+                    assignments.add(new Assignment(route, request.getId(), request.getUserId(),
+                            rides.get(best).getId(), seats));
+                }
+            }
+            return assignments;
+        }
+
+        private LocalDateTime parse(String value) {
+            return value == null ? null : parsed.computeIfAbsent(value, LocalDateTime::parse);
+        }
+    }
+
+    private static final class PlanTask extends RecursiveTask<List<Assignment>> {
+        private final List<Partition> partitions;
+        private final int from;
+        private final int to;
+
+        private PlanTask(List<Partition> partitions, int from, int to) {
+            this.partitions = partitions;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Assignment> compute() {
+            if (to - from == 1) {
+                return partitions.get(from).assign();
+            }
+            int mid = (from + to) >>> 1;
+            PlanTask left = new PlanTask(partitions, from, mid);
+            left.fork();
+            List<Assignment> right = new PlanTask(partitions, mid, to).compute();
+            List<Assignment> assignments = new ArrayList<>(left.join());
+            assignments.addAll(right);
+            return assignments;
+        }
+    }
+}
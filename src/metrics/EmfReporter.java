@@ -0,0 +1,177 @@
+package metrics;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes what the registry recorded since the previous report as CloudWatch
+ * Embedded Metric Format log lines, which Lambda ships to CloudWatch Logs and
+ * CloudWatch turns into metrics without any API calls from the function.
+ * <p>
+ * Latencies are sent as value/count distributions (the histogram's non-empty
+ * buckets, in milliseconds), so CloudWatch can compute percentiles across
+ * containers. Each series with activity gets one line.
+ */
+public final class EmfReporter {
+
+    // CloudWatch accepts at most 100 distinct values per metric and line.
+    private static final int MAX_VALUES = 100;
+
+    private final String namespace;
+    private final long intervalNanos;
+    private final PrintStream sink;
+    private final AtomicLong nextReportNanos = new AtomicLong(System.nanoTime());
+    private final AtomicBoolean reporting = new AtomicBoolean();
+    private final Map<Metrics.Series, HistogramSnapshot> lastHistograms = new HashMap<>();
+    private final Map<String, long[]> lastStatuses = new HashMap<>();
+
+    public EmfReporter(String namespace, long intervalMs, PrintStream sink) {
+        this.namespace = namespace;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+        this.sink = sink;
+    }
+
+    /**
+     * Reports if at least the interval has passed since the last report.
+     * Meant to be called at the end of each invocation.
+     */
+    public void reportIfDue() {
+        long now = System.nanoTime();
+        long next = nextReportNanos.get();
+        if (now - next >= 0 && nextReportNanos.compareAndSet(next, now + intervalNanos)) {
+            report();
+        }
+    }
+
+    public void report() {
+        if (!reporting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long timestamp = System.currentTimeMillis();
+            for (Metrics.Series series : Metrics.series()) {
+                HistogramSnapshot current = series.histogram.snapshot();
+                HistogramSnapshot last = lastHistograms.put(series, current);
+                HistogramSnapshot delta = last == null ? current : current.minus(last);
+                if (delta.getCount() > 0) {
+                    sink.println(distributionLine(timestamp, series, delta));
+                }
+            }
+            for (Map.Entry<String, StatusCounts> entry : Metrics.statuses().entrySet()) {
+                long[] current = entry.getValue().snapshot();
+                long[] last = lastStatuses.put(entry.getKey(), current);
+                for (int status = 0; status < current.length; status++) {
+                    long delta = current[status] - (last == null ? 0 : last[status]);
+                    if (delta > 0) {
+                        sink.println(countLine(timestamp, entry.getKey(), status, delta));
+                    }
+                }
+            }
+        } finally {
+            reporting.set(false);
+        }
+    }
+
+    private String distributionLine(long timestamp, Metrics.Series series, HistogramSnapshot delta) {
+        double[] values = new double[LatencyHistogram.BUCKETS];
+        long[] counts = new long[LatencyHistogram.BUCKETS];
+        int[] size = new int[1];
+        delta.forEachBucket((nanos, count) -> {
+            values[size[0]] = nanos / 1e6;
+            counts[size[0]++] = count;
+        });
+        int buckets = merge(values, counts, size[0]);
+
+        return json(out -> {
+            writeHeader(out, timestamp, new String[]{series.label}, series.family, "Milliseconds");
+            out.name(series.label).value(series.value);
+            out.name(series.family).beginObject();
+            out.name("Values").beginArray();
+            for (int i = 0; i < buckets; i++) {
+                out.value(values[i]);
+            }
+            out.endArray();
+            out.name("Counts").beginArray();
+            for (int i = 0; i < buckets; i++) {
+                out.value(counts[i]);
+            }
+            out.endArray();
+            out.endObject();
+        });
+    }
+
+    private String countLine(long timestamp, String route, int status, long count) {
+        return json(out -> {
+            writeHeader(out, timestamp, new String[]{"route", "status"}, "http_responses", "Count");
+            out.name("route").value(route);
+            out.name("status").value(String.valueOf(status));
+            out.name("http_responses").value(count);
+        });
+    }
+
+    private void writeHeader(JsonWriter out, long timestamp, String[] dimensions, String metric, String unit)
+            throws IOException {
+        out.name("_aws").beginObject();
+        out.name("Timestamp").value(timestamp);
+        out.name("CloudWatchMetrics").beginArray().beginObject();
+        out.name("Namespace").value(namespace);
+        out.name("Dimensions").beginArray().beginArray();
+        for (String dimension : dimensions) {
+            out.value(dimension);
+        }
+        out.endArray().endArray();
+        out.name("Metrics").beginArray().beginObject();
+        out.name("Name").value(metric);
+        out.name("Unit").value(unit);
+        out.endObject().endArray();
+        out.endObject().endArray();
+        out.endObject();
+    }
+
+    // Folds neighbouring buckets together, count-weighted, until at most
+    // MAX_VALUES remain.
+    private static int merge(double[] values, long[] counts, int size) {
+        if (size <= MAX_VALUES) {
+            return size;
+        }
+        int group = (size + MAX_VALUES - 1) / MAX_VALUES;
+        int merged = 0;
+        for (int start = 0; start < size; start += group) {
+            double weighted = 0;
+            long total = 0;
+            for (int i = start; i < Math.min(size, start + group); i++) {
+                weighted += values[i] * counts[i];
+                total += counts[i];
+            }
+            values[merged] = weighted / total;
+            counts[merged++] = total;
+        }
+        return merged;
+    }
+
+    private static String json(Body body) {
+        StringWriter buffer = new StringWriter(512);
+        try (JsonWriter out = new JsonWriter(buffer)) {
+            out.beginObject();
+            body.write(out);
+            out.endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toString();
+    }
+
+    @FunctionalInterface
+    private interface Body {
+        void write(JsonWriter out) throws IOException;
+    }
+}
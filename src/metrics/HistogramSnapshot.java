@@ -0,0 +1,91 @@
+package metrics;
+
+/**
+ * Point-in-time copy of a {@link LatencyHistogram}. Snapshots subtract, so
+ * exporters can report what happened since their previous one.
+ */
+public final class HistogramSnapshot {
+
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    HistogramSnapshot(long[] counts, long sum, long max) {
+        this.counts = counts;
+        this.sum = sum;
+        this.max = max;
+        long total = 0;
+        for (long bucket : counts) {
+            total += bucket;
+        }
+        this.count = total;
+    }
+
+    public long getCount() { return count; }
+    public long getSumNanos() { return sum; }
+
+    /**
+     * Largest value recorded over the histogram's lifetime; deltas keep the
+     * maximum of the later snapshot.
+     */
+    public long getMaxNanos() { return max; }
+
+    /**
+     * A value at least as large as the {@code quantile} of the recorded
+     * ones, within a bucket's width, or 0 when nothing was recorded.
+     */
+    public long quantile(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Number of recorded values in buckets that lie entirely at or below
+     * {@code nanos}.
+     */
+    public long countAtOrBelow(long nanos) {
+        long total = 0;
+        for (int i = 0; i < counts.length && LatencyHistogram.upperBound(i) <= nanos; i++) {
+            total += counts[i];
+        }
+        return total;
+    }
+
+    /**
+     * Recorded values bucket by bucket: {@code visitor} gets each non-empty
+     * bucket's midpoint and count, smallest first.
+     */
+    public void forEachBucket(BucketVisitor visitor) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                long low = LatencyHistogram.lowerBound(i);
+                long high = i == counts.length - 1 ? low : LatencyHistogram.upperBound(i);
+                visitor.visit(low + (high - low) / 2, counts[i]);
+            }
+        }
+    }
+
+    public HistogramSnapshot minus(HistogramSnapshot earlier) {
+        long[] delta = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            delta[i] = counts[i] - earlier.counts[i];
+        }
+        return new HistogramSnapshot(delta, sum - earlier.sum, max);
+    }
+
+    @FunctionalInterface
+    public interface BucketVisitor {
+        void visit(long nanos, long count);
+    }
+}
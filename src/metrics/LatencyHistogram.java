@@ -0,0 +1,82 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram in nanoseconds with log-linear buckets, as in
+ * HdrHistogram: values below 32 ns get a bucket each, and every power of two
+ * above that is split into 16 buckets, so any recorded value is known to
+ * within 1/16 (about 6%). Values up to 2^40 ns (18 minutes) are told apart;
+ * longer ones land in the last bucket.
+ * <p>
+ * Recording is two atomic adds and, rarely, a CAS for the maximum: no locks
+ * and no allocation, so it is safe on every request.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int LINEAR = SUB_COUNT * 2;
+    private static final int MAX_EXPONENT = 40;
+    static final int BUCKETS = ((MAX_EXPONENT - SUB_BITS) << SUB_BITS) + SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        counts.incrementAndGet(index(nanos));
+        sum.addAndGet(Math.max(0, nanos));
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos)) {
+            current = max.get();
+        }
+    }
+
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * A copy of the counts so far. Concurrent recordings may or may not be
+     * included, and the sum may lag the counts by a few of them.
+     */
+    public HistogramSnapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new HistogramSnapshot(copy, sum.get(), max.get());
+    }
+
+    static int index(long nanos) {
+        if (nanos < LINEAR) {
+            return (int) Math.max(0, nanos);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int shift = exponent - SUB_BITS;
+        return (shift << SUB_BITS) + (int) (nanos >>> shift);
+    }
+
+    /**
+     * Smallest value that lands in bucket {@code index}.
+     */
+    static long lowerBound(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int shift = (index >>> SUB_BITS) - 1;
+        return ((long) (index & (SUB_COUNT - 1)) + SUB_COUNT) << shift;
+    }
+
+    /**
+     * Largest value that lands in bucket {@code index}.
+     */
+    static long upperBound(int index) {
+        return index == BUCKETS - 1 ? Long.MAX_VALUE : lowerBound(index + 1) - 1;
+    }
+}
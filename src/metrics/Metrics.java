@@ -0,0 +1,84 @@
+package metrics;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Process-wide registry of latency histograms and status counters. Look a
+ * series up once, typically into a static final field, and record into it
+ * directly; only the lookup touches the registry.
+ * <p>
+ * Every histogram belongs to a family and carries one label, e.g. family
+ * {@code dao_call} with {@code method="RideDAO.searchRides"}. Exporters turn
+ * the family and label into metric and dimension names.
+ */
+public final class Metrics {
+
+    public static final String ROUTE = "http_request";
+    public static final String DAO = "dao_call";
+    public static final String PHASE = "request_phase";
+
+    private static final ConcurrentHashMap<String, Series> BY_KEY = new ConcurrentHashMap<>();
+    private static final List<Series> SERIES = new CopyOnWriteArrayList<>();
+    private static final ConcurrentHashMap<String, StatusCounts> STATUSES = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Time spent in one API route, from routing to the finished response.
+     */
+    public static LatencyHistogram route(String route) {
+        return histogram(ROUTE, "route", route);
+    }
+
+    /**
+     * Time spent executing the statements one DAO method prepared, named
+     * {@code Class.method}; one sample per execution.
+     */
+    public static LatencyHistogram dao(String method) {
+        return histogram(DAO, "method", method);
+    }
+
+    /**
+     * Time spent in one step shared by many requests, such as waiting for a
+     * connection.
+     */
+    public static LatencyHistogram phase(String phase) {
+        return histogram(PHASE, "phase", phase);
+    }
+
+    public static StatusCounts statuses(String route) {
+        return STATUSES.computeIfAbsent(route, ignored -> new StatusCounts());
+    }
+
+    static List<Series> series() {
+        return SERIES;
+    }
+
+    static ConcurrentHashMap<String, StatusCounts> statuses() {
+        return STATUSES;
+    }
+
+    private static LatencyHistogram histogram(String family, String label, String value) {
+        return BY_KEY.computeIfAbsent(family + '\0' + value, ignored -> {
+            Series series = new Series(family, label, value);
+            SERIES.add(series);
+            return series;
+        }).histogram;
+    }
+
+    static final class Series {
+        final String family;
+        final String label;
+        final String value;
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        private Series(String family, String label, String value) {
+            this.family = family;
+            this.label = label;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package metrics;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders the registry in the Prometheus text exposition format. Latencies
+ * become {@code <family>_duration_seconds} histograms with fixed bounds, so
+ * they can be aggregated across instances; response counts become
+ * {@code http_responses_total{route,status}}.
+ */
+public final class PrometheusFormat {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final String[] BOUNDS_SECONDS = {
+            "0.0001", "0.00025", "0.0005", "0.001", "0.0025", "0.005", "0.01", "0.025", "0.05", "0.1", "0.25", "0.5",
+            "1", "2.5", "5", "10"};
+    private static final String[] FAMILIES = {Metrics.ROUTE, Metrics.DAO, Metrics.PHASE};
+
+    private PrometheusFormat() {
+    }
+
+    public static String render() {
+        StringBuilder out = new StringBuilder(16384);
+        for (String family : FAMILIES) {
+            String name = family + "_duration_seconds";
+            out.append("# TYPE ").append(name).append(" histogram\n");
+            for (Metrics.Series series : Metrics.series()) {
+                if (series.family.equals(family)) {
+                    writeHistogram(out, name, series);
+                }
+            }
+        }
+
+        out.append("# TYPE http_responses_total counter\n");
+        for (Map.Entry<String, StatusCounts> entry : Metrics.statuses().entrySet()) {
+            long[] counts = entry.getValue().snapshot();
+            for (int status = 0; status < counts.length; status++) {
+                if (counts[status] > 0) {
+                    out.append("http_responses_total{route=\"").append(escape(entry.getKey()))
+                            .append("\",status=\"").append(status).append("\"} ").append(counts[status]).append('\n');
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    private static void writeHistogram(StringBuilder out, String name, Metrics.Series series) {
+        HistogramSnapshot snapshot = series.histogram.snapshot();
+        String labels = series.label + "=\"" + escape(series.value) + "\"";
+        for (String bound : BOUNDS_SECONDS) {
+            long nanos = (long) (Double.parseDouble(bound) * TimeUnit.SECONDS.toNanos(1));
+            out.append(name).append("_bucket{").append(labels).append(",le=\"").append(bound).append("\"} ")
+                    .append(snapshot.countAtOrBelow(nanos)).append('\n');
+        }
+        out.append(name).append("_bucket{").append(labels).append(",le=\"+Inf\"} ")
+                .append(snapshot.getCount()).append('\n');
+        out.append(name).append("_sum{").append(labels).append("} ")
+                .append(snapshot.getSumNanos() / 1e9).append('\n');
+        out.append(name).append("_count{").append(labels).append("} ")
+                .append(snapshot.getCount()).append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
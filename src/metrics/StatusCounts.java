@@ -0,0 +1,38 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Responses by HTTP status code, one atomic counter per code.
+ */
+public final class StatusCounts {
+
+    private static final int CODES = 600;
+
+    private final AtomicLongArray counts = new AtomicLongArray(CODES);
+
+    public void increment(int status) {
+        if (status >= 0 && status < CODES) {
+            counts.incrementAndGet(status);
+        }
+    }
+
+    public long[] snapshot() {
+        long[] copy = new long[CODES];
+        for (int i = 0; i < CODES; i++) {
+            copy[i] = counts.get(i);
+        }
+        return copy;
+    }
+
+    /**
+     * Responses with a status of 400 or above.
+     */
+    public long errors() {
+        long total = 0;
+        for (int i = 400; i < CODES; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,23 @@
+package model;
+
+import java.util.List;
+
+public class BatchBookingResult {
+
+    private final String mode;
+    private final boolean committed;
+    private final int booked;
+    private final List<BookingOutcome> results;
+
+    public BatchBookingResult(String mode, boolean committed, int booked, List<BookingOutcome> results) {
+        this.mode = mode;
+        this.committed = committed;
+        this.booked = booked;
+        this.results = results;
+    }
+
+    public String getMode() { return mode; }
+    public boolean isCommitted() { return committed; }
+    public int getBooked() { return booked; }
+    public List<BookingOutcome> getResults() { return results; }
+}
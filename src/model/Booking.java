@@ -7,6 +7,8 @@ public class Booking {
     private int userId;
     private int seatsBooked;
     private int totalFare;
+    private Integer fromStop;
+    private Integer toStop;
 
     public Booking(int rideId, int userId, int seatsBooked, int totalFare) {
         this.rideId = rideId;
@@ -23,9 +25,24 @@ public class Booking {
         this.totalFare = totalFare;
     }
 
+    public Booking(int rideId, int userId, int seatsBooked, int totalFare, Integer fromStop, Integer toStop) {
+        this(rideId, userId, seatsBooked, totalFare);
+        this.fromStop = fromStop;
+        this.toStop = toStop;
+    }
+
+    public Booking(int id, int rideId, int userId, int seatsBooked, int totalFare, Integer fromStop, Integer toStop) {
+        this(id, rideId, userId, seatsBooked, totalFare);
+        this.fromStop = fromStop;
+        this.toStop = toStop;
+    }
+
     public int getId() { return id; }
     public int getRideId() { return rideId; }
     public int getUserId() { return userId; }
     public int getSeatsBooked() { return seatsBooked; }
     public int getTotalFare() { return totalFare; }
+    /** Stop indexes of a partial booking on a ride with waypoints; null for whole-route direct bookings. */
+    public Integer getFromStop() { return fromStop; }
+    public Integer getToStop() { return toStop; }
 }
@@ -0,0 +1,38 @@
+package model;
+
+public class BookingOutcome {
+
+    public static final String BOOKED = "BOOKED";
+    public static final String FAILED = "FAILED";
+    public static final String ROLLED_BACK = "ROLLED_BACK";
+
+    private final int index;
+    private final int rideId;
+    private final int userId;
+    private final int seats;
+    private final String status;
+    private final Integer bookingId;
+    private final Integer totalFare;
+    private final String error;
+
+    public BookingOutcome(int index, int rideId, int userId, int seats, String status,
+                          Integer bookingId, Integer totalFare, String error) {
+        this.index = index;
+        this.rideId = rideId;
+        this.userId = userId;
+        this.seats = seats;
+        this.status = status;
+        this.bookingId = bookingId;
+        this.totalFare = totalFare;
+        this.error = error;
+    }
+
+    public int getIndex() { return index; }
+    public int getRideId() { return rideId; }
+    public int getUserId() { return userId; }
+    public int getSeats() { return seats; }
+    public String getStatus() { return status; }
+    public Integer getBookingId() { return bookingId; }
+    public Integer getTotalFare() { return totalFare; }
+    public String getError() { return error; }
+}
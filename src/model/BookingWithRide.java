@@ -0,0 +1,32 @@
+package model;
+
+/**
+ * Read model for booking history: a booking plus the ride fields needed to
+ * show it, loaded in one join instead of a ride lookup per booking.
+ */
+public class BookingWithRide {
+
+    private final Booking booking;
+    private final int ownerId;
+    private final String source;
+    private final String destination;
+    private final String rideStatus;
+    private final String departureAt;
+
+    public BookingWithRide(Booking booking, int ownerId, String source, String destination,
+                           String rideStatus, String departureAt) {
+        this.booking = booking;
+        this.ownerId = ownerId;
+        this.source = source;
+        this.destination = destination;
+        this.rideStatus = rideStatus;
+        this.departureAt = departureAt;
+    }
+
+    public Booking getBooking() { return booking; }
+    public int getOwnerId() { return ownerId; }
+    public String getSource() { return source; }
+    public String getDestination() { return destination; }
+    public String getRideStatus() { return rideStatus; }
+    public String getDepartureAt() { return departureAt; }
+}
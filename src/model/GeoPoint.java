@@ -0,0 +1,28 @@
+package model;
+
+public class GeoPoint {
+
+    private final double lat;
+    private final double lon;
+
+    public GeoPoint(double lat, double lon) {
+        this.lat = lat;
+        this.lon = lon;
+    }
+
+    /**
+     * Both values or neither; anything else, or a coordinate out of range, is a client error.
+     */
+    public static GeoPoint of(Double lat, Double lon, String latName, String lonName) {
+        if (lat == null && lon == null) {
+            return null;
+        }
+        if (lat == null || lon == null || !(lat >= -90 && lat <= 90) || !(lon >= -180 && lon <= 180)) {
+            throw new IllegalArgumentException(latName + " and " + lonName + " must both be set to a valid coordinate");
+        }
+        return new GeoPoint(lat, lon);
+    }
+
+    public double getLat() { return lat; }
+    public double getLon() { return lon; }
+}
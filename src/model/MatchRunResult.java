@@ -0,0 +1,44 @@
+package model;
+
+public class MatchRunResult {
+
+    private final boolean skipped;
+    private final int expired;
+    private final int pending;
+    private final int openRides;
+    private final int planned;
+    private final int assigned;
+    private final int seatsFilled;
+    private final int conflicts;
+    private final long planMillis;
+    private final long totalMillis;
+
+    public MatchRunResult(boolean skipped, int expired, int pending, int openRides, int planned, int assigned,
+                          int seatsFilled, int conflicts, long planMillis, long totalMillis) {
+        this.skipped = skipped;
+        this.expired = expired;
+        this.pending = pending;
+        this.openRides = openRides;
+        this.planned = planned;
+        this.assigned = assigned;
+        this.seatsFilled = seatsFilled;
+        this.conflicts = conflicts;
+        this.planMillis = planMillis;
+        this.totalMillis = totalMillis;
+    }
+
+    public static MatchRunResult skipped() {
+        return new MatchRunResult(true, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    public boolean isSkipped() { return skipped; }
+    public int getExpired() { return expired; }
+    public int getPending() { return pending; }
+    public int getOpenRides() { return openRides; }
+    public int getPlanned() { return planned; }
+    public int getAssigned() { return assigned; }
+    public int getSeatsFilled() { return seatsFilled; }
+    public int getConflicts() { return conflicts; }
+    public long getPlanMillis() { return planMillis; }
+    public long getTotalMillis() { return totalMillis; }
+}
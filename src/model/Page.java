@@ -0,0 +1,30 @@
+package model;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+public class Page<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    public Page(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Builds a page from rows fetched with {@link PageRequest#getFetchSize()}:
+     * the extra look-ahead row is dropped and turned into a next cursor.
+     */
+    public static <T> Page<T> of(List<T> rows, PageRequest request, ToIntFunction<T> idOf) {
+        if (rows.size() <= request.getLimit()) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = rows.subList(0, request.getLimit());
+        return new Page<>(items, PageRequest.encodeCursor(idOf.applyAsInt(items.get(items.size() - 1))));
+    }
+
+    public List<T> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+}
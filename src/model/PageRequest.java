@@ -0,0 +1,75 @@
+package model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset page position: rows with an id strictly below {@code beforeId},
+ * newest first. Cursors are opaque to clients.
+ */
+public class PageRequest {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 100;
+
+    private static final String CURSOR_PREFIX = "id:";
+
+    private final int beforeId;
+    private final int limit;
+
+    public PageRequest(int beforeId, int limit) {
+        this.beforeId = beforeId;
+        this.limit = limit;
+    }
+
+    public static PageRequest first() {
+        return new PageRequest(Integer.MAX_VALUE, DEFAULT_LIMIT);
+    }
+
+    public static PageRequest of(String cursor, String limit) {
+        return new PageRequest(decodeCursor(cursor), parseLimit(limit));
+    }
+
+    public static String encodeCursor(int lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return Integer.MAX_VALUE;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            if (decoded.startsWith(CURSOR_PREFIX)) {
+                return Integer.parseInt(decoded.substring(CURSOR_PREFIX.length()));
+            }
+        } catch (IllegalArgumentException ignored) {
+            // falls through to the error below; NumberFormatException is an IllegalArgumentException
+        }
+        throw new IllegalArgumentException("Invalid cursor");
+    }
+
+    private static int parseLimit(String limit) {
+        if (limit == null || limit.isBlank()) {
+            return DEFAULT_LIMIT;
+        }
+        try {
+            int value = Integer.parseInt(limit.trim());
+            if (value > 0) {
+                return Math.min(value, MAX_LIMIT);
+            }
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        throw new IllegalArgumentException("limit must be a positive integer");
+    }
+
+    public int getBeforeId() { return beforeId; }
+    public int getLimit() { return limit; }
+
+    /**
+     * DAOs fetch one row past the limit to learn whether another page exists.
+     */
+    public int getFetchSize() { return limit + 1; }
+}
@@ -0,0 +1,47 @@
+package model;
+
+/**
+ * A price offered for booking seats on a ride, locked in until
+ * {@code expiresAt} by presenting {@code quoteToken} with the booking.
+ */
+public class Quote {
+
+    private final transient String quoteId;
+    private final int rideId;
+    private final int userId;
+    private final int seats;
+    private final Integer fromStop;
+    private final Integer toStop;
+    private final int baseFare;
+    private final int totalFare;
+    private final double surgeMultiplier;
+    private final String expiresAt;
+    private final String quoteToken;
+
+    public Quote(String quoteId, int rideId, int userId, int seats, Integer fromStop, Integer toStop,
+                 int baseFare, int totalFare, double surgeMultiplier, String expiresAt, String quoteToken) {
+        this.quoteId = quoteId;
+        this.rideId = rideId;
+        this.userId = userId;
+        this.seats = seats;
+        this.fromStop = fromStop;
+        this.toStop = toStop;
+        this.baseFare = baseFare;
+        this.totalFare = totalFare;
+        this.surgeMultiplier = surgeMultiplier;
+        this.expiresAt = expiresAt;
+        this.quoteToken = quoteToken;
+    }
+
+    public String getQuoteId() { return quoteId; }
+    public int getRideId() { return rideId; }
+    public int getUserId() { return userId; }
+    public int getSeats() { return seats; }
+    public Integer getFromStop() { return fromStop; }
+    public Integer getToStop() { return toStop; }
+    public int getBaseFare() { return baseFare; }
+    public int getTotalFare() { return totalFare; }
+    public double getSurgeMultiplier() { return surgeMultiplier; }
+    public String getExpiresAt() { return expiresAt; }
+    public String getQuoteToken() { return quoteToken; }
+}
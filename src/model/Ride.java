@@ -1,27 +1,26 @@
 package model;
 
-public class Ride {
+import java.util.List;
 
-    private int id;
-    private int ownerId;
-    private String source;
-    private String destination;
-    private int seats;
-    private int farePerSeat;
-    private String status;
+public class Ride {
 
-    public Ride(int ownerId, String source, String destination,
-                int seats, int farePerSeat) {
-        this.ownerId = ownerId;
-        this.source = source;
-        this.destination = destination;
-        this.seats = seats;
-        this.farePerSeat = farePerSeat;
-        this.status = "OPEN";
-    }
+    private final int id;
+    private final int ownerId;
+    private final String source;
+    private final String destination;
+    private final int seats;
+    private final int farePerSeat;
+    private final String status;
+    private final String departureAt;
+    private final Integer scheduleId;
+    private final GeoPoint pickup;
+    private final GeoPoint drop;
+    private final List<String> waypoints;
+    private final int stopCount;
 
-    public Ride(int id, int ownerId, String source, String destination,
-                int seats, int farePerSeat, String status) {
+    public Ride(int id, int ownerId, String source, String destination, int seats, int farePerSeat,
+                String status, String departureAt, Integer scheduleId, GeoPoint pickup, GeoPoint drop,
+                List<String> waypoints, int stopCount) {
         this.id = id;
         this.ownerId = ownerId;
         this.source = source;
@@ -29,6 +28,46 @@ public class Ride {
         this.seats = seats;
         this.farePerSeat = farePerSeat;
         this.status = status;
+        this.departureAt = departureAt;
+        this.scheduleId = scheduleId;
+        this.pickup = pickup;
+        this.drop = drop;
+        this.waypoints = waypoints;
+        this.stopCount = stopCount;
+    }
+
+    /**
+     * A ride about to be published by its owner, not yet assigned an id.
+     */
+    public static Ride toPublish(int ownerId, String source, String destination, int seats, int farePerSeat,
+                                 String departureAt, GeoPoint pickup, GeoPoint drop, List<String> waypoints) {
+        return new Ride(0, ownerId, source, destination, seats, farePerSeat, "OPEN", departureAt, null,
+                pickup, drop, waypoints, waypoints.size() + 2);
+    }
+
+    /**
+     * One departure of a recurring schedule, not yet assigned an id.
+     */
+    public static Ride scheduled(RideSchedule schedule, String departureAt) {
+        return new Ride(0, schedule.getOwnerId(), schedule.getSource(), schedule.getDestination(),
+                schedule.getSeats(), schedule.getFarePerSeat(), "OPEN", departureAt, schedule.getId(),
+                null, null, List.of(), 2);
+    }
+
+    /**
+     * This ride as stored under {@code id}.
+     */
+    public Ride withId(int id) {
+        return new Ride(id, ownerId, source, destination, seats, farePerSeat, status, departureAt, scheduleId,
+                pickup, drop, waypoints, stopCount);
+    }
+
+    /**
+     * Fare per seat between two stops, prorated by the number of legs travelled.
+     */
+    public int segmentFare(int fromStop, int toStop) {
+        int legs = stopCount - 1;
+        return (farePerSeat * (toStop - fromStop) + legs - 1) / legs;
     }
 
     public int getId() { return id; }
@@ -38,4 +77,12 @@ public class Ride {
     public int getSeats() { return seats; }
     public int getFarePerSeat() { return farePerSeat; }
     public String getStatus() { return status; }
+    public String getDepartureAt() { return departureAt; }
+    public Integer getScheduleId() { return scheduleId; }
+    public GeoPoint getPickup() { return pickup; }
+    public GeoPoint getDrop() { return drop; }
+    /** Intermediate stops given at publish time; not loaded when reading rides back. */
+    public List<String> getWaypoints() { return waypoints; }
+    /** Source, waypoints and destination; 2 for a direct ride. */
+    public int getStopCount() { return stopCount; }
 }
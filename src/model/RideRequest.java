@@ -0,0 +1,50 @@
+package model;
+
+public class RideRequest {
+
+    private int id;
+    private int userId;
+    private String source;
+    private String destination;
+    private int seats;
+    private int maxFarePerSeat;
+    private String earliestDeparture;
+    private String latestDeparture;
+    private String status;
+    private Integer rideId;
+    private Integer bookingId;
+
+    public RideRequest(int userId, String source, String destination, int seats, int maxFarePerSeat,
+                       String earliestDeparture, String latestDeparture) {
+        this.userId = userId;
+        this.source = source;
+        this.destination = destination;
+        this.seats = seats;
+        this.maxFarePerSeat = maxFarePerSeat;
+        this.earliestDeparture = earliestDeparture;
+        this.latestDeparture = latestDeparture;
+        this.status = "PENDING";
+    }
+
+    public RideRequest(int id, int userId, String source, String destination, int seats, int maxFarePerSeat,
+                       String earliestDeparture, String latestDeparture, String status,
+                       Integer rideId, Integer bookingId) {
+        this(userId, source, destination, seats, maxFarePerSeat, earliestDeparture, latestDeparture);
+        this.id = id;
+        this.status = status;
+        this.rideId = rideId;
+        this.bookingId = bookingId;
+    }
+
+    public int getId() { return id; }
+    public int getUserId() { return userId; }
+    public String getSource() { return source; }
+    public String getDestination() { return destination; }
+    public int getSeats() { return seats; }
+    public int getMaxFarePerSeat() { return maxFarePerSeat; }
+    public String getEarliestDeparture() { return earliestDeparture; }
+    public String getLatestDeparture() { return latestDeparture; }
+    public String getStatus() { return status; }
+    public Integer getRideId() { return rideId; }
+    public Integer getBookingId() { return bookingId; }
+}
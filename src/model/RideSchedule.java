@@ -0,0 +1,56 @@
+package model;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Recurring ride template. {@code daysOfWeek} is a bitmask with Monday as bit 0
+ * through Sunday as bit 6.
+ */
+public class RideSchedule {
+
+    private int id;
+    private int ownerId;
+    private String source;
+    private String destination;
+    private int seats;
+    private int farePerSeat;
+    private int daysOfWeek;
+    private LocalTime departureTime;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private LocalDate materializedThrough;
+
+    public RideSchedule(int ownerId, String source, String destination, int seats, int farePerSeat,
+                        int daysOfWeek, LocalTime departureTime, LocalDate startDate, LocalDate endDate) {
+        this.ownerId = ownerId;
+        this.source = source;
+        this.destination = destination;
+        this.seats = seats;
+        this.farePerSeat = farePerSeat;
+        this.daysOfWeek = daysOfWeek;
+        this.departureTime = departureTime;
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    public RideSchedule(int id, int ownerId, String source, String destination, int seats, int farePerSeat,
+                        int daysOfWeek, LocalTime departureTime, LocalDate startDate, LocalDate endDate,
+                        LocalDate materializedThrough) {
+        this(ownerId, source, destination, seats, farePerSeat, daysOfWeek, departureTime, startDate, endDate);
+        this.id = id;
+        this.materializedThrough = materializedThrough;
+    }
+
+    public int getId() { return id; }
+    public int getOwnerId() { return ownerId; }
+    public String getSource() { return source; }
+    public String getDestination() { return destination; }
+    public int getSeats() { return seats; }
+    public int getFarePerSeat() { return farePerSeat; }
+    public int getDaysOfWeek() { return daysOfWeek; }
+    public LocalTime getDepartureTime() { return departureTime; }
+    public LocalDate getStartDate() { return startDate; }
+    public LocalDate getEndDate() { return endDate; }
+    public LocalDate getMaterializedThrough() { return materializedThrough; }
+}
@@ -0,0 +1,64 @@
+package pricing;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Per-route {@link RouteDemand}, shared by every spelling of a route. Routes
+ * are keyed through {@code keyOf} so aliases count together, but the
+ * canonical key is computed only the first time a spelling is seen: after
+ * that a lookup is two hash probes on the caller's own strings, with no
+ * allocation. Route and spelling counts are capped; past the cap, new routes
+ * are not tracked and {@link #route} returns null.
+ */
+public final class DemandTracker {
+
+    private final Function<String, String> keyOf;
+    private final long windowMillis;
+    private final int buckets;
+    private final int maxRoutes;
+    private final Map<String, RouteDemand> byRoute = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, RouteDemand>> bySpelling = new ConcurrentHashMap<>();
+    private final AtomicInteger spellings = new AtomicInteger();
+
+    public DemandTracker(Function<String, String> keyOf, long windowMillis, int buckets, int maxRoutes) {
+        this.keyOf = keyOf;
+        this.windowMillis = windowMillis;
+        this.buckets = buckets;
+        this.maxRoutes = maxRoutes;
+    }
+
+    public RouteDemand route(String source, String destination) {
+        Map<String, RouteDemand> destinations = bySpelling.get(source);
+        if (destinations != null) {
+            RouteDemand demand = destinations.get(destination);
+            if (demand != null) {
+                return demand;
+            }
+        }
+        return register(source, destination);
+    }
+
+    public int size() {
+        return byRoute.size();
+    }
+
+    private RouteDemand register(String source, String destination) {
+        String key = keyOf.apply(source) + '\u0000' + keyOf.apply(destination);
+        RouteDemand demand = byRoute.get(key);
+        if (demand == null) {
+            if (byRoute.size() >= maxRoutes) {
+                return null;
+            }
+            demand = byRoute.computeIfAbsent(key, k -> new RouteDemand(windowMillis, buckets));
+        }
+        // Unknown spellings of a tracked route still resolve, just not from the fast path.
+        if (spellings.get() < maxRoutes * 4
+                && bySpelling.computeIfAbsent(source, s -> new ConcurrentHashMap<>()).putIfAbsent(destination, demand) == null) {
+            spellings.incrementAndGet();
+        }
+        return demand;
+    }
+}
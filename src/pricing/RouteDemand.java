@@ -0,0 +1,66 @@
+package pricing;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Demand and supply statistics of one route: search hits and booking
+ * attempts over a sliding window, and the seats still open on the route.
+ * Seats remaining is a level rather than an event rate; it is refreshed from
+ * MySQL by whoever wins {@link #claimSupplyRefresh} and adjusted in between
+ * as this container books seats.
+ */
+public final class RouteDemand {
+
+    private final SlidingWindowCounter searches;
+    private final SlidingWindowCounter attempts;
+    private final AtomicLong seatsRemaining = new AtomicLong(-1);
+    private final AtomicLong nextSupplyRefreshNanos = new AtomicLong(System.nanoTime());
+
+    RouteDemand(long windowMillis, int buckets) {
+        this.searches = new SlidingWindowCounter(windowMillis, buckets);
+        this.attempts = new SlidingWindowCounter(windowMillis, buckets);
+    }
+
+    public void recordSearch(long nowMillis) {
+        searches.add(nowMillis, 1);
+    }
+
+    public void recordAttempt(long nowMillis) {
+        attempts.add(nowMillis, 1);
+    }
+
+    public long searches(long nowMillis) {
+        return searches.sum(nowMillis);
+    }
+
+    public long attempts(long nowMillis) {
+        return attempts.sum(nowMillis);
+    }
+
+    /**
+     * Open seats on the route as last seen, or -1 before the first refresh.
+     */
+    public long seatsRemaining() {
+        return seatsRemaining.get();
+    }
+
+    public void setSeatsRemaining(long seats) {
+        seatsRemaining.set(seats);
+    }
+
+    public void seatsBooked(int seats) {
+        long current;
+        do {
+            current = seatsRemaining.get();
+        } while (current > 0 && !seatsRemaining.compareAndSet(current, Math.max(0, current - seats)));
+    }
+
+    /**
+     * True for at most one caller per interval, who should then refresh the
+     * seats remaining. The first call after creation always wins.
+     */
+    public boolean claimSupplyRefresh(long nowNanos, long intervalNanos) {
+        long next = nextSupplyRefreshNanos.get();
+        return nowNanos - next >= 0 && nextSupplyRefreshNanos.compareAndSet(next, nowNanos + intervalNanos);
+    }
+}
@@ -0,0 +1,53 @@
+package pricing;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free event count over a sliding time window, kept as a ring of
+ * fixed-width buckets. Each slot packs the bucket's epoch (high 32 bits) and
+ * its count (low 32 bits) into one long, so recycling a stale bucket and
+ * counting into it is a single CAS: no locks and no allocation per event.
+ * The window slides a bucket at a time, so sums are exact to within one
+ * bucket width.
+ */
+public final class SlidingWindowCounter {
+
+    private static final long LOW_BITS = 0xffffffffL;
+
+    private final AtomicLongArray slots;
+    private final long bucketMillis;
+
+    public SlidingWindowCounter(long windowMillis, int buckets) {
+        if (buckets <= 0 || windowMillis < buckets) {
+            throw new IllegalArgumentException("A window needs at least one millisecond per bucket");
+        }
+        this.slots = new AtomicLongArray(buckets);
+        this.bucketMillis = windowMillis / buckets;
+    }
+
+    public void add(long nowMillis, int delta) {
+        long epoch = (nowMillis / bucketMillis) & LOW_BITS;
+        int index = (int) (epoch % slots.length());
+        while (true) {
+            long slot = slots.get(index);
+            long next = slot >>> 32 == epoch ? slot + delta : epoch << 32 | delta;
+            if (slots.compareAndSet(index, slot, next)) {
+                return;
+            }
+        }
+    }
+
+    public long sum(long nowMillis) {
+        long epoch = (nowMillis / bucketMillis) & LOW_BITS;
+        int buckets = slots.length();
+        long sum = 0;
+        for (int i = 0; i < buckets; i++) {
+            long slot = slots.get(i);
+            long age = (epoch - (slot >>> 32)) & LOW_BITS;
+            if (age < buckets) {
+                sum += slot & LOW_BITS;
+            }
+        }
+        return sum;
+    }
+}
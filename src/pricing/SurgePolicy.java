@@ -0,0 +1,47 @@
+package pricing;
+
+/**
+ * Turns a route's demand and supply into a fare multiplier, in basis points
+ * so fares stay integer. Demand is booking attempts plus searches at
+ * {@code searchWeight} each; once demand per open seat passes
+ * {@code threshold}, the multiplier grows by {@code step} per unit above it,
+ * capped at {@code maxMultiplier}.
+ */
+public final class SurgePolicy {
+
+    public static final int BASIS = 10000;
+
+    private final double threshold;
+    private final double step;
+    private final double maxMultiplier;
+    private final double searchWeight;
+
+    public SurgePolicy(double threshold, double step, double maxMultiplier, double searchWeight) {
+        if (!(maxMultiplier >= 1) || !(step >= 0) || !(threshold >= 0) || !(searchWeight >= 0)) {
+            throw new IllegalArgumentException("Surge settings must be non-negative with a maximum of at least 1");
+        }
+        this.threshold = threshold;
+        this.step = step;
+        this.maxMultiplier = maxMultiplier;
+        this.searchWeight = searchWeight;
+    }
+
+    /**
+     * {@link #BASIS} (no surge) while supply is still unknown, i.e. negative.
+     */
+    public int multiplier(long searches, long attempts, long seatsRemaining) {
+        if (seatsRemaining < 0) {
+            return BASIS;
+        }
+        double demandPerSeat = (attempts + searches * searchWeight) / Math.max(1, seatsRemaining);
+        double multiplier = 1 + step * (demandPerSeat - threshold);
+        return (int) Math.round(Math.max(1, Math.min(maxMultiplier, multiplier)) * BASIS);
+    }
+
+    /**
+     * {@code fare} scaled by {@code multiplier} basis points, rounded up.
+     */
+    public static int apply(int fare, int multiplier) {
+        return (int) (((long) fare * multiplier + BASIS - 1) / BASIS);
+    }
+}
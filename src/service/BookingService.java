@@ -2,43 +2,281 @@ package service;
 
 import dao.BookingDAO;
 import dao.RideDAO;
+import dao.UserDAO;
 import db.DBConnection;
+import db.TransactionRetry;
+import json.Json;
+import model.BatchBookingResult;
 import model.Booking;
+import model.BookingOutcome;
+import model.PageRequest;
+import model.Quote;
 import model.Ride;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class BookingService {
 
+    public static final String MODE_ALL_OR_NOTHING = "ALL_OR_NOTHING";
+    public static final String MODE_BEST_EFFORT = "BEST_EFFORT";
+
+    private static final int MAX_BATCH_SIZE = 100;
+
     private final BookingDAO bookingDAO = new BookingDAO();
     private final RideDAO rideDAO = new RideDAO();
+    private final UserDAO userDAO = new UserDAO();
+    private final RideSearchCache searchCache = RideSearchCache.getInstance();
+    private final RideGeoIndex geoIndex = RideGeoIndex.getInstance();
+    private final ListVersions bookingVersions = ListVersions.bookings();
+    private final PricingService pricing = new PricingService();
+
+    /**
+     * Runs inside a batch's transaction: {@link #claim} before any seats are
+     * taken, {@link #beforeCommit} after the bookings are inserted. Throwing
+     * from either rolls the whole batch back.
+     */
+    @FunctionalInterface
+    public interface BatchCommitHook {
+        /**
+         * Locks whatever the items were booked for and returns which of them
+         * still want booking; the others fail without taking seats.
+         */
+        default boolean[] claim(Connection connection, List<Booking> items) throws SQLException {
+            boolean[] all = new boolean[items.size()];
+            Arrays.fill(all, true);
+            return all;
+        }
+
+        void beforeCommit(Connection connection, int[] itemIndexes, int[] bookingIds) throws SQLException;
+    }
 
     public Booking bookRide(int rideId, int userId, int seatsRequested) throws SQLException {
+        return bookRide(rideId, userId, seatsRequested, null, null);
+    }
+
+    /**
+     * Books seats between two stops of a ride with waypoints, taking them only
+     * on the legs in between; null stops mean the whole route.
+     */
+    public Booking bookRide(int rideId, int userId, int seatsRequested, Integer fromStop, Integer toStop)
+            throws SQLException {
+        return bookRide(rideId, userId, seatsRequested, fromStop, toStop, null);
+    }
+
+    /**
+     * Books at the fare locked in by {@code quoteToken}, or at the listed fare
+     * when it is null; surge applies only to quoted bookings.
+     */
+    public Booking bookRide(int rideId, int userId, int seatsRequested, Integer fromStop, Integer toStop,
+                            String quoteToken) throws SQLException {
         if (seatsRequested <= 0) {
             throw new IllegalArgumentException("Seats requested must be greater than zero");
         }
+        if ((fromStop == null) != (toStop == null)) {
+            throw new IllegalArgumentException("fromStop and toStop must be given together");
+        }
+        Quote quote = quoteToken == null ? null
+                : pricing.redeem(quoteToken, rideId, userId, seatsRequested, fromStop, toStop);
 
+        return TransactionRetry.run(() -> reserve(rideId, userId, seatsRequested, fromStop, toStop, quote));
+    }
+
+    // Decrement first: the conditional UPDATE both checks and takes the seats,
+    // so concurrent bookings for one ride serialize on a single row lock and
+    // the fare is read from the row we already hold. Rides with waypoints (and
+    // partial-route requests) lock the ride row first, then take every leg in
+    // one conditional UPDATE, so both paths acquire locks in the same order.
+    private Booking reserve(int rideId, int userId, int seatsRequested, Integer fromStop, Integer toStop,
+                            Quote quote) throws SQLException {
         try (Connection connection = DBConnection.getConnection()) {
             connection.setAutoCommit(false);
             try {
-                Ride ride = rideDAO.getRideForBooking(connection, rideId);
-                if (ride == null) {
-                    throw new IllegalArgumentException("Ride not available");
-                }
+                Ride ride;
+                int farePerSeat;
+                Integer bookedFrom = null;
+                Integer bookedTo = null;
+                if (fromStop == null && rideDAO.reduceSeats(connection, rideId, seatsRequested)) {
+                    ride = rideDAO.getRideForBooking(connection, rideId);
+                    farePerSeat = ride.getFarePerSeat();
+                    if (quote == null) {
+                        pricing.recordAttempt(ride);
+                    }
+                } else {
+                    Ride locked = rideDAO.lockRideForBooking(connection, rideId);
+                    if (locked == null) {
+                        throw new IllegalArgumentException("Ride not available");
+                    }
+                    if (quote == null) {
+                        pricing.recordAttempt(locked);
+                    }
+                    int last = locked.getStopCount() - 1;
+                    int from = fromStop == null ? 0 : fromStop;
+                    int to = toStop == null ? last : toStop;
+                    if (from < 0 || to > last || from >= to) {
+                        throw new IllegalArgumentException(
+                                "fromStop and toStop must be stops 0 to " + last + " of the ride, fromStop first");
+                    }
 
-                if (seatsRequested > ride.getSeats()) {
-                    throw new IllegalArgumentException("Not enough seats available");
+                    if (locked.getStopCount() == 2) {
+                        if (!rideDAO.reduceSeats(connection, rideId, seatsRequested)) {
+                            throw new IllegalArgumentException("Not enough seats available");
+                        }
+                    } else {
+                        if (!rideDAO.reduceLegSeats(connection, rideId, from, to, seatsRequested)) {
+                            throw new IllegalArgumentException("Not enough seats available");
+                        }
+                        rideDAO.syncSeatsFromLegs(connection, rideId);
+                        bookedFrom = from;
+                        bookedTo = to;
+                    }
+                    ride = rideDAO.getRideForBooking(connection, rideId);
+                    farePerSeat = ride.segmentFare(from, to);
                 }
 
-                int totalFare = seatsRequested * ride.getFarePerSeat();
+                // A quote was already counted as an attempt and fixes the fare.
+                int totalFare = quote != null ? quote.getTotalFare() : seatsRequested * farePerSeat;
                 int bookingId = bookingDAO.bookRide(connection,
-                        new Booking(rideId, userId, seatsRequested, totalFare));
-                rideDAO.reduceSeats(connection, rideId, seatsRequested);
+                        new Booking(rideId, userId, seatsRequested, totalFare, bookedFrom, bookedTo),
+                        quote == null ? null : quote.getQuoteId());
+
+                rideDAO.recordChanges(connection, List.of(rideId));
+                connection.commit();
+                searchCache.invalidateRoute(ride.getSource(), ride.getDestination());
+                geoIndex.update(ride);
+                pricing.recordBooked(ride, seatsRequested);
+                bookingVersions.bump(String.valueOf(userId));
+                return new Booking(bookingId, rideId, userId, seatsRequested, totalFare, bookedFrom, bookedTo);
+            } catch (Exception e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Books several (ride, user, seats) items in one transaction using batched
+     * seat decrements and batched inserts. In all-or-nothing mode any failed
+     * item rolls the whole batch back; in best-effort mode the items that could
+     * be booked are committed and the rest are reported as failed. Items are
+     * charged the listed fare; a positive {@code totalFare} on an item is
+     * the most it may be charged.
+     */
+    public BatchBookingResult bookBatch(List<Booking> items, boolean allOrNothing) throws SQLException {
+        return bookBatch(items, allOrNothing, null);
+    }
+
+    public BatchBookingResult bookBatch(List<Booking> items, boolean allOrNothing, BatchCommitHook hook)
+            throws SQLException {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("At least one booking is required");
+        }
+        if (items.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("A batch can contain at most " + MAX_BATCH_SIZE + " bookings");
+        }
+        for (Booking item : items) {
+            if (item.getRideId() <= 0 || item.getUserId() <= 0 || item.getSeatsBooked() <= 0) {
+                throw new IllegalArgumentException("Every booking needs rideId, userId and seats");
+            }
+        }
+
+        return TransactionRetry.run(() -> reserveBatch(items, allOrNothing, hook));
+    }
+
+    private BatchBookingResult reserveBatch(List<Booking> items, boolean allOrNothing, BatchCommitHook hook)
+            throws SQLException {
+        String mode = allOrNothing ? MODE_ALL_OR_NOTHING : MODE_BEST_EFFORT;
+        String[] errors = new String[items.size()];
+
+        try (Connection connection = DBConnection.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                Set<Integer> userIds = new HashSet<>();
+                Set<Integer> rideIds = new HashSet<>();
+                for (Booking item : items) {
+                    userIds.add(item.getUserId());
+                    rideIds.add(item.getRideId());
+                }
+                boolean[] claimed = hook == null ? null : hook.claim(connection, items);
+                Set<Integer> knownUsers = userDAO.findExistingUserIds(connection, userIds);
+
+                List<Booking> candidates = new ArrayList<>();
+                List<Integer> candidateIndexes = new ArrayList<>();
+                for (int i = 0; i < items.size(); i++) {
+                    if (claimed != null && !claimed[i]) {
+                        errors[i] = "No longer wanted";
+                    } else if (knownUsers.contains(items.get(i).getUserId())) {
+                        candidates.add(items.get(i));
+                        candidateIndexes.add(i);
+                    } else {
+                        errors[i] = "User not found";
+                    }
+                }
+
+                boolean[] reserved = candidates.isEmpty() ? new boolean[0] : rideDAO.reduceSeats(connection, candidates);
+                Map<Integer, Ride> rides = rideDAO.getRidesByIds(connection, rideIds);
+
+                List<Booking> toInsert = new ArrayList<>();
+                List<Integer> insertIndexes = new ArrayList<>();
+                for (int c = 0; c < candidates.size(); c++) {
+                    int index = candidateIndexes.get(c);
+                    Booking item = candidates.get(c);
+                    Ride ride = rides.get(item.getRideId());
+                    if (ride != null) {
+                        pricing.recordAttempt(ride);
+                    }
+                    if (!reserved[c]) {
+                        errors[index] = ride == null || !"OPEN".equals(ride.getStatus()) ? "Ride not available"
+                                : ride.getStopCount() > 2 ? "Rides with stops must be booked one at a time"
+                                : "Not enough seats available";
+                        continue;
+                    }
+                    int totalFare = item.getSeatsBooked() * ride.getFarePerSeat();
+                    if (item.getTotalFare() > 0) {
+                        totalFare = Math.min(totalFare, item.getTotalFare());
+                    }
+                    toInsert.add(new Booking(item.getRideId(), item.getUserId(), item.getSeatsBooked(), totalFare));
+                    insertIndexes.add(index);
+                }
+
+                boolean anyFailed = toInsert.size() < items.size();
+                if (toInsert.isEmpty() || (allOrNothing && anyFailed)) {
+                    connection.rollback();
+                    return new BatchBookingResult(mode, false, 0,
+                            outcomes(items, errors, toInsert, insertIndexes, null));
+                }
 
+                int[] bookingIds = bookingDAO.bookRides(connection, toInsert);
+                if (hook != null) {
+                    hook.beforeCommit(connection,
+                            insertIndexes.stream().mapToInt(Integer::intValue).toArray(), bookingIds);
+                }
+                rideDAO.recordChanges(connection, toInsert.stream().map(Booking::getRideId).distinct().toList());
                 connection.commit();
-                return new Booking(bookingId, rideId, userId, seatsRequested, totalFare);
+
+                Set<Integer> touchedRides = new HashSet<>();
+                Set<Integer> touchedUsers = new HashSet<>();
+                for (Booking booking : toInsert) {
+                    Ride ride = rides.get(booking.getRideId());
+                    pricing.recordBooked(ride, booking.getSeatsBooked());
+                    if (touchedRides.add(booking.getRideId())) {
+                        searchCache.invalidateRoute(ride.getSource(), ride.getDestination());
+                        geoIndex.update(ride);
+                    }
+                    if (touchedUsers.add(booking.getUserId())) {
+                        bookingVersions.bump(String.valueOf(booking.getUserId()));
+                    }
+                }
+                return new BatchBookingResult(mode, true, toInsert.size(),
+                        outcomes(items, errors, toInsert, insertIndexes, bookingIds));
             } catch (Exception e) {
                 connection.rollback();
                 throw e;
@@ -48,7 +286,36 @@ public class BookingService {
         }
     }
 
+    private List<BookingOutcome> outcomes(List<Booking> items, String[] errors, List<Booking> reserved,
+                                          List<Integer> reservedIndexes, int[] bookingIds) {
+        BookingOutcome[] outcomes = new BookingOutcome[items.size()];
+        for (int r = 0; r < reserved.size(); r++) {
+            int index = reservedIndexes.get(r);
+            Booking booking = reserved.get(r);
+            outcomes[index] = bookingIds == null
+                    ? new BookingOutcome(index, booking.getRideId(), booking.getUserId(), booking.getSeatsBooked(),
+                            BookingOutcome.ROLLED_BACK, null, null, "Batch rolled back")
+                    : new BookingOutcome(index, booking.getRideId(), booking.getUserId(), booking.getSeatsBooked(),
+                            BookingOutcome.BOOKED, bookingIds[r], booking.getTotalFare(), null);
+        }
+        for (int i = 0; i < outcomes.length; i++) {
+            if (outcomes[i] == null) {
+                Booking item = items.get(i);
+                outcomes[i] = new BookingOutcome(i, item.getRideId(), item.getUserId(), item.getSeatsBooked(),
+                        BookingOutcome.FAILED, null, null, errors[i]);
+            }
+        }
+        return List.of(outcomes);
+    }
+
     public void cancelBooking(int bookingId, int loggedInUserId) throws SQLException {
+        TransactionRetry.run(() -> {
+            cancel(bookingId, loggedInUserId);
+            return null;
+        });
+    }
+
+    private void cancel(int bookingId, int loggedInUserId) throws SQLException {
         try (Connection connection = DBConnection.getConnection()) {
             connection.setAutoCommit(false);
             try {
@@ -61,9 +328,24 @@ public class BookingService {
                 }
 
                 bookingDAO.deleteBooking(connection, bookingId);
-                rideDAO.rollbackSeats(connection, booking.getRideId(), booking.getSeatsBooked());
+                if (booking.getFromStop() == null) {
+                    rideDAO.rollbackSeats(connection, booking.getRideId(), booking.getSeatsBooked());
+                } else {
+                    // Ride row before legs, the same order bookings lock them in.
+                    rideDAO.lockRide(connection, booking.getRideId());
+                    rideDAO.rollbackLegSeats(connection, booking.getRideId(),
+                            booking.getFromStop(), booking.getToStop(), booking.getSeatsBooked());
+                    rideDAO.syncSeatsFromLegs(connection, booking.getRideId());
+                }
+                Ride ride = rideDAO.getRideById(connection, booking.getRideId());
 
+                rideDAO.recordChanges(connection, List.of(booking.getRideId()));
                 connection.commit();
+                bookingVersions.bump(String.valueOf(booking.getUserId()));
+                if (ride != null) {
+                    searchCache.invalidateRoute(ride.getSource(), ride.getDestination());
+                    geoIndex.update(ride);
+                }
             } catch (Exception e) {
                 connection.rollback();
                 throw e;
@@ -73,8 +355,15 @@ public class BookingService {
         }
     }
 
-    public List<Booking> showMyBookings(int userId) throws SQLException {
-        return bookingDAO.getBookingsByUser(userId);
+    /**
+     * ETag of a page of the user's booking history, computed without querying.
+     */
+    public String historyEtag(int userId, PageRequest page) {
+        return bookingVersions.etag(String.valueOf(userId), page);
+    }
+
+    public String showMyBookings(int userId, PageRequest page) throws SQLException {
+        return Json.write(out -> bookingDAO.getBookingsByUser(userId, page, out));
     }
 
 }
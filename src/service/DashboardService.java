@@ -0,0 +1,107 @@
+package service;
+
+import config.Env;
+import dao.BookingDAO;
+import dao.RideDAO;
+import dao.UserDAO;
+import json.BookingJson;
+import json.Json;
+import json.RideJson;
+import json.UserJson;
+import model.BookingWithRide;
+import model.Page;
+import model.PageRequest;
+import model.Ride;
+import model.User;
+import util.VirtualThreads;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Everything the front end shows for a signed-in user, in one response. The
+ * user, their rides and their bookings are independent reads, so they run
+ * concurrently, each on its own pooled connection, and the response costs
+ * the slowest of them rather than their sum.
+ */
+public class DashboardService {
+
+    private static final long DEADLINE_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Env.getInt("DASHBOARD_DEADLINE_MS", 3000));
+    private static final ExecutorService EXECUTOR = VirtualThreads.newThreadPerTaskExecutor("dashboard");
+
+    private final UserDAO userDAO = new UserDAO();
+    private final RideDAO rideDAO = new RideDAO();
+    private final BookingDAO bookingDAO = new BookingDAO();
+
+    /**
+     * Returns the dashboard JSON, or null when the user does not exist. Fails
+     * with a {@link SQLTimeoutException} if the reads miss the deadline.
+     */
+    public String dashboard(int userId, PageRequest page) throws SQLException {
+        long deadline = System.nanoTime() + DEADLINE_NANOS;
+        Future<User> user = EXECUTOR.submit(() -> userDAO.getUserById(userId));
+        Future<Page<Ride>> rides = EXECUTOR.submit(() -> rideDAO.viewUserRides(userId, page));
+        Future<Page<BookingWithRide>> bookings = EXECUTOR.submit(() -> bookingDAO.getBookingsWithRides(userId, page));
+        List<Future<?>> all = List.of(user, rides, bookings);
+
+        try {
+            User found = await(user, deadline, all);
+            if (found == null) {
+                cancel(all);
+                return null;
+            }
+            Page<Ride> ridePage = await(rides, deadline, all);
+            Page<BookingWithRide> bookingPage = await(bookings, deadline, all);
+
+            return Json.write(out -> {
+                out.beginObject();
+                out.name("user");
+                UserJson.write(out, found);
+                out.name("rides");
+                Json.writePage(out, ridePage, RideJson::write);
+                out.name("bookings");
+                Json.writePage(out, bookingPage, BookingJson::write);
+                out.endObject();
+            });
+        } catch (SQLException | RuntimeException e) {
+            cancel(all);
+            throw e;
+        }
+    }
+
+    private static <T> T await(Future<T> future, long deadline, List<Future<?>> all) throws SQLException {
+        try {
+            return future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new SQLTimeoutException("Dashboard queries did not finish in time");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while loading dashboard", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sql) {
+                throw sql;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new SQLException("Dashboard query failed", cause);
+        }
+    }
+
+    // Queries that already hold a connection finish and return it to the pool;
+    // ones still waiting for a connection or a thread never start.
+    private static void cancel(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+}
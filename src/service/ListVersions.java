@@ -0,0 +1,75 @@
+package service;
+
+import config.Env;
+import model.PageRequest;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Change counters behind the list endpoints' ETags, one per list key (a
+ * route, a user). Writers bump a key after their transaction commits, so a
+ * tag never runs ahead of the data it describes; readers take the tag
+ * before querying, so a write racing a read only costs one extra 200.
+ * <p>
+ * Counters are per container. Tags carry the container's id, so a client
+ * moving between containers just gets a 200, and a time window, so writes
+ * made through other containers are picked up within
+ * {@code LIST_ETAG_WINDOW_MS}, the same staleness bound as
+ * {@link RideSearchCache}.
+ */
+public class ListVersions {
+
+    private static final String CONTAINER_ID =
+            Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, 36);
+    private static final long WINDOW_MS = Math.max(1, Env.getInt("LIST_ETAG_WINDOW_MS", 5000));
+    private static final int MAX_KEYS = 100_000;
+
+    private static final ListVersions ROUTES = new ListVersions("r");
+    private static final ListVersions BOOKINGS = new ListVersions("b");
+
+    private final String kind;
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    // Bumped whenever the map is dropped to bound memory, which changes every tag.
+    private final AtomicLong resets = new AtomicLong();
+
+    ListVersions(String kind) {
+        this.kind = kind;
+    }
+
+    /**
+     * Open-ride listings, keyed by canonical route; see {@link RideSearchCache}.
+     */
+    public static ListVersions routes() {
+        return ROUTES;
+    }
+
+    /**
+     * Booking history, keyed by user id.
+     */
+    public static ListVersions bookings() {
+        return BOOKINGS;
+    }
+
+    public void bump(String key) {
+        if (versions.size() >= MAX_KEYS && !versions.containsKey(key)) {
+            resets.incrementAndGet();
+            versions.clear();
+        }
+        versions.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Strong ETag for one page of the list under {@code key}.
+     */
+    public String etag(String key, PageRequest page) {
+        long reset = resets.get();
+        AtomicLong version = versions.get(key);
+        long window = System.currentTimeMillis() / WINDOW_MS;
+        return "\"" + kind + '-' + CONTAINER_ID + '-' + reset + '-' + (version == null ? 0 : version.get())
+                + '-' + Integer.toHexString(key.hashCode()) + '-' + window
+                + '-' + page.getBeforeId() + '-' + page.getLimit() + "\"";
+    }
+}
@@ -0,0 +1,252 @@
+package service;
+
+import config.Env;
+import dao.RideDAO;
+import util.VirtualThreads;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory dictionary of ride locations built from {@code rides.source} and
+ * {@code rides.destination}. Prefix lookups binary-search a sorted array of
+ * normalized names (aliases included) and rank hits by how many rides use
+ * the place, so autocomplete never touches MySQL once the index is loaded.
+ * Later reloads run in the background while lookups keep serving the
+ * current snapshot.
+ */
+public class LocationIndex {
+
+    private static final int MAX_SPELLINGS = 64;
+    private static final long RELOAD_INTERVAL_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Env.getInt("LOCATION_INDEX_RELOAD_MS", 600000));
+
+    private static final LocationIndex INSTANCE = new LocationIndex();
+    private static final ExecutorService RELOADER = VirtualThreads.newThreadPerTaskExecutor("location-index");
+
+    private final RideDAO rideDAO = new RideDAO();
+
+    private volatile Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot = new Snapshot(new String[0], new Entry[0]);
+    private volatile boolean loaded;
+    private final AtomicLong nextReloadNanos = new AtomicLong();
+    // Places recorded while a reload's query runs, replayed onto its result;
+    // null when no reload is running. Guarded by this.
+    private List<Map.Entry<String, Integer>> recordedDuringReload;
+
+    public static LocationIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Up to {@code limit} places whose name (or an alias) starts with the
+     * prefix, most popular first.
+     */
+    public List<LocationSuggestion> suggest(String prefix, int limit) throws SQLException {
+        ensureLoaded();
+        String normalized = Locations.normalize(prefix);
+        Snapshot current = snapshot;
+
+        int from = lowerBound(current.keys, normalized);
+        Set<Entry> matches = new LinkedHashSet<>();
+        for (int i = from; i < current.keys.length && current.keys[i].startsWith(normalized); i++) {
+            matches.add(current.targets[i]);
+        }
+
+        List<Entry> ranked = new ArrayList<>(matches);
+        ranked.sort(Comparator.comparingInt((Entry entry) -> entry.popularity.get()).reversed()
+                .thenComparing(entry -> entry.key));
+
+        List<LocationSuggestion> suggestions = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < limit; i++) {
+            Entry entry = ranked.get(i);
+            suggestions.add(new LocationSuggestion(entry.displayName, entry.popularity.get()));
+        }
+        return suggestions;
+    }
+
+    /**
+     * Every stored spelling of the place the name refers to, for exact-match
+     * SQL. Always contains the cleaned input itself.
+     */
+    public List<String> spellings(String name) throws SQLException {
+        ensureLoaded();
+        String cleaned = Locations.clean(name);
+        Entry entry = entries.get(Locations.canonicalKey(cleaned));
+        if (entry == null) {
+            return List.of(cleaned);
+        }
+        Set<String> spellings = new LinkedHashSet<>();
+        spellings.add(cleaned);
+        spellings.addAll(entry.spellings);
+        return new ArrayList<>(spellings);
+    }
+
+    /**
+     * Counts newly published rides for a location. Before the first lookup
+     * there is nothing to update; the initial load reads them from MySQL.
+     */
+    public void record(String name, int rides) {
+        if (loaded) {
+            synchronized (this) {
+                String cleaned = Locations.clean(name);
+                if (recordedDuringReload != null) {
+                    recordedDuringReload.add(Map.entry(cleaned, rides));
+                }
+                if (addEntry(entries, cleaned, rides)) {
+                    rebuild();
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads the index unless it already is. Startup priming calls this so the
+     * first lookup does not wait for the full-table count; otherwise that
+     * lookup loads it.
+     */
+    public void load() throws SQLException {
+        synchronized (this) {
+            if (!loaded) {
+                reload();
+                loaded = true;
+            }
+        }
+    }
+
+    private void ensureLoaded() throws SQLException {
+        if (!loaded) {
+            load();
+            return;
+        }
+        long now = System.nanoTime();
+        long next = nextReloadNanos.get();
+        // Picks up rides published by other containers without holding up the lookup.
+        if (now - next >= 0 && nextReloadNanos.compareAndSet(next, now + RELOAD_INTERVAL_NANOS)) {
+            RELOADER.submit(() -> {
+                try {
+                    reload();
+                } catch (SQLException e) {
+                    System.err.println("Location index reload failed: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    private void reload() throws SQLException {
+        synchronized (this) {
+            recordedDuringReload = new ArrayList<>();
+        }
+        try {
+            Map<String, Integer> counts = rideDAO.countLocations();
+            synchronized (this) {
+                Map<String, Entry> fresh = new ConcurrentHashMap<>();
+                for (Map.Entry<String, Integer> location : counts.entrySet()) {
+                    addEntry(fresh, Locations.clean(location.getKey()), location.getValue());
+                }
+                // The query may already have counted these rides; then only the spelling is kept.
+                for (Map.Entry<String, Integer> recorded : recordedDuringReload) {
+                    boolean counted = fresh.containsKey(Locations.canonicalKey(recorded.getKey()));
+                    addEntry(fresh, recorded.getKey(), counted ? 0 : recorded.getValue());
+                }
+                entries = fresh;
+                nextReloadNanos.set(System.nanoTime() + RELOAD_INTERVAL_NANOS);
+                rebuild();
+            }
+        } finally {
+            synchronized (this) {
+                recordedDuringReload = null;
+            }
+        }
+    }
+
+    // Returns true when the sorted key array needs rebuilding.
+    private static boolean addEntry(Map<String, Entry> entries, String cleaned, int rides) {
+        String key = Locations.canonicalKey(cleaned);
+        Entry entry = entries.computeIfAbsent(key, Entry::new);
+        entry.popularity.addAndGet(rides);
+
+        // Prefer the most used spelling of the canonical name for display.
+        boolean canonical = Locations.normalize(cleaned).equals(key);
+        boolean newName = entry.displayName == null;
+        if (newName || (canonical && !entry.canonicalDisplay)) {
+            entry.displayName = cleaned;
+            entry.canonicalDisplay = canonical;
+        }
+        boolean newSpelling = false;
+        if (entry.spellings.size() < MAX_SPELLINGS) {
+            newSpelling = entry.spellings.add(cleaned);
+        } else if (!entry.spellings.contains(cleaned) && !entry.truncated) {
+            entry.truncated = true;
+            System.err.println("Location '" + entry.displayName + "' has more than " + MAX_SPELLINGS
+                    + " spellings; ignoring '" + cleaned + "' and any further ones");
+        }
+        return newName || newSpelling;
+    }
+
+    private void rebuild() {
+        Map<String, Entry> byName = new HashMap<>();
+        for (Entry entry : entries.values()) {
+            byName.put(entry.key, entry);
+            for (String spelling : entry.spellings) {
+                byName.putIfAbsent(Locations.normalize(spelling), entry);
+            }
+        }
+        String[] keys = byName.keySet().toArray(new String[0]);
+        Arrays.sort(keys);
+        Entry[] targets = new Entry[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            targets[i] = byName.get(keys[i]);
+        }
+        snapshot = new Snapshot(keys, targets);
+    }
+
+    private static int lowerBound(String[] keys, String prefix) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static final class Snapshot {
+        private final String[] keys;
+        private final Entry[] targets;
+
+        private Snapshot(String[] keys, Entry[] targets) {
+            this.keys = keys;
+            this.targets = targets;
+        }
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final AtomicInteger popularity = new AtomicInteger();
+        private final Set<String> spellings = ConcurrentHashMap.newKeySet();
+        private volatile String displayName;
+        private volatile boolean canonicalDisplay;
+        private volatile boolean truncated;
+
+        private Entry(String key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package service;
+
+public class LocationSuggestion {
+
+    private final String name;
+    private final int rides;
+
+    public LocationSuggestion(String name, int rides) {
+        this.name = name;
+        this.rides = rides;
+    }
+
+    public String getName() { return name; }
+    public int getRides() { return rides; }
+}
@@ -0,0 +1,90 @@
+package service;
+
+import config.Env;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Location name normalization. Names are compared case-insensitively with
+ * whitespace collapsed, and well-known alternate names resolve to one
+ * canonical key so "Bengaluru" and "bangalore " find the same rides.
+ */
+public class Locations {
+
+    // Canonical name first, then its aliases.
+    private static final String[][] BUILT_IN_ALIASES = {
+            {"bangalore", "bengaluru"},
+            {"mumbai", "bombay"},
+            {"chennai", "madras"},
+            {"kolkata", "calcutta"},
+            {"gurugram", "gurgaon"},
+            {"mysore", "mysuru"},
+            {"puducherry", "pondicherry"},
+            {"thiruvananthapuram", "trivandrum"},
+            {"kochi", "cochin"},
+            {"vadodara", "baroda"},
+            {"prayagraj", "allahabad"},
+            {"mangalore", "mangaluru"},
+            {"hubli", "hubballi"},
+            {"belgaum", "belagavi"}
+    };
+
+    private static final Map<String, String> ALIASES = loadAliases();
+
+    /**
+     * Trims and collapses internal whitespace, keeping the caller's casing.
+     */
+    public static String clean(String name) {
+        StringBuilder cleaned = new StringBuilder(name.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = cleaned.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                cleaned.append(' ');
+                pendingSpace = false;
+            }
+            cleaned.append(c);
+        }
+        return cleaned.toString();
+    }
+
+    /**
+     * Lower-cased, whitespace-collapsed form used for prefix matching.
+     */
+    public static String normalize(String name) {
+        return clean(name).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Normalized name with aliases resolved; equal keys mean the same place.
+     */
+    public static String canonicalKey(String name) {
+        String normalized = normalize(name);
+        return ALIASES.getOrDefault(normalized, normalized);
+    }
+
+    private static Map<String, String> loadAliases() {
+        Map<String, String> aliases = new HashMap<>();
+        for (String[] group : BUILT_IN_ALIASES) {
+            for (int i = 1; i < group.length; i++) {
+                aliases.put(group[i], group[0]);
+            }
+        }
+
+        // LOCATION_ALIASES=alias=canonical,alias2=canonical2
+        String extra = Env.get("LOCATION_ALIASES", "");
+        for (String pair : extra.split(",")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                aliases.put(normalize(pair.substring(0, eq)), normalize(pair.substring(eq + 1)));
+            }
+        }
+        return aliases;
+    }
+}
@@ -0,0 +1,195 @@
+package service;
+
+import config.Env;
+import dao.RideDAO;
+import model.Quote;
+import model.Ride;
+import pricing.DemandTracker;
+import pricing.QuoteSigner;
+import pricing.RouteDemand;
+import pricing.SurgePolicy;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Surge pricing. Searches and booking attempts are counted per route in
+ * sliding windows, seats remaining are refreshed from MySQL every few
+ * seconds, and {@link SurgePolicy} turns them into a multiplier on the base
+ * fare. Demand is counted per container, so the surge thresholds apply to
+ * one container's share of the traffic.
+ * <p>
+ * A quote locks the surged price for {@code QUOTE_TTL_SECONDS} in a signed
+ * token; a booking that presents it pays the quoted fare. Bookings without
+ * one pay the listed fare. Surge is off unless {@code SURGE_MAX_MULTIPLIER}
+ * is raised above 1.
+ */
+public class PricingService {
+
+    private static final long WINDOW_MS = Env.getInt("SURGE_WINDOW_MS", 300000);
+    private static final int WINDOW_BUCKETS = 30;
+    private static final int MAX_ROUTES = 10000;
+    private static final long SUPPLY_REFRESH_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Env.getInt("SURGE_SUPPLY_REFRESH_MS", 10000));
+    private static final int QUOTE_TTL_SECONDS = Env.getInt("QUOTE_TTL_SECONDS", 120);
+
+    private static final SurgePolicy POLICY = new SurgePolicy(
+            Double.parseDouble(Env.get("SURGE_THRESHOLD", "1")),
+            Double.parseDouble(Env.get("SURGE_STEP", "0.5")),
+            Double.parseDouble(Env.get("SURGE_MAX_MULTIPLIER", "1")),
+            Double.parseDouble(Env.get("SURGE_SEARCH_WEIGHT", "0.1")));
+    private static final DemandTracker TRACKER =
+            new DemandTracker(Locations::canonicalKey, WINDOW_MS, WINDOW_BUCKETS, MAX_ROUTES);
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final QuoteSigner SIGNER = new QuoteSigner(secret());
+
+    private final RideDAO rideDAO = new RideDAO();
+    private final LocationIndex locationIndex = LocationIndex.getInstance();
+
+    /**
+     * Counts a search for a route and, when due, refreshes its seats remaining.
+     */
+    public void recordSearch(String source, String destination) throws SQLException {
+        RouteDemand demand = TRACKER.route(source, destination);
+        if (demand != null) {
+            demand.recordSearch(System.currentTimeMillis());
+            refreshSupply(demand, source, destination);
+        }
+    }
+
+    public void recordAttempt(Ride ride) {
+        RouteDemand demand = TRACKER.route(ride.getSource(), ride.getDestination());
+        if (demand != null) {
+            demand.recordAttempt(System.currentTimeMillis());
+        }
+    }
+
+    public void recordBooked(Ride ride, int seats) {
+        RouteDemand demand = TRACKER.route(ride.getSource(), ride.getDestination());
+        if (demand != null) {
+            demand.seatsBooked(seats);
+        }
+    }
+
+    /**
+     * Current surge multiplier of the ride's route in basis points, from
+     * memory only: safe to call inside a booking transaction.
+     */
+    public int multiplier(Ride ride) {
+        RouteDemand demand = TRACKER.route(ride.getSource(), ride.getDestination());
+        if (demand == null) {
+            return SurgePolicy.BASIS;
+        }
+        long now = System.currentTimeMillis();
+        return POLICY.multiplier(demand.searches(now), demand.attempts(now), demand.seatsRemaining());
+    }
+
+    /**
+     * Prices {@code seats} on a ride (between two stops, if given) at the
+     * current surge and signs the result. A quote counts as a booking attempt.
+     */
+    public Quote quote(int rideId, int userId, int seats, Integer fromStop, Integer toStop) throws SQLException {
+        if (seats <= 0) {
+            throw new IllegalArgumentException("Seats requested must be greater than zero");
+        }
+        if ((fromStop == null) != (toStop == null)) {
+            throw new IllegalArgumentException("fromStop and toStop must be given together");
+        }
+        Ride ride = rideDAO.getRideById(rideId);
+        if (ride == null || !"OPEN".equals(ride.getStatus())) {
+            throw new IllegalArgumentException("Ride not available");
+        }
+        if (fromStop == null && ride.getSeats() < seats) {
+            throw new IllegalArgumentException("Not enough seats available");
+        }
+
+        int farePerSeat = ride.getFarePerSeat();
+        if (fromStop != null) {
+            int last = ride.getStopCount() - 1;
+            if (fromStop < 0 || toStop > last || fromStop >= toStop) {
+                throw new IllegalArgumentException(
+                        "fromStop and toStop must be stops 0 to " + last + " of the ride, fromStop first");
+            }
+            farePerSeat = ride.segmentFare(fromStop, toStop);
+        }
+
+        RouteDemand demand = TRACKER.route(ride.getSource(), ride.getDestination());
+        if (demand != null) {
+            demand.recordAttempt(System.currentTimeMillis());
+            refreshSupply(demand, ride.getSource(), ride.getDestination());
+        }
+        int multiplier = multiplier(ride);
+        int baseFare = seats * farePerSeat;
+        int totalFare = SurgePolicy.apply(baseFare, multiplier);
+
+        String quoteId = randomId();
+        long expiresAt = Instant.now().plusSeconds(QUOTE_TTL_SECONDS).getEpochSecond();
+        String token = SIGNER.sign(String.join("|", quoteId, String.valueOf(rideId), String.valueOf(userId),
+                String.valueOf(seats), stop(fromStop), stop(toStop), String.valueOf(totalFare),
+                String.valueOf(expiresAt)));
+        return new Quote(quoteId, rideId, userId, seats, fromStop, toStop, baseFare, totalFare,
+                multiplier / (double) SurgePolicy.BASIS, Instant.ofEpochSecond(expiresAt).toString(), token);
+    }
+
+    /**
+     * The quote behind {@code token}, provided it is genuine, unexpired and
+     * for exactly this booking. Single use is enforced when the booking is
+     * stored.
+     */
+    public Quote redeem(String token, int rideId, int userId, int seats, Integer fromStop, Integer toStop) {
+        String payload = SIGNER.verify(token);
+        String[] fields = payload == null ? new String[0] : payload.split("\\|", -1);
+        if (fields.length != 8) {
+            throw new IllegalArgumentException("Invalid quote token");
+        }
+        if (Instant.now().getEpochSecond() > Long.parseLong(fields[7])) {
+            throw new IllegalArgumentException("Quote expired, request a new one");
+        }
+        if (Integer.parseInt(fields[1]) != rideId || Integer.parseInt(fields[2]) != userId
+                || Integer.parseInt(fields[3]) != seats
+                || !Objects.equals(fields[4], stop(fromStop)) || !Objects.equals(fields[5], stop(toStop))) {
+            throw new IllegalArgumentException("Quote does not match this booking");
+        }
+        int totalFare = Integer.parseInt(fields[6]);
+        return new Quote(fields[0], rideId, userId, seats, fromStop, toStop, totalFare, totalFare, 1,
+                Instant.ofEpochSecond(Long.parseLong(fields[7])).toString(), token);
+    }
+
+    public static int trackedRoutes() {
+        return TRACKER.size();
+    }
+
+    private void refreshSupply(RouteDemand demand, String source, String destination) throws SQLException {
+        if (demand.claimSupplyRefresh(System.nanoTime(), SUPPLY_REFRESH_NANOS)) {
+            demand.setSeatsRemaining(rideDAO.countOpenSeats(
+                    locationIndex.spellings(source), locationIndex.spellings(destination)));
+        }
+    }
+
+    private static String stop(Integer stop) {
+        return stop == null ? "" : String.valueOf(stop);
+    }
+
+    private static String randomId() {
+        byte[] bytes = new byte[16];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    // Without QUOTE_SECRET, tokens are only honoured by the container that issued them;
+    // LambdaHandler refuses to start that way on Lambda.
+    private static byte[] secret() {
+        String configured = Env.get("QUOTE_SECRET", "");
+        if (!configured.isBlank()) {
+            return configured.getBytes(StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,103 @@
+package service;
+
+import browse.RideSnapshot;
+import browse.RideSort;
+import config.Env;
+import dao.RideDAO;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-container columnar snapshot of bookable rides behind filtered and
+ * sorted browsing. Loaded from MySQL on first use, then brought up to date
+ * from the ride change log every few seconds, so writes from any container
+ * show up without a full reload; a full reload still runs periodically to
+ * compact the route dictionary. MySQL stays the source of truth: callers
+ * re-read the rides picked here.
+ */
+public class RideBrowseIndex {
+
+    private static final long REFRESH_INTERVAL_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Env.getInt("BROWSE_REFRESH_MS", 2000));
+    private static final long RELOAD_INTERVAL_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Env.getInt("BROWSE_RELOAD_MS", 3600000));
+    private static final int MAX_REFRESH_CHANGES = 10000;
+
+    private static final RideBrowseIndex INSTANCE = new RideBrowseIndex();
+
+    private final RideDAO rideDAO = new RideDAO();
+
+    private volatile RideSnapshot snapshot = RideSnapshot.empty(Locations::canonicalKey);
+    private volatile boolean loaded;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final AtomicLong nextRefreshNanos = new AtomicLong();
+    private final AtomicLong nextReloadNanos = new AtomicLong();
+
+    public static RideBrowseIndex getInstance() {
+        return INSTANCE;
+    }
+
+    public int[] top(String source, String destination, int minSeats, int maxFare, RideSort sort, int limit)
+            throws SQLException {
+        ensureFresh();
+        return snapshot.top(source, destination, minSeats, maxFare, sort, limit);
+    }
+
+    public int size() {
+        return loaded ? snapshot.size() : 0;
+    }
+
+    private void ensureFresh() throws SQLException {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    reload();
+                    loaded = true;
+                }
+            }
+            return;
+        }
+
+        long now = System.nanoTime();
+        if (now - nextRefreshNanos.get() < 0 || !refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (now - nextReloadNanos.get() >= 0) {
+                reload();
+            } else {
+                refresh();
+            }
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    // Copies the unchanged rows into fresh arrays; queries keep using the old snapshot until the swap.
+    private void refresh() throws SQLException {
+        RideSnapshot current = snapshot;
+        RideSnapshot.Builder builder = current.toBuilder();
+        long position = rideDAO.loadRideChanges(current.position(), MAX_REFRESH_CHANGES,
+                RideService.CHANGES_SETTLE_MS, builder);
+        if (position < 0) {
+            reload();
+            return;
+        }
+        if (position != current.position()) {
+            snapshot = builder.build(position);
+        }
+        nextRefreshNanos.set(System.nanoTime() + REFRESH_INTERVAL_NANOS);
+    }
+
+    private void reload() throws SQLException {
+        RideSnapshot.Builder builder = RideSnapshot.builder(Locations::canonicalKey);
+        long position = rideDAO.loadOpenRideColumns(RideService.CHANGES_SETTLE_MS, builder);
+        snapshot = builder.build(position);
+        long now = System.nanoTime();
+        nextRefreshNanos.set(now + REFRESH_INTERVAL_NANOS);
+        nextReloadNanos.set(now + RELOAD_INTERVAL_NANOS);
+    }
+}
@@ -0,0 +1,131 @@
+package service;
+
+import config.Env;
+import dao.RideDAO;
+import geo.GeoIndex;
+import geo.GeoMatch;
+import model.GeoPoint;
+import model.Ride;
+import util.VirtualThreads;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Per-container spatial index of bookable rides. Loaded from MySQL on first
+ * use, kept in step with this container's publishes, bookings and
+ * cancellations, and rebuilt periodically in the background to pick up
+ * writes from other containers. MySQL stays the source of truth: callers
+ * re-read matched rides.
+ */
+public class RideGeoIndex {
+
+    private static final double CELL_KM = Double.parseDouble(Env.get("GEO_CELL_KM", "1"));
+    private static final long RELOAD_INTERVAL_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Env.getInt("GEO_INDEX_RELOAD_MS", 300000));
+
+    private static final RideGeoIndex INSTANCE = new RideGeoIndex();
+    private static final ExecutorService RELOADER = VirtualThreads.newThreadPerTaskExecutor("geo-index");
+
+    private final RideDAO rideDAO = new RideDAO();
+    private final Object loadLock = new Object();
+
+    private volatile GeoIndex index = new GeoIndex(CELL_KM);
+    private volatile boolean loaded;
+    private final AtomicLong nextReloadNanos = new AtomicLong();
+    // Updates made while a reload's query runs, replayed onto its result
+    // before the swap; null when no reload is running. Guarded by this.
+    private List<Consumer<GeoIndex>> updatesDuringReload;
+
+    public static RideGeoIndex getInstance() {
+        return INSTANCE;
+    }
+
+    public List<GeoMatch> nearby(GeoPoint pickup, GeoPoint drop, double radiusKm, int limit) throws SQLException {
+        ensureLoaded();
+        return index.nearby(pickup, drop, radiusKm, limit);
+    }
+
+    /**
+     * Reflects a ride's current state: indexed while it is open with seats
+     * left and has a pickup point, dropped otherwise.
+     */
+    public void update(Ride ride) {
+        if ("OPEN".equals(ride.getStatus()) && ride.getSeats() > 0 && ride.getPickup() != null) {
+            apply(index -> index.put(ride.getId(), ride.getPickup(), ride.getDrop()));
+        } else {
+            apply(index -> index.remove(ride.getId()));
+        }
+    }
+
+    public void remove(int rideId) {
+        apply(index -> index.remove(rideId));
+    }
+
+    public int size() {
+        return loaded ? index.size() : 0;
+    }
+
+    // Before the first load there is nothing to update, unless a load is
+    // running and needs the update replayed.
+    private synchronized void apply(Consumer<GeoIndex> update) {
+        if (loaded) {
+            update.accept(index);
+        }
+        if (updatesDuringReload != null) {
+            updatesDuringReload.add(update);
+        }
+    }
+
+    private void ensureLoaded() throws SQLException {
+        if (!loaded) {
+            synchronized (loadLock) {
+                if (!loaded) {
+                    reload();
+                }
+            }
+            return;
+        }
+        long now = System.nanoTime();
+        long next = nextReloadNanos.get();
+        if (now - next >= 0 && nextReloadNanos.compareAndSet(next, now + RELOAD_INTERVAL_NANOS)) {
+            RELOADER.submit(() -> {
+                try {
+                    reload();
+                } catch (SQLException e) {
+                    System.err.println("Geo index reload failed: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    // Builds a fresh grid off to the side; queries keep using the old one until the swap.
+    private void reload() throws SQLException {
+        synchronized (this) {
+            updatesDuringReload = new ArrayList<>();
+        }
+        try {
+            GeoIndex fresh = new GeoIndex(CELL_KM);
+            rideDAO.loadOpenRidePoints(fresh);
+            synchronized (this) {
+                // The load may already reflect an update; replaying it is idempotent.
+                for (Consumer<GeoIndex> update : updatesDuringReload) {
+                    update.accept(fresh);
+                }
+                index = fresh;
+                loaded = true;
+                updatesDuringReload = null;
+            }
+            nextReloadNanos.set(System.nanoTime() + RELOAD_INTERVAL_NANOS);
+        } finally {
+            synchronized (this) {
+                updatesDuringReload = null;
+            }
+        }
+    }
+}
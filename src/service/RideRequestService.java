@@ -0,0 +1,209 @@
+package service;
+
+import config.Env;
+import dao.RideDAO;
+import dao.RideRequestDAO;
+import dao.RideRows;
+import dao.UserDAO;
+import matching.Assignment;
+import matching.RideAssigner;
+import model.BatchBookingResult;
+import model.Booking;
+import model.BookingOutcome;
+import model.MatchRunResult;
+import model.Ride;
+import model.RideRequest;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Demand side of the marketplace: riders post what they need and a periodic
+ * matching round assigns pending requests to open rides in bulk, instead of
+ * every rider racing for the same seats one booking at a time. A round
+ * plans on a snapshot and then books the plan through
+ * {@link BookingService#bookBatch}, so seat checks stay authoritative.
+ */
+public class RideRequestService {
+
+    private static final int MAX_SEATS = 50;
+    private static final int BATCH_SIZE = Env.getInt("RIDE_MATCH_BATCH_SIZE", 50000);
+    private static final int BOOKING_CHUNK_SIZE = 100;
+    private static final ZoneId ZONE = ZoneId.of(Env.get("APP_TIME_ZONE", "UTC"));
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(
+            Env.getInt("RIDE_MATCH_PARALLELISM", Runtime.getRuntime().availableProcessors()));
+    private static final AtomicBoolean running = new AtomicBoolean();
+
+    private final RideRequestDAO requestDAO = new RideRequestDAO();
+    private final RideDAO rideDAO = new RideDAO();
+    private final UserDAO userDAO = new UserDAO();
+    private final BookingService bookingService = new BookingService();
+    private final LocationIndex locationIndex = LocationIndex.getInstance();
+    private final RideAssigner assigner = new RideAssigner(Locations::canonicalKey);
+
+    public int create(RideRequest request) throws SQLException {
+        if (request.getSeats() <= 0 || request.getSeats() > MAX_SEATS) {
+            throw new IllegalArgumentException("seats must be between 1 and " + MAX_SEATS);
+        }
+        if (request.getMaxFarePerSeat() <= 0) {
+            throw new IllegalArgumentException("maxFarePerSeat must be greater than zero");
+        }
+        LocalDateTime earliest = request.getEarliestDeparture() == null ? null
+                : RideRows.parseDateTime(request.getEarliestDeparture(), "earliestDeparture");
+        LocalDateTime latest = request.getLatestDeparture() == null ? null
+                : RideRows.parseDateTime(request.getLatestDeparture(), "latestDeparture");
+        if (earliest != null && latest != null && latest.isBefore(earliest)) {
+            throw new IllegalArgumentException("latestDeparture must not be before earliestDeparture");
+        }
+        if (latest != null && latest.isBefore(LocalDateTime.now(ZONE))) {
+            throw new IllegalArgumentException("latestDeparture is already in the past");
+        }
+        if (!userDAO.userExists(request.getUserId())) {
+            throw new IllegalArgumentException("User not found");
+        }
+        return requestDAO.createRequest(request);
+    }
+
+    public RideRequest get(int requestId) throws SQLException {
+        return requestDAO.getRequestById(requestId);
+    }
+
+    public boolean cancel(int requestId, int userId) throws SQLException {
+        return requestDAO.cancelRequest(requestId, userId);
+    }
+
+    /**
+     * Runs one matching round unless one is already running in this
+     * container. Rounds in different containers are safe to overlap: each
+     * chunk locks its requests before taking seats and skips those no longer
+     * pending, then marks the rest assigned in the same transaction as their
+     * bookings.
+     */
+    public MatchRunResult runMatching() throws SQLException {
+        if (!running.compareAndSet(false, true)) {
+            return MatchRunResult.skipped();
+        }
+        try {
+            return match();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private MatchRunResult match() throws SQLException {
+        long started = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now(ZONE);
+        int expired = requestDAO.expireRequests(now);
+
+        List<RideRequest> pending = requestDAO.findPending(BATCH_SIZE);
+        if (pending.isEmpty()) {
+            return new MatchRunResult(false, expired, 0, 0, 0, 0, 0, 0, 0, millisSince(started));
+        }
+
+        Set<String> sources = new LinkedHashSet<>();
+        Map<Integer, Integer> maxFares = new HashMap<>();
+        for (RideRequest request : pending) {
+            maxFares.put(request.getId(), request.getMaxFarePerSeat());
+            if (sources.add(request.getSource())) {
+                sources.addAll(locationIndex.spellings(request.getSource()));
+            }
+        }
+        List<Ride> rides = rideDAO.findOpenDirectRides(sources, now);
+
+        long planStarted = System.nanoTime();
+        List<Assignment> plan = assigner.assign(pending, rides, POOL);
+        long planMillis = millisSince(planStarted);
+
+        // Routes book in parallel: a ride belongs to one route, so they never
+        // lock the same ride rows. A route's own chunks can share rides and
+        // book one after another.
+        Map<String, List<Assignment>> byRoute = new LinkedHashMap<>();
+        for (Assignment assignment : plan) {
+            byRoute.computeIfAbsent(assignment.getRoute(), route -> new ArrayList<>()).add(assignment);
+        }
+
+        AtomicInteger assigned = new AtomicInteger();
+        AtomicInteger seatsFilled = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        POOL.submit(() -> byRoute.values().parallelStream().forEach(route -> {
+            for (int start = 0; start < route.size(); start += BOOKING_CHUNK_SIZE) {
+                List<Assignment> chunk = route.subList(start, Math.min(route.size(), start + BOOKING_CHUNK_SIZE));
+                try {
+                    book(chunk, maxFares, assigned, seatsFilled);
+                } catch (SQLException | IllegalArgumentException e) {
+                    conflicts.addAndGet(chunk.size());
+                }
+            }
+        })).join();
+
+        return new MatchRunResult(false, expired, pending.size(), rides.size(), plan.size(), assigned.get(),
+                seatsFilled.get(), conflicts.get(), planMillis, millisSince(started));
+    }
+
+    // Best effort: a ride that filled up since the snapshot fails only its own
+    // items, which stay pending for the next round, and a request cancelled,
+    // expired or assigned elsewhere since the snapshot is skipped. Surge
+    // pricing never takes a rider past the fare their request accepted.
+    private void book(List<Assignment> chunk, Map<Integer, Integer> maxFares, AtomicInteger assigned,
+                      AtomicInteger seatsFilled) throws SQLException {
+        List<Booking> items = new ArrayList<>(chunk.size());
+        for (Assignment assignment : chunk) {
+            items.add(new Booking(assignment.getRideId(), assignment.getUserId(), assignment.getSeats(),
+                    assignment.getSeats() * maxFares.get(assignment.getRequestId())));
+        }
+
+        BatchBookingResult result = bookingService.bookBatch(items, false, new BookingService.BatchCommitHook() {
+            @Override
+            public boolean[] claim(Connection connection, List<Booking> items) throws SQLException {
+                Set<Integer> requestIds = new TreeSet<>();
+                for (Assignment assignment : chunk) {
+                    requestIds.add(assignment.getRequestId());
+                }
+                Set<Integer> pending = requestDAO.lockPending(connection, requestIds);
+                boolean[] wanted = new boolean[chunk.size()];
+                for (int i = 0; i < wanted.length; i++) {
+                    wanted[i] = pending.contains(chunk.get(i).getRequestId());
+                }
+                return wanted;
+            }
+
+            @Override
+            public void beforeCommit(Connection connection, int[] itemIndexes, int[] bookingIds) throws SQLException {
+                int[] requestIds = new int[itemIndexes.length];
+                int[] rideIds = new int[itemIndexes.length];
+                for (int i = 0; i < itemIndexes.length; i++) {
+                    requestIds[i] = chunk.get(itemIndexes[i]).getRequestId();
+                    rideIds[i] = chunk.get(itemIndexes[i]).getRideId();
+                }
+                if (!requestDAO.markAssigned(connection, requestIds, rideIds, bookingIds)) {
+                    throw new SQLException("A locked ride request was no longer pending");
+                }
+            }
+        });
+
+        for (BookingOutcome outcome : result.getResults()) {
+            if (BookingOutcome.BOOKED.equals(outcome.getStatus())) {
+                assigned.incrementAndGet();
+                seatsFilled.addAndGet(outcome.getSeats());
+            }
+        }
+    }
+
+    private static long millisSince(long startedNanos) {
+        return (System.nanoTime() - startedNanos) / 1_000_000;
+    }
+}
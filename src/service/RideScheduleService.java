@@ -0,0 +1,139 @@
+package service;
+
+import config.Env;
+import dao.RideDAO;
+import dao.RideRows;
+import dao.RideScheduleDAO;
+import db.DBConnection;
+import model.Ride;
+import model.RideSchedule;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Expands recurring ride schedules into concrete rides, only ever keeping a
+ * rolling window of upcoming departures in the rides table. The window is
+ * topped up by a timer (the scheduled event on Lambda), never on reads.
+ */
+public class RideScheduleService {
+
+    private static final int WINDOW_DAYS = Env.getInt("RIDE_SCHEDULE_WINDOW_DAYS", 7);
+    private static final int SCHEDULES_PER_CHECK = 200;
+    private static final ZoneId ZONE = ZoneId.of(Env.get("APP_TIME_ZONE", "UTC"));
+
+    private static final AtomicBoolean running = new AtomicBoolean();
+
+    private final RideScheduleDAO scheduleDAO = new RideScheduleDAO();
+    private final RideDAO rideDAO = new RideDAO();
+    private final RideSearchCache searchCache = RideSearchCache.getInstance();
+    private final LocationIndex locationIndex = LocationIndex.getInstance();
+    private final RideStopIndex stopIndex = RideStopIndex.getInstance();
+
+    public static int dayMask(DayOfWeek day) {
+        return 1 << (day.getValue() - 1);
+    }
+
+    /**
+     * Creates a schedule and expands its first window right away.
+     */
+    public int create(RideSchedule schedule) throws SQLException {
+        if (schedule.getDaysOfWeek() <= 0) {
+            throw new IllegalArgumentException("At least one day of week is required");
+        }
+        if (schedule.getEndDate() != null && schedule.getEndDate().isBefore(schedule.getStartDate())) {
+            throw new IllegalArgumentException("endDate must not be before startDate");
+        }
+
+        int scheduleId = scheduleDAO.createSchedule(schedule);
+        RideSchedule created = scheduleDAO.getScheduleById(scheduleId);
+        LocalDate today = LocalDate.now(ZONE);
+        materialize(created, today, today.plusDays(WINDOW_DAYS));
+        return scheduleId;
+    }
+
+    /**
+     * Tops up at most {@link #SCHEDULES_PER_CHECK} due schedules to the
+     * rolling window and returns the number of rides inserted; the rest wait
+     * for the next run. A schedule that fails is logged and skipped, and a
+     * run that finds another one in progress in this container does nothing.
+     */
+    public int materializeDue() throws SQLException {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            LocalDate today = LocalDate.now(ZONE);
+            LocalDate horizon = today.plusDays(WINDOW_DAYS);
+            int inserted = 0;
+            for (RideSchedule schedule : scheduleDAO.findDueSchedules(today, horizon, SCHEDULES_PER_CHECK)) {
+                try {
+                    inserted += materialize(schedule, today, horizon);
+                } catch (SQLException e) {
+                    System.err.println("Expanding schedule " + schedule.getId() + " failed: " + e.getMessage());
+                }
+            }
+            return inserted;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private int materialize(RideSchedule schedule, LocalDate today, LocalDate horizon) throws SQLException {
+        LocalDate from = schedule.getStartDate().isAfter(today) ? schedule.getStartDate() : today;
+        if (schedule.getMaterializedThrough() != null && !schedule.getMaterializedThrough().isBefore(from)) {
+            from = schedule.getMaterializedThrough().plusDays(1);
+        }
+        LocalDate through = schedule.getEndDate() != null && schedule.getEndDate().isBefore(horizon)
+                ? schedule.getEndDate() : horizon;
+
+        // Today's slot is skipped once its departure time has passed.
+        LocalDateTime now = LocalDateTime.now(ZONE);
+        List<Ride> rides = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(through); date = date.plusDays(1)) {
+            LocalDateTime departure = date.atTime(schedule.getDepartureTime());
+            if ((schedule.getDaysOfWeek() & dayMask(date.getDayOfWeek())) != 0 && !departure.isBefore(now)) {
+                rides.add(Ride.scheduled(schedule, RideRows.formatDeparture(departure)));
+            }
+        }
+
+        int inserted;
+        List<Integer> rideIds = List.of();
+        try (Connection connection = DBConnection.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                inserted = rideDAO.insertScheduledRides(connection, rides);
+                scheduleDAO.markMaterialized(connection, schedule.getId(), through);
+                if (inserted > 0) {
+                    rideIds = rideDAO.findScheduledRideIds(connection, rides);
+                    rideDAO.recordScheduledChanges(connection, rides);
+                }
+                connection.commit();
+            } catch (Exception e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+
+        if (inserted > 0) {
+            searchCache.invalidateRoute(schedule.getSource(), schedule.getDestination());
+            locationIndex.record(schedule.getSource(), inserted);
+            locationIndex.record(schedule.getDestination(), inserted);
+            // Scheduled rides carry no coordinates, so only the stop index needs them.
+            List<String> stops = List.of(schedule.getSource(), schedule.getDestination());
+            for (int rideId : rideIds) {
+                stopIndex.put(rideId, stops);
+            }
+        }
+        return inserted;
+    }
+}
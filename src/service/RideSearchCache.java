@@ -0,0 +1,211 @@
+package service;
+
+import config.Env;
+import model.PageRequest;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process read-through cache of rendered open-ride listing pages (JSON), keyed by normalized
+ * route and page position. Size-bounded (LRU) with a TTL, which also bounds how
+ * stale a container can be about writes made by other containers.
+ */
+public class RideSearchCache {
+
+    // Route key for the unfiltered listing, which contains rides of every route.
+    private static final String ALL_ROUTES = "*";
+
+    private static final RideSearchCache INSTANCE = new RideSearchCache(
+            Env.getInt("RIDE_CACHE_MAX_ENTRIES", 1000),
+            Env.getInt("RIDE_CACHE_TTL_MS", 5000));
+
+    private final ListVersions versions = ListVersions.routes();
+
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    private final LinkedHashMap<Key, Entry> entries;
+    private final Map<String, Set<Key>> keysByRoute = new HashMap<>();
+
+    // Bumped on every invalidation; a load that raced with one is not cached.
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @FunctionalInterface
+    public interface Loader {
+        String load() throws SQLException;
+    }
+
+    public RideSearchCache(int maxEntries, long ttlMs) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() <= RideSearchCache.this.maxEntries) {
+                    return false;
+                }
+                unindex(eldest.getKey());
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    public static RideSearchCache getInstance() {
+        return INSTANCE;
+    }
+
+    public String getAll(PageRequest page, Loader loader) throws SQLException {
+        return get(new Key(ALL_ROUTES, page), loader);
+    }
+
+    public String getRoute(String source, String destination, PageRequest page, Loader loader) throws SQLException {
+        return get(new Key(routeKey(source, destination), page), loader);
+    }
+
+    /**
+     * ETag of a page of the unfiltered listing, without loading it.
+     */
+    public String etagAll(PageRequest page) {
+        return versions.etag(ALL_ROUTES, page);
+    }
+
+    public String etagRoute(String source, String destination, PageRequest page) {
+        return versions.etag(routeKey(source, destination), page);
+    }
+
+    /**
+     * Drops every cached page for the given route, plus the unfiltered listing,
+     * and moves both to a new ETag. Call after the change has committed.
+     */
+    public void invalidateRoute(String source, String destination) {
+        String route = routeKey(source, destination);
+        generation.incrementAndGet();
+        synchronized (this) {
+            removeRoute(route);
+            removeRoute(ALL_ROUTES);
+        }
+        versions.bump(route);
+        versions.bump(ALL_ROUTES);
+        invalidations.incrementAndGet();
+    }
+
+    public synchronized void clear() {
+        generation.incrementAndGet();
+        entries.clear();
+        keysByRoute.clear();
+    }
+
+    public CacheStats stats() {
+        int size;
+        synchronized (this) {
+            size = entries.size();
+        }
+        return new CacheStats(size, maxEntries, hits.get(), misses.get(),
+                evictions.get(), expirations.get(), invalidations.get());
+    }
+
+    // Keyed by place, so "Bengaluru" and "bangalore " share one entry.
+    private static String routeKey(String source, String destination) {
+        return Locations.canonicalKey(source) + '\u0000' + Locations.canonicalKey(destination);
+    }
+
+    private String get(Key key, Loader loader) throws SQLException {
+        long now = System.nanoTime();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (now - entry.loadedAtNanos <= ttlNanos) {
+                    hits.incrementAndGet();
+                    return entry.value;
+                }
+                entries.remove(key);
+                unindex(key);
+                expirations.incrementAndGet();
+            }
+        }
+
+        misses.incrementAndGet();
+        long loadGeneration = generation.get();
+        String value = loader.load();
+
+        synchronized (this) {
+            if (generation.get() == loadGeneration) {
+                entries.put(key, new Entry(value, now));
+                keysByRoute.computeIfAbsent(key.route, route -> new HashSet<>()).add(key);
+            }
+        }
+        return value;
+    }
+
+    private void removeRoute(String route) {
+        Set<Key> keys = keysByRoute.remove(route);
+        if (keys != null) {
+            for (Key key : keys) {
+                entries.remove(key);
+            }
+        }
+    }
+
+    private void unindex(Key key) {
+        Set<Key> keys = keysByRoute.get(key.route);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                keysByRoute.remove(key.route);
+            }
+        }
+    }
+
+    private static final class Key {
+        private final String route;
+        private final int beforeId;
+        private final int limit;
+
+        private Key(String route, PageRequest page) {
+            this.route = route;
+            this.beforeId = page.getBeforeId();
+            this.limit = page.getLimit();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key other)) {
+                return false;
+            }
+            return beforeId == other.beforeId && limit == other.limit && route.equals(other.route);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(route, beforeId, limit);
+        }
+    }
+
+    private static final class Entry {
+        private final String value;
+        private final long loadedAtNanos;
+
+        private Entry(String value, long loadedAtNanos) {
+            this.value = value;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+    }
+}
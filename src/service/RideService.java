@@ -1,38 +1,366 @@
 package service;
 
+import browse.RideSort;
+import config.Env;
+import dao.BookingDAO;
 import dao.RideDAO;
+import db.DBConnection;
+import geo.GeoMatch;
+import geo.StopMatch;
+import dao.RideRows;
+import json.Json;
+import json.RideJson;
+import model.GeoPoint;
+import model.Page;
+import model.PageRequest;
 import model.Ride;
+import model.RideSchedule;
 
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class RideService {
 
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int MAX_WAYPOINTS = 10;
+    static final long CHANGES_SETTLE_MS = Env.getInt("RIDE_CHANGES_SETTLE_MS", 1000);
+    private static final int CHANGES_RETENTION_HOURS = Env.getInt("RIDE_CHANGES_RETENTION_HOURS", 24);
+    private static final long PRUNE_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(10);
+    private static final int PRUNE_BATCH = 10000;
+
+    private static final AtomicLong nextPruneNanos = new AtomicLong(System.nanoTime());
+
     private final RideDAO rideDAO = new RideDAO();
+    private final BookingDAO bookingDAO = new BookingDAO();
+    private final RideScheduleService scheduleService = new RideScheduleService();
+    private final RideSearchCache searchCache = RideSearchCache.getInstance();
+    private final LocationIndex locationIndex = LocationIndex.getInstance();
+    private final RideGeoIndex geoIndex = RideGeoIndex.getInstance();
+    private final RideStopIndex stopIndex = RideStopIndex.getInstance();
+    private final RideBrowseIndex browseIndex = RideBrowseIndex.getInstance();
+    private final PricingService pricing = new PricingService();
+    private final ListVersions bookingVersions = ListVersions.bookings();
 
     public int publish(int ownerId,
                        String source,
                        String destination,
                        int seats,
-                       int farePerSeat) throws SQLException {
+                       int farePerSeat,
+                       String departureAt,
+                       GeoPoint pickup,
+                       GeoPoint drop,
+                       List<String> waypoints) throws SQLException {
+
+        if (departureAt != null) {
+            RideRows.parseDeparture(departureAt);
+        }
+        List<String> stops = stops(source, destination, waypoints);
+        Ride ride = Ride.toPublish(ownerId, source, destination, seats, farePerSeat, departureAt, pickup, drop, waypoints);
+
+        int rideId;
+        if (waypoints.isEmpty()) {
+            rideId = rideDAO.publishRide(ride);
+        } else {
+            try (Connection connection = DBConnection.getConnection()) {
+                connection.setAutoCommit(false);
+                try {
+                    rideId = rideDAO.publishRide(connection, ride);
+                    rideDAO.insertStops(connection, rideId, stops, seats);
+                    rideDAO.recordChanges(connection, List.of(rideId));
+                    connection.commit();
+                } catch (Exception e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            }
+        }
+
+        searchCache.invalidateRoute(source, destination);
+        for (String stop : stops) {
+            locationIndex.record(stop, 1);
+        }
+        geoIndex.update(ride.withId(rideId));
+        stopIndex.put(rideId, stops);
+        return rideId;
+    }
+
+    // Source, waypoints, destination; each place may appear only once on a ride.
+    private List<String> stops(String source, String destination, List<String> waypoints) {
+        if (waypoints.size() > MAX_WAYPOINTS) {
+            throw new IllegalArgumentException("A ride can have at most " + MAX_WAYPOINTS + " stops");
+        }
+        List<String> stops = new ArrayList<>(waypoints.size() + 2);
+        stops.add(source);
+        stops.addAll(waypoints);
+        stops.add(destination);
+
+        Set<String> places = new HashSet<>();
+        for (String stop : stops) {
+            if (stop.isEmpty() || !places.add(Locations.canonicalKey(stop))) {
+                throw new IllegalArgumentException("Stops must be non-empty and distinct from each other and the route ends");
+            }
+        }
+        return stops;
+    }
+
+    /**
+     * Publishes up to {@value #MAX_BATCH_SIZE} rides with a single multi-row insert.
+     */
+    public int[] publishBatch(List<Ride> rides) throws SQLException {
+        if (rides.isEmpty()) {
+            throw new IllegalArgumentException("At least one ride is required");
+        }
+        if (rides.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("A batch can contain at most " + MAX_BATCH_SIZE + " rides");
+        }
+        for (Ride ride : rides) {
+            if (ride.getDepartureAt() != null) {
+                RideRows.parseDeparture(ride.getDepartureAt());
+            }
+            if (!ride.getWaypoints().isEmpty()) {
+                throw new IllegalArgumentException("Rides with stops must be published one at a time");
+            }
+        }
+
+        int[] rideIds = rideDAO.publishRides(rides);
+        Set<String> routes = new HashSet<>();
+        for (int i = 0; i < rides.size(); i++) {
+            Ride ride = rides.get(i);
+            if (routes.add(ride.getSource() + '\u0000' + ride.getDestination())) {
+                searchCache.invalidateRoute(ride.getSource(), ride.getDestination());
+            }
+            locationIndex.record(ride.getSource(), 1);
+            locationIndex.record(ride.getDestination(), 1);
+            geoIndex.update(ride.withId(rideIds[i]));
+            stopIndex.put(rideIds[i], List.of(ride.getSource(), ride.getDestination()));
+        }
+        return rideIds;
+    }
+
+    public int createSchedule(RideSchedule schedule) throws SQLException {
+        return scheduleService.create(schedule);
+    }
+
+    /**
+     * Expands recurring schedules that are due into rides and returns how many
+     * were inserted. Driven by a timer, never by reads.
+     */
+    public int materializeSchedules() throws SQLException {
+        return scheduleService.materializeDue();
+    }
+
+    /**
+     * ETag of a listing page, computed without querying.
+     */
+    public String listingEtag(String source, String destination, PageRequest page) {
+        return source == null ? searchCache.etagAll(page) : searchCache.etagRoute(source, destination, page);
+    }
 
-        Ride ride = new Ride(ownerId, source, destination, seats, farePerSeat);
-        return rideDAO.publishRide(ride);
+    /**
+     * Rides created, changed or closed since sequence {@code since}, as JSON
+     * with the {@code nextSince} to poll with next. Without {@code since} only
+     * the current position is returned, for clients that just loaded /rides.
+     * Returns null when {@code since} predates the retained change log and
+     * the client has to reload the listing instead.
+     */
+    public String changes(Long since, int limit) throws SQLException {
+        pruneChangesDue();
+        boolean[] stale = new boolean[1];
+        String json = Json.write(out -> stale[0] = !rideDAO.writeChanges(since, limit, CHANGES_SETTLE_MS, out));
+        return stale[0] ? null : json;
     }
 
-    public List<Ride> viewAll() throws SQLException {
-        return rideDAO.viewAllRides();
+    // One caller per container per interval trims the log; readers that fall
+    // behind the retention window get a 410 and reload.
+    private void pruneChangesDue() throws SQLException {
+        long now = System.nanoTime();
+        long next = nextPruneNanos.get();
+        if (now - next < 0 || !nextPruneNanos.compareAndSet(next, now + PRUNE_INTERVAL_NANOS)) {
+            return;
+        }
+        rideDAO.pruneChanges(CHANGES_RETENTION_HOURS, PRUNE_BATCH);
+    }
+
+    /**
+     * Returns a page of open rides already rendered as JSON.
+     */
+    public String viewAll(PageRequest page) throws SQLException {
+        return searchCache.getAll(page, () -> Json.write(out -> rideDAO.viewAllRides(page, out)));
+    }
+
+    /**
+     * Searches by place rather than by exact string: both ends are expanded to
+     * every spelling the location index knows for them.
+     */
+    public String search(String source, String destination, PageRequest page) throws SQLException {
+        pricing.recordSearch(source, destination);
+        return searchCache.getRoute(source, destination, page, () -> {
+            List<String> sources = locationIndex.spellings(source);
+            List<String> destinations = locationIndex.spellings(destination);
+            return Json.write(out -> rideDAO.searchRides(sources, destinations, page, out));
+        });
+    }
+
+    /**
+     * The best {@code limit} open rides by {@code sort} with at least
+     * {@code minSeats} seats and a fare of at most {@code maxFare}, on one
+     * route or (with a null source and destination) across all of them.
+     * Picked from the in-memory snapshot, then re-read and re-checked
+     * against MySQL, since seats may have gone since the snapshot was taken.
+     */
+    public String browse(String source, String destination, int minSeats, int maxFare, RideSort sort, int limit)
+            throws SQLException {
+        if (source != null) {
+            pricing.recordSearch(source, destination);
+        }
+        // Over-fetch so rides booked since the snapshot rarely leave the page short.
+        int[] picked = browseIndex.top(source, destination, minSeats, maxFare, sort, limit * 2);
+        List<Integer> rideIds = new ArrayList<>(picked.length);
+        for (int rideId : picked) {
+            rideIds.add(rideId);
+        }
+
+        Map<Integer, Ride> rides;
+        try (Connection connection = DBConnection.getConnection()) {
+            rides = rideDAO.getRidesByIds(connection, rideIds);
+        }
+
+        List<Ride> items = new ArrayList<>(rides.size());
+        for (Ride ride : rides.values()) {
+            if ("OPEN".equals(ride.getStatus()) && ride.getSeats() >= minSeats && ride.getFarePerSeat() <= maxFare) {
+                items.add(ride);
+            }
+        }
+        items.sort(sort.comparator());
+        List<Ride> page = items.size() > limit ? items.subList(0, limit) : items;
+
+        return Json.write(out -> {
+            out.beginObject();
+            out.name("items").beginArray();
+            for (Ride ride : page) {
+                RideJson.write(out, ride);
+            }
+            out.endArray();
+            out.endObject();
+        });
+    }
+
+    /**
+     * Open rides picking up within {@code radiusKm} of {@code pickup} (and
+     * dropping off within it of {@code drop}, if given), closest first. The
+     * grid index picks candidates; their current state is re-read from MySQL.
+     */
+    public String nearby(GeoPoint pickup, GeoPoint drop, double radiusKm, int limit) throws SQLException {
+        List<GeoMatch> matches = geoIndex.nearby(pickup, drop, radiusKm, limit);
+        List<Integer> rideIds = new ArrayList<>(matches.size());
+        for (GeoMatch match : matches) {
+            rideIds.add(match.getRideId());
+        }
+
+        Map<Integer, Ride> rides;
+        try (Connection connection = DBConnection.getConnection()) {
+            rides = rideDAO.getRidesByIds(connection, rideIds);
+        }
+
+        return Json.write(out -> {
+            out.beginObject();
+            out.name("items").beginArray();
+            for (GeoMatch match : matches) {
+                Ride ride = rides.get(match.getRideId());
+                if (ride == null || !"OPEN".equals(ride.getStatus()) || ride.getSeats() <= 0) {
+                    continue;
+                }
+                RideJson.writeNearby(out, ride, match.getPickupDistanceKm(), match.getDropDistanceKm());
+            }
+            out.endArray();
+            out.endObject();
+        });
+    }
+
+    /**
+     * Open rides that pass through {@code from} and later {@code to} with at
+     * least {@code seats} free on every leg in between, newest first. Matches a
+     * trip between intermediate stops as well as between the route ends.
+     */
+    public String match(String from, String to, int seats, int limit) throws SQLException {
+        pricing.recordSearch(from, to);
+        // Over-fetch candidates: some will turn out to be full on the wanted legs.
+        List<StopMatch> candidates = stopIndex.match(from, to, limit * 4);
+        List<Integer> rideIds = new ArrayList<>(candidates.size());
+        for (StopMatch candidate : candidates) {
+            rideIds.add(candidate.getRideId());
+        }
+
+        Map<Integer, Ride> rides;
+        Map<Integer, int[]> legSeats;
+        try (Connection connection = DBConnection.getConnection()) {
+            rides = rideDAO.getRidesByIds(connection, rideIds);
+            legSeats = rideDAO.getLegSeats(connection, rideIds);
+        }
+
+        return Json.write(out -> {
+            out.beginObject();
+            out.name("items").beginArray();
+            int written = 0;
+            for (StopMatch candidate : candidates) {
+                if (written == limit) {
+                    break;
+                }
+                Ride ride = rides.get(candidate.getRideId());
+                if (ride == null || !"OPEN".equals(ride.getStatus())) {
+                    continue;
+                }
+                int available = ride.getSeats();
+                int[] legs = legSeats.get(ride.getId());
+                if (legs != null) {
+                    available = Integer.MAX_VALUE;
+                    for (int leg = candidate.getFromStop(); leg < candidate.getToStop() && leg < legs.length; leg++) {
+                        available = Math.min(available, legs[leg]);
+                    }
+                }
+                if (available < seats) {
+                    continue;
+                }
+                RideJson.writeMatch(out, ride, stopIndex.stops(ride.getId()), candidate.getFromStop(),
+                        candidate.getToStop(), available, ride.segmentFare(candidate.getFromStop(), candidate.getToStop()));
+                written++;
+            }
+            out.endArray();
+            out.endObject();
+        });
     }
 
-    public List<Ride> search(String source, String destination) throws SQLException {
-        return rideDAO.searchRides(source, destination);
+    public List<LocationSuggestion> suggestLocations(String prefix, int limit) throws SQLException {
+        return locationIndex.suggest(prefix, limit);
     }
 
     public boolean cancel(int rideId, int ownerId) throws SQLException {
-        return rideDAO.cancelRide(rideId, ownerId);
+        boolean cancelled = rideDAO.cancelRide(rideId, ownerId);
+        if (cancelled) {
+            Ride ride = rideDAO.getRideById(rideId);
+            if (ride != null) {
+                searchCache.invalidateRoute(ride.getSource(), ride.getDestination());
+            }
+            // Booking history shows the ride's status.
+            for (int userId : bookingDAO.getUserIdsByRide(rideId)) {
+                bookingVersions.bump(String.valueOf(userId));
+            }
+            geoIndex.remove(rideId);
+            stopIndex.remove(rideId);
+        }
+        return cancelled;
     }
 
-    public List<Ride> viewMyRides(int userId) throws SQLException {
-        return rideDAO.viewUserRides(userId);
+    public Page<Ride> viewMyRides(int userId, PageRequest page) throws SQLException {
+        return rideDAO.viewUserRides(userId, page);
     }
 }
@@ -0,0 +1,116 @@
+package service;
+
+import config.Env;
+import dao.RideDAO;
+import geo.StopIndex;
+import geo.StopMatch;
+import util.VirtualThreads;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Per-container stop→rides index of open rides, keyed by canonical location
+ * so aliases match. Loaded from MySQL on first use, kept in step with this
+ * container's publishes and cancellations, and rebuilt periodically in the
+ * background. Seat availability is not indexed; callers check it against
+ * MySQL.
+ */
+public class RideStopIndex {
+
+    private static final long RELOAD_INTERVAL_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Env.getInt("STOP_INDEX_RELOAD_MS", 300000));
+
+    private static final RideStopIndex INSTANCE = new RideStopIndex();
+    private static final ExecutorService RELOADER = VirtualThreads.newThreadPerTaskExecutor("stop-index");
+
+    private final RideDAO rideDAO = new RideDAO();
+    private final Object loadLock = new Object();
+
+    private volatile StopIndex index = new StopIndex(Locations::canonicalKey);
+    private volatile boolean loaded;
+    private final AtomicLong nextReloadNanos = new AtomicLong();
+    // Changes made while a reload's query runs, replayed onto its result
+    // before the swap; null when no reload is running. Guarded by this.
+    private List<Consumer<StopIndex>> changesDuringReload;
+
+    public static RideStopIndex getInstance() {
+        return INSTANCE;
+    }
+
+    public List<StopMatch> match(String from, String to, int limit) throws SQLException {
+        ensureLoaded();
+        return index.match(from, to, limit);
+    }
+
+    public List<String> stops(int rideId) {
+        return index.stops(rideId);
+    }
+
+    public void put(int rideId, List<String> stops) {
+        apply(index -> index.put(rideId, stops));
+    }
+
+    public void remove(int rideId) {
+        apply(index -> index.remove(rideId));
+    }
+
+    private synchronized void apply(Consumer<StopIndex> change) {
+        if (loaded) {
+            change.accept(index);
+        }
+        if (changesDuringReload != null) {
+            changesDuringReload.add(change);
+        }
+    }
+
+    private void ensureLoaded() throws SQLException {
+        if (!loaded) {
+            synchronized (loadLock) {
+                if (!loaded) {
+                    reload();
+                }
+            }
+            return;
+        }
+        long now = System.nanoTime();
+        long next = nextReloadNanos.get();
+        if (now - next >= 0 && nextReloadNanos.compareAndSet(next, now + RELOAD_INTERVAL_NANOS)) {
+            RELOADER.submit(() -> {
+                try {
+                    reload();
+                } catch (SQLException e) {
+                    System.err.println("Stop index reload failed: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    private void reload() throws SQLException {
+        synchronized (this) {
+            changesDuringReload = new ArrayList<>();
+        }
+        try {
+            StopIndex fresh = new StopIndex(Locations::canonicalKey);
+            rideDAO.loadOpenRideStops(fresh);
+            synchronized (this) {
+                for (Consumer<StopIndex> change : changesDuringReload) {
+                    change.accept(fresh);
+                }
+                index = fresh;
+                loaded = true;
+                changesDuringReload = null;
+            }
+            nextReloadNanos.set(System.nanoTime() + RELOAD_INTERVAL_NANOS);
+        } finally {
+            synchronized (this) {
+                changesDuringReload = null;
+            }
+        }
+    }
+}
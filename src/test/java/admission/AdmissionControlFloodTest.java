@@ -0,0 +1,133 @@
+package admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * One client flooding from many threads next to polite clients, through the
+ * same throttle/enter/exit sequence LambdaHandler runs. Client buckets refill
+ * too slowly to matter during the test, so every count is exact.
+ */
+class AdmissionControlFloodTest {
+
+    private static final int BURST = 20;
+    private static final int DB_SLOTS = 4;
+    private static final int SPAMMER_THREADS = 12;
+    private static final int SPAMMER_REQUESTS = 2000;
+    private static final int POLITE_CLIENTS = 4;
+    private static final int POLITE_REQUESTS = 10;
+
+    @Test
+    void floodingClientIsThrottledWithoutStarvingOthers() throws Exception {
+        AdmissionControl admission = new AdmissionControl(
+                new RateLimiter(0.001, BURST, 1000),
+                new RateLimiter(1_000_000, 1_000_000, 100),
+                new ConcurrencyLimiter(DB_SLOTS, 50));
+        Outcomes spammer = new Outcomes();
+        Outcomes polite = new Outcomes();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(SPAMMER_THREADS + POLITE_CLIENTS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < SPAMMER_THREADS; t++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < SPAMMER_REQUESTS; i++) {
+                        spammer.record(send(admission, "ip:spammer", inFlight, maxInFlight));
+                    }
+                    return null;
+                }));
+            }
+            for (int c = 0; c < POLITE_CLIENTS; c++) {
+                String client = "ip:polite-" + c;
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < POLITE_REQUESTS; i++) {
+                        polite.record(send(admission, client, inFlight, maxInFlight));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // The spammer gets its burst through the rate limit and nothing more.
+        assertEquals(SPAMMER_THREADS * SPAMMER_REQUESTS - BURST, spammer.throttled.sum());
+        assertEquals(BURST, spammer.admitted.sum() + spammer.shed.sum());
+        // Polite clients stay within their burst: never throttled, only ever shed.
+        assertEquals(0, polite.throttled.sum());
+        assertEquals(POLITE_CLIENTS * POLITE_REQUESTS, polite.admitted.sum() + polite.shed.sum());
+
+        assertTrue(maxInFlight.get() <= DB_SLOTS, "database slots exceeded: " + maxInFlight.get());
+        AdmissionStats stats = admission.stats();
+        assertEquals(spammer.throttled.sum(), stats.getClientThrottled());
+        assertEquals(0, stats.getRouteThrottled());
+        assertEquals(spammer.admitted.sum() + polite.admitted.sum(), stats.getAdmitted());
+        assertEquals(spammer.shed.sum() + polite.shed.sum(), stats.getShed());
+        assertEquals(0, stats.getInFlight());
+    }
+
+    @Test
+    void shedsOnceEveryDatabaseSlotIsHeld() {
+        AdmissionControl admission = new AdmissionControl(
+                new RateLimiter(1000, 1000, 10), new RateLimiter(1000, 1000, 10), new ConcurrencyLimiter(2, 0));
+
+        assertTrue(admission.enter());
+        assertTrue(admission.enter());
+        assertFalse(admission.enter());
+        admission.exit();
+        assertTrue(admission.enter());
+        assertEquals(3, admission.stats().getAdmitted());
+        assertEquals(1, admission.stats().getShed());
+    }
+
+    // 429, 503 or 200, as LambdaHandler would answer; admitted requests hold their slot briefly.
+    private static int send(AdmissionControl admission, String client, AtomicInteger inFlight,
+                            AtomicInteger maxInFlight) throws InterruptedException {
+        if (admission.throttle(client, "GET /rides") > 0) {
+            return 429;
+        }
+        if (!admission.enter()) {
+            return 503;
+        }
+        try {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(2);
+            return 200;
+        } finally {
+            inFlight.decrementAndGet();
+            admission.exit();
+        }
+    }
+
+    private static final class Outcomes {
+        final LongAdder admitted = new LongAdder();
+        final LongAdder throttled = new LongAdder();
+        final LongAdder shed = new LongAdder();
+
+        void record(int status) {
+            (status == 429 ? throttled : status == 503 ? shed : admitted).increment();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    private static final int THREADS = 16;
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void concurrentCallersAtOneInstantShareExactlyTheBurst() throws Exception {
+        RateLimiter limiter = new RateLimiter(20, 40, 1000);
+        long now = System.nanoTime();
+
+        assertEquals(40, acquireFromThreads(limiter, "ip:1", now, 5000));
+    }
+
+    @Test
+    void refillsAtTheConfiguredRate() throws Exception {
+        RateLimiter limiter = new RateLimiter(20, 40, 1000);
+        long now = System.nanoTime();
+        assertEquals(40, acquireFromThreads(limiter, "ip:1", now, 1000));
+
+        assertEquals(20, acquireFromThreads(limiter, "ip:1", now + SECOND, 1000));
+    }
+
+    @Test
+    void refusedCallerLearnsHowLongToWait() {
+        RateLimiter limiter = new RateLimiter(10, 1, 1000);
+        long now = System.nanoTime();
+
+        assertEquals(0, limiter.acquire("ip:1", now));
+        long wait = limiter.acquire("ip:1", now);
+        assertEquals(SECOND / 10, wait);
+        assertEquals(0, limiter.acquire("ip:1", now + wait));
+    }
+
+    @Test
+    void clientsDoNotShareBuckets() {
+        RateLimiter limiter = new RateLimiter(1, 1, 1000);
+        long now = System.nanoTime();
+
+        assertEquals(0, limiter.acquire("ip:1", now));
+        assertTrue(limiter.acquire("ip:1", now) > 0);
+        assertEquals(0, limiter.acquire("ip:2", now));
+    }
+
+    @Test
+    void keysPastTheLimitShareTheOverflowBucket() {
+        RateLimiter limiter = new RateLimiter(1, 1, 2);
+        long now = System.nanoTime();
+        limiter.acquire("ip:1", now);
+        limiter.acquire("ip:2", now);
+
+        assertEquals(0, limiter.acquire("ip:3", now));
+        assertTrue(limiter.acquire("ip:4", now) > 0);
+        // The two real keys plus the one overflow bucket.
+        assertEquals(3, limiter.size());
+    }
+
+    private static int acquireFromThreads(RateLimiter limiter, String key, long now, int attemptsPerThread)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int acquired = 0;
+                    for (int i = 0; i < attemptsPerThread; i++) {
+                        if (limiter.acquire(key, now) == 0) {
+                            acquired++;
+                        }
+                    }
+                    return acquired;
+                }));
+            }
+            start.countDown();
+            int total = 0;
+            for (Future<Integer> result : results) {
+                total += result.get(30, TimeUnit.SECONDS);
+            }
+            return total;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
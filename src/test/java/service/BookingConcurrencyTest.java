@@ -0,0 +1,181 @@
+package service;
+
+import config.Env;
+import db.DBConnection;
+import model.BatchBookingResult;
+import model.Booking;
+import model.BookingOutcome;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Hundreds of bookings racing for one ride through the real service, pool
+ * and conditional seat UPDATE, on in-memory H2 in MySQL mode with a pool
+ * much smaller than the number of threads. Seats must never go negative and
+ * exactly the ride's capacity must be sold.
+ */
+class BookingConcurrencyTest {
+
+    private static final int THREADS = 64;
+    private static final int ATTEMPTS = 400;
+
+    private final UserService users = new UserService();
+    private final RideService rides = new RideService();
+    private final BookingService bookings = new BookingService();
+
+    @BeforeAll
+    static void useInMemoryDatabase() throws SQLException {
+        System.setProperty("DB_URL",
+                "jdbc:h2:mem:booking-concurrency;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;IGNORECASE=TRUE");
+        System.setProperty("DB_USER", "sa");
+        System.setProperty("DB_POOL_MAX_SIZE", "8");
+        // The OS environment wins over system properties; never book against a real database.
+        assumeTrue(Env.get("DB_URL", "").startsWith("jdbc:h2:mem:"), "DB_URL is set in the environment");
+        DBConnection.ensureSchema();
+    }
+
+    @Test
+    void singleSeatBookingsSellExactlyTheCapacity() throws Exception {
+        int capacity = 50;
+        int owner = users.register("Owner", "owner-single@example.com");
+        int rider = users.register("Rider", "rider-single@example.com");
+        int rideId = rides.publish(owner, "Pune", "Mumbai", capacity, 300, null, null, null, List.of());
+
+        Results results = race(ATTEMPTS, attempt -> bookings.bookRide(rideId, rider, 1));
+
+        assertEquals(0, results.errors.get(), "unexpected failures");
+        assertEquals(capacity, results.booked.get());
+        assertEquals(ATTEMPTS - capacity, results.rejected.get());
+        assertEquals(0, seatsLeft(rideId));
+        assertEquals(capacity, seatsBooked(rideId));
+        assertEquals(capacity, bookingCount(rideId));
+    }
+
+    @Test
+    void multiSeatBookingsNeverOversell() throws Exception {
+        int capacity = 97;
+        int owner = users.register("Owner", "owner-multi@example.com");
+        int rider = users.register("Rider", "rider-multi@example.com");
+        int rideId = rides.publish(owner, "Delhi", "Agra", capacity, 250, null, null, null, List.of());
+
+        Results results = race(ATTEMPTS, attempt -> bookings.bookRide(rideId, rider, 1 + attempt % 3));
+
+        assertEquals(0, results.errors.get(), "unexpected failures");
+        int left = seatsLeft(rideId);
+        assertTrue(left >= 0 && left < 3, "seats left: " + left);
+        assertEquals(capacity - left, seatsBooked(rideId));
+        assertEquals(results.booked.get(), bookingCount(rideId));
+    }
+
+    @Test
+    void concurrentBatchesNeverOversell() throws Exception {
+        int capacity = 40;
+        int owner = users.register("Owner", "owner-batch@example.com");
+        int rider = users.register("Rider", "rider-batch@example.com");
+        int first = rides.publish(owner, "Chennai", "Vellore", capacity, 150, null, null, null, List.of());
+        int second = rides.publish(owner, "Chennai", "Madurai", capacity, 400, null, null, null, List.of());
+
+        // Opposite ride orders in alternate batches, so lock ordering is exercised too.
+        AtomicInteger seatsTaken = new AtomicInteger();
+        Results results = race(ATTEMPTS / 2, attempt -> {
+            int a = attempt % 2 == 0 ? first : second;
+            int b = attempt % 2 == 0 ? second : first;
+            BatchBookingResult result = bookings.bookBatch(List.of(
+                    new Booking(a, rider, 1, 0), new Booking(b, rider, 1, 0), new Booking(a, rider, 1, 0)), false);
+            for (BookingOutcome outcome : result.getResults()) {
+                if (BookingOutcome.BOOKED.equals(outcome.getStatus())) {
+                    seatsTaken.addAndGet(outcome.getSeats());
+                }
+            }
+        });
+
+        assertEquals(0, results.errors.get(), "unexpected failures");
+        assertEquals(0, seatsLeft(first));
+        assertEquals(0, seatsLeft(second));
+        assertEquals(2 * capacity, seatsTaken.get());
+        assertEquals(capacity, seatsBooked(first));
+        assertEquals(capacity, seatsBooked(second));
+    }
+
+    @FunctionalInterface
+    private interface Attempt {
+        void run(int attempt) throws Exception;
+    }
+
+    private static final class Results {
+        final AtomicInteger booked = new AtomicInteger();
+        final AtomicInteger rejected = new AtomicInteger();
+        final AtomicInteger errors = new AtomicInteger();
+    }
+
+    private static Results race(int attempts, Attempt attempt) throws Exception {
+        Results results = new Results();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < attempts; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        attempt.run(index);
+                        results.booked.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        results.rejected.incrementAndGet();
+                    } catch (Exception e) {
+                        results.errors.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    private static int seatsLeft(int rideId) throws SQLException {
+        return queryInt("SELECT seats FROM rides WHERE id=?", rideId);
+    }
+
+    private static int seatsBooked(int rideId) throws SQLException {
+        return queryInt("SELECT COALESCE(SUM(seats_booked), 0) FROM bookings WHERE ride_id=?", rideId);
+    }
+
+    private static int bookingCount(int rideId) throws SQLException {
+        return queryInt("SELECT COUNT(*) FROM bookings WHERE ride_id=?", rideId);
+    }
+
+    private static int queryInt(String sql, int rideId) throws SQLException {
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setInt(1, rideId);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+}
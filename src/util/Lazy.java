@@ -0,0 +1,32 @@
+package util;
+
+import java.util.function.Supplier;
+
+/**
+ * A value built on first use and kept from then on. The factory runs at most
+ * once, even when the first calls race; later calls are a volatile read.
+ */
+public final class Lazy<T> implements Supplier<T> {
+
+    private final Supplier<T> factory;
+    private volatile T value;
+
+    public Lazy(Supplier<T> factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public T get() {
+        T current = value;
+        if (current == null) {
+            synchronized (this) {
+                current = value;
+                if (current == null) {
+                    current = factory.get();
+                    value = current;
+                }
+            }
+        }
+        return current;
+    }
+}